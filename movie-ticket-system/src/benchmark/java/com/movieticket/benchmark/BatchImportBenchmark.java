@@ -0,0 +1,79 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Movie;
+import com.movieticket.service.BatchOperation;
+import com.movieticket.service.BatchResult;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Imports a feed of new movies into a catalog two ways, both with the default
+ * synchronous persistence: one createMovie call per movie (what clients of
+ * POST /api/movies had to do) and a single applyBatch call.
+ *
+ * Usage: BatchImportBenchmark [feedSize] [catalogSize]   (default: 10000 1000)
+ */
+public class BatchImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int feedSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int catalogSize = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        System.out.printf("Importing %,d movies into a catalog of %,d%n", feedSize, catalogSize);
+        double oneByOne = run(feedSize, catalogSize, false);
+        double batched = run(feedSize, catalogSize, true);
+        System.out.printf("%-24s %10.0f ms  %8.3f ms/movie%n", "createMovie per movie", oneByOne, oneByOne / feedSize);
+        System.out.printf("%-24s %10.0f ms  %8.3f ms/movie%n", "one applyBatch", batched, batched / feedSize);
+        System.out.printf("speedup %.0fx%n", oneByOne / batched);
+    }
+
+    private static double run(int feedSize, int catalogSize, boolean batch) throws IOException {
+        Path file = Files.createTempFile("movies-import-", ".json");
+        file.toFile().deleteOnExit();
+        SyntheticCatalog.writeJson(file, catalogSize, 42);
+        MovieService service = new MovieService(new JsonCatalogFile(file.toString()), null);
+
+        List<Movie> feed = feed(feedSize);
+        long start = System.nanoTime();
+        if (batch) {
+            List<BatchOperation> operations = new ArrayList<>(feed.size());
+            for (Movie movie : feed) {
+                operations.add(BatchOperation.create(movie));
+            }
+            BatchResult result = service.applyBatch(operations);
+            if (!result.isApplied()) {
+                throw new IllegalStateException("Batch was rejected");
+            }
+        } else {
+            for (Movie movie : feed) {
+                service.createMovie(movie);
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+        if (service.getSnapshot().size() != catalogSize + feedSize) {
+            throw new IllegalStateException("Expected " + (catalogSize + feedSize) + " movies");
+        }
+        service.close();
+        return millis;
+    }
+
+    /**
+     * New movies without ids, so the service assigns them
+     */
+    private static List<Movie> feed(int size) {
+        Random random = new Random(7);
+        List<Movie> feed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            feed.add(SyntheticCatalog.movie(null, random));
+        }
+        return feed;
+    }
+}
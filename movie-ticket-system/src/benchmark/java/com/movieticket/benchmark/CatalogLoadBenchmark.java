@@ -0,0 +1,106 @@
+package com.movieticket.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.movieticket.model.Movie;
+import com.movieticket.service.JsonCatalogFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares catalog startup cost of the old whole-document loader
+ * (gson.fromJson into a List, copied into the snapshot and indexed) with the
+ * streaming JsonReader loader. Reports load time, bytes allocated by the
+ * loading thread, peak heap during the load and heap still retained afterwards.
+ *
+ * Usage: CatalogLoadBenchmark [movieCount] [rounds]   (defaults: 500000 3)
+ */
+public class CatalogLoadBenchmark {
+
+    private interface Loader {
+        Map<String, Movie> load(Path file) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path file = Files.createTempFile("movies-" + count + "-", ".json");
+        file.toFile().deleteOnExit();
+        SyntheticCatalog.writeJson(file, count, 42);
+        System.out.printf("Generated %,d movies (%,d bytes)%n", count, Files.size(file));
+
+        Gson gson = new Gson();
+        Loader wholeDocument = path -> {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                List<Movie> parsed = gson.fromJson(reader, new TypeToken<List<Movie>>(){}.getType());
+                List<Movie> movies = new ArrayList<>(parsed.size());
+                Map<String, Movie> index = new HashMap<>();
+                for (Movie movie : parsed) {
+                    movies.add(movie);
+                    index.putIfAbsent(movie.getId(), movie);
+                }
+                return index;
+            }
+        };
+        JsonCatalogFile catalogFile = new JsonCatalogFile(file.toString());
+        Loader streaming = path -> {
+            List<Movie> movies = new ArrayList<>();
+            Map<String, Movie> index = new HashMap<>();
+            catalogFile.read(movie -> {
+                movies.add(movie);
+                index.putIfAbsent(movie.getId(), movie);
+            });
+            return index;
+        };
+
+        // Warm up both paths once before measuring
+        wholeDocument.load(file);
+        streaming.load(file);
+
+        for (int round = 1; round <= rounds; round++) {
+            measure("whole-document", wholeDocument, file);
+            measure("streaming     ", streaming, file);
+        }
+    }
+
+    private static void measure(String name, Loader loader, Path file) throws IOException {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        Map<String, Movie> loaded = loader.load(file);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        System.gc();
+        long retained = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%s %,9d movies  %,7d ms  allocated %,6d MB  peak heap %,6d MB  retained %,6d MB%n",
+                name, loaded.size(), elapsed / 1_000_000, allocated >> 20, peak >> 20, retained >> 20);
+    }
+}
@@ -0,0 +1,120 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.service.CatalogChange;
+import com.movieticket.service.CatalogPersistence;
+import com.movieticket.service.CatalogSnapshot;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieService;
+import com.movieticket.service.SearchHit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures ranked full-text search (GET /api/movies/search?q=) at several
+ * catalog sizes: how long the indexes take to build after load, top-10
+ * latency for exact, multi-term and misspelled queries, and the cost of an
+ * update that changes indexed text (without disk writes, which would dwarf
+ * it).
+ *
+ * Usage: FullTextSearchBenchmark [size ...]   (default: 10000 100000 1000000)
+ */
+public class FullTextSearchBenchmark {
+    private static final String[] QUERIES = {
+        "knight", "dark knight", "midnight mirror", "ava nolan", "story", "shadw kingdm", "electirc protocl", "xyzzy"
+    };
+    private static final int LIMIT = 10;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws IOException, InterruptedException {
+        Path file = Files.createTempFile("movies-" + size + "-", ".json");
+        file.toFile().deleteOnExit();
+        SyntheticCatalog.writeJson(file, size, 42);
+        long start = System.nanoTime();
+        MovieService service = new MovieService(new JsonCatalogFile(file.toString()), new InMemoryPersistence());
+        while (!service.isSearchIndexReady()) {
+            Thread.sleep(1);
+        }
+        long readyMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%n%,d movies, loaded and indexed in %,d ms%n", size, readyMillis);
+        System.out.printf("%-20s %8s %12s%n", "query", "hits", "us/op");
+        for (String query : QUERIES) {
+            List<SearchHit> hits = service.searchMovies(query, LIMIT);
+            int iterations = Math.max(20, 2_000_000 / size);
+            double micros = time(() -> service.searchMovies(query, LIMIT), iterations);
+            System.out.printf("%-20s %8d %12.1f%n", query, hits.size(), micros);
+        }
+
+        int updates = Math.min(1000, 100_000_000 / size); // publishing costs more in bigger catalogs
+        // Every update gets a new title, description and cast, so none is skipped as unchanged
+        Random random = new Random(7);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // updateMovie logs each change
+        long updateStart = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            String id = String.valueOf(1 + random.nextInt(size));
+            service.updateMovie(id, SyntheticCatalog.movie(id, random));
+        }
+        long updateNanos = System.nanoTime() - updateStart;
+        System.setOut(console);
+        System.out.printf("update (all indexes)  %,.1f us/op%n", updateNanos / 1000.0 / updates);
+        service.close();
+    }
+
+    private static double time(Runnable search, int iterations) {
+        for (int i = 0; i < iterations / 4 + 1; i++) {
+            search.run(); // warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            search.run();
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    /**
+     * Keeps changes in memory only
+     */
+    private static class InMemoryPersistence implements CatalogPersistence {
+        @Override
+        public List<CatalogChange> recover() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void onLoad(CatalogSnapshot loaded) {
+        }
+
+        @Override
+        public void onPublish(CatalogSnapshot published, List<CatalogChange> changes) {
+        }
+
+        @Override
+        public void awaitDurable(long version) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.service.TimingWheel;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules a few million five-minute hold expiries, cancels half of them (the
+ * checkouts that complete) and lets the rest expire, with the TimingWheel the
+ * hold service uses and with a ScheduledThreadPoolExecutor (a heap of task
+ * objects, O(log n) per operation) for comparison.
+ *
+ * Reports the cost per schedule and cancel, heap retained per pending timer
+ * and the garbage collection time spent while the timers were pending. The
+ * wheel is driven with a simulated clock; the executor only schedules and
+ * cancels (it would otherwise have to wait five real minutes).
+ *
+ * Usage: HoldExpiryBenchmark [timers]   (default: 2000000)
+ */
+public class HoldExpiryBenchmark {
+    private static final long HOLD_MILLIS = 5 * 60 * 1000;
+
+    public static void main(String[] args) {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.printf("%,d holds of %d minutes, half cancelled%n", timers, HOLD_MILLIS / 60_000);
+        for (int round = 0; round < 3; round++) {
+            boolean report = round > 0;
+            wheel(timers, report);
+            executor(timers, report);
+        }
+    }
+
+    private static void wheel(int timers, boolean report) {
+        Random random = new Random(42);
+        Object hold = new Object(); // stands in for the SeatHold attachment
+        long now = 0;
+        TimingWheel<Object> wheel = new TimingWheel<>(100, now);
+        long[] handles = new long[timers];
+        long heapBefore = usedHeapAfterGc();
+        long gcBefore = gcMillis();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            // Arrivals spread over one minute
+            handles[i] = wheel.schedule(now + i * 60_000L / timers + HOLD_MILLIS, hold);
+        }
+        long scheduled = System.nanoTime();
+        long gcScheduling = gcMillis() - gcBefore;
+        long heap = usedHeapAfterGc() - heapBefore; // the explicit GC is not counted
+        gcBefore = gcMillis() - gcScheduling;
+
+        long cancelStart = System.nanoTime();
+        for (int i = 0; i < timers; i += 2) {
+            wheel.cancel(handles[(i + random.nextInt(2))]);
+        }
+        long cancelled = System.nanoTime();
+
+        List<Object> expired = new ArrayList<>();
+        long fired = 0;
+        long expireStart = System.nanoTime();
+        for (long time = 100; time <= HOLD_MILLIS + 61_000; time += 100) {
+            fired += wheel.advance(time, expired);
+            expired.clear();
+        }
+        long end = System.nanoTime();
+        long gc = gcMillis() - gcBefore;
+
+        if (report) {
+            System.out.printf("%-30s schedule %5.0f ns  cancel %5.0f ns  expire %5.0f ns  %5.1f bytes/timer  gc %5d ms  (%,d fired)%n",
+                    "TimingWheel", (double) (scheduled - start) / timers, (double) (cancelled - cancelStart) / (timers / 2),
+                    (double) (end - expireStart) / fired, (double) heap / timers, gc, fired);
+        }
+    }
+
+    private static void executor(int timers, boolean report) {
+        Random random = new Random(42);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        Runnable release = () -> { };
+        List<ScheduledFuture<?>> futures = new ArrayList<>(timers);
+        long heapBefore = usedHeapAfterGc();
+        long gcBefore = gcMillis();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            futures.add(executor.schedule(release, i * 60_000L / timers + HOLD_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        long scheduled = System.nanoTime();
+        long gcScheduling = gcMillis() - gcBefore;
+        long heap = usedHeapAfterGc() - heapBefore; // the explicit GC is not counted
+        gcBefore = gcMillis() - gcScheduling;
+
+        long cancelStart = System.nanoTime();
+        for (int i = 0; i < timers; i += 2) {
+            futures.get(i + random.nextInt(2)).cancel(false);
+        }
+        long cancelled = System.nanoTime();
+        long gc = gcMillis() - gcBefore;
+        executor.shutdownNow();
+
+        if (report) {
+            System.out.printf("%-30s schedule %5.0f ns  cancel %5.0f ns  %21.1f bytes/timer  gc %5d ms%n",
+                    "ScheduledThreadPoolExecutor", (double) (scheduled - start) / timers,
+                    (double) (cancelled - cancelStart) / (timers / 2), (double) heap / timers, gc);
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+}
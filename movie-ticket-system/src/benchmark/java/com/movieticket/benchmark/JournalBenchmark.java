@@ -0,0 +1,150 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Showtime;
+import com.movieticket.service.OrderJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent ticket buyers committing orders to the OrderJournal with fsync,
+ * as the committer count doubles from 1 to 64.
+ *
+ * Each committer appends a sale and waits for it to be durable, over and
+ * over. With group commit, whoever finds the journal idle writes and forces
+ * everything appended so far, so one force covers many orders. For
+ * comparison the same journal is driven one order at a time behind a lock,
+ * which costs one force per order.
+ *
+ * Reports orders/s, p50 and p99 commit latency and the average number of
+ * orders per force. Segments go to a temporary directory that is deleted
+ * afterwards; put it on the disk you care about with -Djava.io.tmpdir.
+ *
+ * Usage: JournalBenchmark [seconds per run] [max committers]   (default: 2 64)
+ */
+public class JournalBenchmark {
+    private static final int[] SEATS = {0, 1, 2};
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int maxCommitters = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        System.out.printf("%d s per run, %d cores%n", seconds, Runtime.getRuntime().availableProcessors());
+
+        run(1, seconds, false, true); // warm-up
+        for (int committers = 1; committers <= maxCommitters; committers *= 2) {
+            run(committers, seconds, false, false);
+            run(committers, seconds, true, false);
+        }
+    }
+
+    private static void run(int committers, int seconds, boolean oneAtATime, boolean warmup) throws Exception {
+        Path directory = Files.createTempDirectory("order-journal");
+        try {
+            OrderJournal journal = new OrderJournal(directory, 64L << 20, true);
+            journal.replay(new IgnoreRecords());
+            Object lock = new Object();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            List<long[]> latencies = new ArrayList<>();
+            int[] counts = new int[committers];
+            CountDownLatch done = new CountDownLatch(committers);
+
+            for (int t = 0; t < committers; t++) {
+                int thread = t;
+                long[] mine = new long[1 << 16];
+                latencies.add(mine);
+                new Thread(() -> {
+                    try {
+                        int n = 0;
+                        while (System.nanoTime() < deadline) {
+                            long start = System.nanoTime();
+                            if (oneAtATime) {
+                                synchronized (lock) {
+                                    commitSale(journal, thread, n);
+                                }
+                            } else {
+                                commitSale(journal, thread, n);
+                            }
+                            if (n < mine.length) {
+                                mine[n] = System.nanoTime() - start;
+                            }
+                            n++;
+                        }
+                        counts[thread] = n;
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            done.await();
+
+            long orders = journal.getCommittedRecords();
+            long batches = journal.getBatches();
+            journal.close();
+            if (!warmup) {
+                long[] all = merge(latencies, counts);
+                System.out.printf("%-22s %2d committers  %,9.0f orders/s  p50 %7.2f ms  p99 %7.2f ms  %5.1f orders/force%n",
+                        oneAtATime ? "force per order" : "group commit", committers, (double) orders / seconds,
+                        percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, (double) orders / batches);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void commitSale(OrderJournal journal, int thread, int n) {
+        long seq = journal.appendSale(thread + "-" + n, "1", SEATS, 38.97, System.currentTimeMillis());
+        journal.commit(seq);
+    }
+
+    private static long[] merge(List<long[]> latencies, int[] counts) {
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += Math.min(counts[i], latencies.get(i).length);
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (int i = 0; i < counts.length; i++) {
+            int n = Math.min(counts[i], latencies.get(i).length);
+            System.arraycopy(latencies.get(i), 0, all, at, n);
+            at += n;
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * The journal starts empty; nothing to rebuild
+     */
+    private static class IgnoreRecords implements OrderJournal.Listener {
+        @Override
+        public void showtimeScheduled(Showtime showtime) {
+        }
+
+        @Override
+        public void seatsSold(String orderId, String showtimeId, int[] seats, double amount, long createdAt) {
+        }
+
+        @Override
+        public void orderRefunded(String orderId) {
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.movieticket.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.movieticket.model.Movie;
+import com.movieticket.server.LatencyHistogram;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for a running MovieTicketServer: a weighted mix of the movie
+ * routes, closed-loop or open-loop, with a latency percentile report.
+ *
+ *   closed loop: a fixed number of connections, each sending its next request
+ *                as soon as the last one is answered. Requests are sent
+ *                asynchronously, so thousands of connections need no thread
+ *                each. Shows capacity, but a
+ *                slow response also delays the requests behind it, so stalls
+ *                are under-reported (coordinated omission).
+ *   open loop:   requests are due at a constant rate whatever the server does,
+ *                and latency is measured from when a request was due, not
+ *                when it was finally sent. Shows what users at that arrival
+ *                rate would see.
+ *
+ * Writes only touch movies this run created, titled "[load test] ...", and
+ * whatever is left of them is deleted at the end.
+ *
+ * Usage: LoadGenerator [--url=http://localhost:8080] [--mode=closed|open]
+ *                      [--connections=16] [--rate=500] [--duration=30] [--warmup=5]
+ *                      [--mix=list:5,get:50,search:20,genre:15,create:4,update:4,delete:2]
+ *
+ * --rate applies to the open loop, where --connections caps requests in flight.
+ * Several connection counts (--connections=1000,10000) are run one after the
+ * other. The mix may also name static, which fetches /index.html.
+ */
+public class LoadGenerator {
+    private static final String DEFAULT_MIX = "list:5,get:50,search:20,genre:15,create:4,update:4,delete:2";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Operation { LIST, GET, SEARCH, GENRE, STATIC, CREATE, UPDATE, DELETE }
+
+    private final Gson gson = new Gson();
+    private final HttpClient client;
+    private final ExecutorService callbacks; // runs closed-loop completions, off the client's I/O threads
+    private final String url;
+    private final Operation[] wheel; // one entry per unit of weight
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> genres = new ArrayList<>();
+    private final List<String> words = new ArrayList<>();
+    private final ConcurrentLinkedQueue<String> created = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Latencies and errors of one phase, per operation
+     */
+    static class Stats {
+        final Map<Operation, LatencyHistogram> latency = new LinkedHashMap<>();
+        final Map<Operation, LongAdder> errors = new LinkedHashMap<>();
+        final LatencyHistogram all = new LatencyHistogram();
+        final LongAdder allErrors = new LongAdder();
+        double seconds;
+
+        Stats() {
+            for (Operation operation : Operation.values()) {
+                latency.put(operation, new LatencyHistogram());
+                errors.put(operation, new LongAdder());
+            }
+        }
+
+        void record(Operation operation, long nanos, boolean failed) {
+            latency.get(operation).record(nanos);
+            all.record(nanos);
+            if (failed) {
+                errors.get(operation).increment();
+                allErrors.increment();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("url", "http://localhost:8080");
+        options.put("mode", "closed");
+        options.put("connections", "16");
+        options.put("rate", "500");
+        options.put("duration", "30");
+        options.put("warmup", "5");
+        options.put("mix", DEFAULT_MIX);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+            if (name == null || !options.containsKey(name)) {
+                System.err.println("Unknown option: " + arg);
+                System.err.println("Options: --url= --mode=closed|open --connections= --rate= --duration= --warmup= --mix=");
+                System.exit(1);
+            }
+            options.put(name, arg.substring(equals + 1));
+        }
+
+        String mode = options.get("mode");
+        if (!mode.equals("closed") && !mode.equals("open")) {
+            throw new IllegalArgumentException("--mode must be closed or open");
+        }
+        double rate = Double.parseDouble(options.get("rate"));
+        int duration = Integer.parseInt(options.get("duration"));
+        int warmup = Integer.parseInt(options.get("warmup"));
+
+        LoadGenerator generator = new LoadGenerator(options.get("url"), options.get("mix"));
+        generator.discover();
+        try {
+            for (String connections : options.get("connections").split(",")) {
+                int count = Integer.parseInt(connections.trim());
+                if (mode.equals("open")) {
+                    System.out.printf("%nOpen loop at %.0f requests/s (at most %d in flight) against %s%n",
+                            rate, count, options.get("url"));
+                } else {
+                    System.out.printf("%nClosed loop with %d connections against %s%n", count, options.get("url"));
+                }
+                System.out.printf("Mix %s; %ds warm-up, %ds measured%n", options.get("mix"), warmup, duration);
+                report(generator.measure(mode, count, rate, warmup, duration));
+            }
+        } finally {
+            generator.cleanUp();
+        }
+    }
+
+    LoadGenerator(String url, String mix) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.wheel = parseMix(mix);
+        this.callbacks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "load-callbacks");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Parse "get:50,search:20" into a lookup table of operations by weight
+     */
+    private static Operation[] parseMix(String mix) {
+        List<Operation> table = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split(":");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like get:50, not " + part);
+            }
+            Operation operation = Operation.valueOf(nameAndWeight[0].trim().toUpperCase());
+            for (int i = Integer.parseInt(nameAndWeight[1].trim()); i > 0; i--) {
+                table.add(operation);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no weight");
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    /**
+     * Learn the movie ids, genres and title words to ask for
+     */
+    void discover() throws Exception {
+        HttpResponse<String> movies = client.send(get("/api/movies"), HttpResponse.BodyHandlers.ofString());
+        if (movies.statusCode() != 200) {
+            throw new IllegalStateException("GET /api/movies returned " + movies.statusCode());
+        }
+        for (JsonElement movie : JsonParser.parseString(movies.body()).getAsJsonArray()) {
+            ids.add(movie.getAsJsonObject().get("id").getAsString());
+            String title = movie.getAsJsonObject().get("title").getAsString();
+            words.add(title.split(" ")[0].toLowerCase());
+        }
+        HttpResponse<String> genreList = client.send(get("/api/genres"), HttpResponse.BodyHandlers.ofString());
+        JsonArray array = JsonParser.parseString(genreList.body()).getAsJsonArray();
+        array.forEach(genre -> genres.add(genre.getAsString()));
+        if (ids.isEmpty() || genres.isEmpty()) {
+            throw new IllegalStateException("The server has no movies to load test with");
+        }
+        System.out.printf("Found %,d movies and %d genres at %s%n", ids.size(), genres.size(), url);
+    }
+
+    /**
+     * Warm up, then run one measured phase
+     */
+    Stats measure(String mode, int connections, double rate, int warmup, int duration) throws InterruptedException {
+        if (warmup > 0) {
+            run(mode, connections, rate, warmup, new Stats());
+        }
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        run(mode, connections, rate, duration, stats);
+        stats.seconds = (System.nanoTime() - start) / 1e9;
+        return stats;
+    }
+
+    private void run(String mode, int connections, double rate, int seconds, Stats stats) throws InterruptedException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        if (mode.equals("open")) {
+            openLoop(rate, connections, end, stats);
+        } else {
+            closedLoop(connections, end, stats);
+        }
+    }
+
+    /**
+     * Each connection sends its next request when the last one is answered
+     */
+    private void closedLoop(int connections, long end, Stats stats) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            sendNext(end, stats, finished);
+        }
+        finished.await();
+    }
+
+    /**
+     * Send one closed-loop request and chain the connection's next one to its
+     * response, until the phase ends
+     */
+    private void sendNext(long end, Stats stats, CountDownLatch finished) {
+        if (System.nanoTime() >= end) {
+            finished.countDown();
+            return;
+        }
+        Operation operation = pick();
+        HttpRequest request = request(operation);
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenCompleteAsync((response, error) -> {
+            stats.record(operation, System.nanoTime() - start, error != null || failed(response));
+            completed(operation, request, error == null ? response : null);
+            sendNext(end, stats, finished);
+        }, callbacks);
+    }
+
+    /**
+     * Send requests on a fixed schedule and time each from when it was due.
+     * When maxInFlight requests are outstanding, later ones wait for a slot,
+     * and that wait counts towards their latency.
+     */
+    private void openLoop(double rate, int maxInFlight, long end, Stats stats) {
+        Semaphore slots = new Semaphore(maxInFlight);
+        long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * 1e9 / rate);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            slots.acquireUninterruptibly();
+            Operation operation = pick();
+            HttpRequest request = request(operation);
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                stats.record(operation, System.nanoTime() - due, error != null || failed(response));
+                completed(operation, request, error == null ? response : null);
+                slots.release();
+            });
+        }
+        slots.acquireUninterruptibly(maxInFlight); // let the last requests finish
+    }
+
+    private Operation pick() {
+        Operation operation = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+        if ((operation == Operation.UPDATE || operation == Operation.DELETE) && created.isEmpty()) {
+            return Operation.CREATE; // nothing of ours to change yet
+        }
+        return operation;
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case LIST:
+                return get("/api/movies");
+            case GET:
+                return get("/api/movies/" + ids.get(random.nextInt(ids.size())));
+            case SEARCH:
+                return get("/api/movies/search/" + encode(words.get(random.nextInt(words.size()))));
+            case GENRE:
+                return get("/api/movies/genre/" + encode(genres.get(random.nextInt(genres.size()))));
+            case STATIC:
+                return get("/index.html");
+            case CREATE:
+                return send("POST", "/api/movies", newMovie(""));
+            case UPDATE:
+            case DELETE:
+                // Taken out of the pool while in flight, so no two requests change one movie
+                String id = created.poll();
+                if (id == null) {
+                    return send("POST", "/api/movies", newMovie(""));
+                }
+                return operation == Operation.UPDATE
+                        ? send("PUT", "/api/movies/" + id, newMovie(id))
+                        : delete(id);
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * Keep track of the movies this run created
+     */
+    private void completed(Operation operation, HttpRequest request, HttpResponse<String> response) {
+        String path = request.uri().getPath();
+        if (request.method().equals("POST") && response != null && response.statusCode() == 201) {
+            created.add(JsonParser.parseString(response.body()).getAsJsonObject().get("id").getAsString());
+        } else if (request.method().equals("PUT")) {
+            created.add(path.substring(path.lastIndexOf('/') + 1)); // back in the pool, updated or not
+        } else if (request.method().equals("DELETE") && (response == null || response.statusCode() >= 500)) {
+            created.add(path.substring(path.lastIndexOf('/') + 1)); // try again at clean-up
+        }
+    }
+
+    void cleanUp() {
+        int deleted = 0;
+        for (String id = created.poll(); id != null; id = created.poll()) {
+            try {
+                client.send(delete(id), HttpResponse.BodyHandlers.discarding());
+                deleted++;
+            } catch (Exception e) {
+                System.err.println("Could not delete load test movie " + id + ": " + e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            System.out.printf("Deleted %d movies created by the load test%n", deleted);
+        }
+    }
+
+    private static boolean failed(HttpResponse<?> response) {
+        return response.statusCode() >= 400;
+    }
+
+    static void report(Stats stats) {
+        double seconds = stats.seconds;
+        System.out.printf("%n%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot latency = stats.latency.get(operation).snapshot();
+            if (latency.getCount() > 0) {
+                row(operation.name().toLowerCase(), latency, stats.errors.get(operation).sum(), seconds);
+            }
+        }
+        row("all", stats.all.snapshot(), stats.allErrors.sum(), seconds);
+    }
+
+    private static void row(String name, LatencyHistogram.Snapshot latency, long errors, double seconds) {
+        System.out.printf("%-8s %,10d %,8d %,10.1f", name, latency.getCount(), errors, latency.getCount() / seconds);
+        for (double quantile : QUANTILES) {
+            System.out.printf(" %9.2f", latency.getValueAt(quantile) / 1e6);
+        }
+        System.out.printf(" %9.2f%n", latency.getMax() / 1e6);
+    }
+
+    private Movie newMovie(String id) {
+        Movie movie = SyntheticCatalog.movie(id, new Random(ThreadLocalRandom.current().nextLong()));
+        movie.setTitle("[load test] " + movie.getTitle());
+        return movie;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(url + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest delete(String id) {
+        return HttpRequest.newBuilder(URI.create(url + "/api/movies/" + id)).timeout(Duration.ofSeconds(30)).DELETE().build();
+    }
+
+    private HttpRequest send(String method, String path, Movie movie) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(gson.toJson(movie)))
+                .build();
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
@@ -0,0 +1,65 @@
+package com.movieticket.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.movieticket.model.Movie;
+import com.movieticket.service.MovieJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of turning Movie lists into JSON: Gson.toJson, as most
+ * routes do, and the streaming MovieJsonWriter that GET /api/movies uses,
+ * both into a String.
+ *
+ * mvn -Pbenchmark compile exec:exec@jmh -Djmh.args="MovieJsonJmh"
+ * mvn -Pbenchmark,alloc compile exec:exec@jmh -Djmh.args="MovieJsonJmh"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieJsonJmh {
+    @Param({"10", "100", "1000"})
+    public int listSize;
+
+    private final Gson gson = new Gson();
+    private final MovieJsonWriter writer = MovieJsonWriter.allFields();
+    private List<Movie> movies;
+
+    @Setup
+    public void generate() {
+        movies = SyntheticCatalog.generate(listSize, 42);
+    }
+
+    @Benchmark
+    public String gsonToJson() {
+        return gson.toJson(movies);
+    }
+
+    @Benchmark
+    public String movieJsonWriter() throws IOException {
+        StringWriter out = new StringWriter(listSize * 400);
+        JsonWriter json = new JsonWriter(out);
+        json.setHtmlSafe(true); // escape like Gson does
+        writer.writeAll(json, movies);
+        json.flush();
+        return out.toString();
+    }
+}
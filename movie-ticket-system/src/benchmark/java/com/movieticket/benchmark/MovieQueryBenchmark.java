@@ -0,0 +1,101 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Movie;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieQuery;
+import com.movieticket.service.MovieService;
+import com.movieticket.service.QueryResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Compares attribute queries through the AttributeIndex planner with a full
+ * scan, filter and sort of the catalog.
+ *
+ * Usage: MovieQueryBenchmark [size ...]   (default: 100000 1000000)
+ */
+public class MovieQueryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {100_000, 1_000_000};
+
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws IOException, InterruptedException {
+        Path file = Files.createTempFile("movies-" + size + "-", ".json");
+        file.toFile().deleteOnExit();
+        SyntheticCatalog.writeJson(file, size, 42);
+        MovieService service = new MovieService(new JsonCatalogFile(file.toString()), null);
+        while (!service.isSearchIndexReady()) {
+            Thread.sleep(10);
+        }
+
+        String[] names = {
+            "top 20 rated dramas after 2015 under $12",
+            "cheapest 10 short films",
+            "newest 50 rated 9.5+",
+            "longest 20 comedies from the 1990s",
+            "top 20 rated overall"
+        };
+        MovieQuery[] queries = {
+            new MovieQuery().setGenre("Drama").setMin(MovieQuery.Field.RELEASE_YEAR, 2016)
+                    .setMax(MovieQuery.Field.PRICE, 12),
+            new MovieQuery().setMax(MovieQuery.Field.DURATION, 85).setSortBy(MovieQuery.Field.PRICE)
+                    .setDescending(false).setLimit(10),
+            new MovieQuery().setMin(MovieQuery.Field.RATING, 9.5).setSortBy(MovieQuery.Field.RELEASE_YEAR)
+                    .setLimit(50),
+            new MovieQuery().setGenre("Comedy").setMin(MovieQuery.Field.RELEASE_YEAR, 1990)
+                    .setMax(MovieQuery.Field.RELEASE_YEAR, 1999).setSortBy(MovieQuery.Field.DURATION),
+            new MovieQuery()
+        };
+
+        System.out.printf("%n%,d movies%n", size);
+        System.out.printf("%-42s %-48s %12s %12s %8s%n", "query", "plan", "scan us/op", "index us/op", "speedup");
+        for (int i = 0; i < queries.length; i++) {
+            MovieQuery query = queries[i];
+            QueryResult result = service.queryMovies(query);
+            if (!scan(service, query).equals(result.getMovies())) {
+                throw new IllegalStateException("Index and scan disagree for '" + names[i] + "'");
+            }
+
+            int iterations = Math.max(10, 5_000_000 / size);
+            double scanMicros = time(() -> scan(service, query), iterations);
+            double indexMicros = time(() -> service.queryMovies(query), iterations * 100);
+            System.out.printf("%-42s %-48s %12.1f %12.1f %7.0fx%n",
+                    names[i], result.getPlan(), scanMicros, indexMicros, scanMicros / indexMicros);
+        }
+        service.close();
+    }
+
+    /**
+     * Filter, sort and limit the whole catalog
+     */
+    private static List<Movie> scan(MovieService service, MovieQuery query) {
+        return service.getSnapshot().getMovies().stream()
+                .filter(query::matches)
+                .sorted(query.resultOrder())
+                .limit(query.getLimit())
+                .collect(Collectors.toList());
+    }
+
+    private static double time(Supplier<?> query, int iterations) {
+        for (int i = 0; i < iterations / 4 + 1; i++) {
+            query.get(); // warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+}
@@ -0,0 +1,162 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Movie;
+import com.movieticket.service.CatalogChange;
+import com.movieticket.service.CatalogPersistence;
+import com.movieticket.service.CatalogSnapshot;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the MovieService read paths and createMovie on synthetic
+ * catalogs of several sizes, once the search indexes are built.
+ *
+ * Each invocation picks the next id, title fragment or genre from a fixed
+ * rotation so results are not one lucky cache line. createMovie runs against
+ * a persistence strategy that stores nothing, so it measures the in-memory
+ * copy-on-write publish and index updates rather than the disk.
+ *
+ * mvn -Pbenchmark compile exec:exec@jmh -Djmh.args="MovieServiceJmh"
+ * mvn -Pbenchmark,alloc compile exec:exec@jmh -Djmh.args="MovieServiceJmh -p catalogSize=10000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieServiceJmh {
+    private static final String[] TITLE_QUERIES = {"dark", "knight", "star kingdom", "frozen e", "ghost", "xyz"};
+    private static final String[] GENRES = {"Action", "Drama", "sci-fi", "Documentary", "Western"};
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private Path file;
+    private MovieService service;
+    private String[] ids;
+    private int next;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() throws Exception {
+        // MovieService logs every load and create; keep the JMH output readable
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        file = Files.createTempFile("movies-" + catalogSize + "-", ".json");
+        SyntheticCatalog.writeJson(file, catalogSize, 42);
+        service = new MovieService(new JsonCatalogFile(file.toString()), new InMemoryPersistence());
+        awaitIndexes();
+
+        Random random = new Random(7);
+        ids = new String[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = String.valueOf(1 + random.nextInt(catalogSize));
+        }
+    }
+
+    /**
+     * Start every iteration from the generated catalog, so createMovie does
+     * not grow it without bound
+     */
+    @Setup(Level.Iteration)
+    public void resetCatalog() throws InterruptedException {
+        if (service.getSnapshot().size() != catalogSize) {
+            service.reloadMovies();
+            awaitIndexes();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        service.close();
+        Files.deleteIfExists(file);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public Movie getMovieById() {
+        return service.getMovieById(ids[next++ & (ids.length - 1)]);
+    }
+
+    @Benchmark
+    public List<Movie> searchMoviesByTitle() {
+        return service.searchMoviesByTitle(TITLE_QUERIES[next++ % TITLE_QUERIES.length]);
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesByGenre() {
+        return service.getMoviesByGenre(GENRES[next++ % GENRES.length]);
+    }
+
+    @Benchmark
+    public List<String> getAllGenres() {
+        return service.getAllGenres();
+    }
+
+    @Benchmark
+    public Movie createMovie() {
+        Movie movie = new Movie(null, "Benchmark Premiere " + next++, "Drama", "Ava Chen", 2026, 118, 7.5,
+                "A new release.", Collections.singletonList("Liam Novak"), "", 12.5);
+        return service.createMovie(movie);
+    }
+
+    private void awaitIndexes() throws InterruptedException {
+        while (!service.isSearchIndexReady()) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Keeps changes in memory only
+     */
+    private static class InMemoryPersistence implements CatalogPersistence {
+        @Override
+        public List<CatalogChange> recover() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void onLoad(CatalogSnapshot loaded) {
+        }
+
+        @Override
+        public void onPublish(CatalogSnapshot published, List<CatalogChange> changes) {
+        }
+
+        @Override
+        public void awaitDurable(long version) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Movie;
+import com.movieticket.service.ImportResult;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieNdjson;
+import com.movieticket.service.MovieService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Measures NDJSON export and import throughput the way the export and import
+ * endpoints use them: export writes a catalog to a stream, import upserts a
+ * stream of records into a MovieService (with synchronous persistence, so the
+ * final save is included).
+ *
+ * Export also reports how much heap is allocated per movie, to show the
+ * output is streamed rather than built up in memory.
+ *
+ * Usage: NdjsonBenchmark [movies]   (default: 1000000)
+ */
+public class NdjsonBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Movie> movies = SyntheticCatalog.generate(size, 42);
+        Path feed = Files.createTempFile("movies-", ".ndjson");
+        feed.toFile().deleteOnExit();
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.printf("%nRound %d, %,d movies%n", round, size);
+            exportTo(feed, movies);
+            importFrom(feed, size);
+        }
+    }
+
+    private static void exportTo(Path feed, List<Movie> movies) throws IOException {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try (Writer out = Files.newBufferedWriter(feed, StandardCharsets.UTF_8)) {
+            MovieNdjson.write(movies, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("export  %,10.0f movies/s  %,8d MB  %6.0f bytes allocated/movie%n",
+                movies.size() / seconds, Files.size(feed) >> 20, (double) allocated / movies.size());
+    }
+
+    private static void importFrom(Path feed, int size) throws IOException {
+        Path catalog = Files.createTempFile("movies-import-", ".json");
+        catalog.toFile().deleteOnExit();
+        Files.write(catalog, "[]".getBytes(StandardCharsets.UTF_8));
+        MovieService service = new MovieService(new JsonCatalogFile(catalog.toString()), null);
+
+        long start = System.nanoTime();
+        ImportResult result;
+        try (BufferedReader in = Files.newBufferedReader(feed, StandardCharsets.UTF_8)) {
+            result = service.importMovies(MovieNdjson.read(in));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!result.isComplete() || result.getCreated() != size) {
+            throw new IllegalStateException("Import failed: " + result.getError());
+        }
+        System.out.printf("import  %,10.0f movies/s  (including the final save)%n", size / seconds);
+        service.close();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
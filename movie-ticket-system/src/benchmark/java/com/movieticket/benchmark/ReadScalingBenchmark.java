@@ -0,0 +1,163 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Movie;
+import com.movieticket.service.CatalogChange;
+import com.movieticket.service.CatalogPersistence;
+import com.movieticket.service.CatalogSnapshot;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieService;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows that MovieService reads scale with reader threads because readers
+ * never lock: read throughput with 1, 2, 4, ... reader threads, first alone
+ * and then while a writer updates movies as fast as it can.
+ *
+ * A read is one lookup by id plus one title search. Changes are kept in
+ * memory, so the writer is limited by publishing snapshots, not by disk.
+ *
+ * Usage: ReadScalingBenchmark [catalog size] [seconds per run]   (default: 10000 2)
+ */
+public class ReadScalingBenchmark {
+    private static final String[] QUERIES = {"knight", "shadow", "mirror", "city", "river"};
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path file = Files.createTempFile("movies-" + size + "-", ".json");
+        file.toFile().deleteOnExit();
+        SyntheticCatalog.writeJson(file, size, 42);
+        MovieService service = new MovieService(new JsonCatalogFile(file.toString()), new InMemoryPersistence());
+        while (!service.isSearchIndexReady()) {
+            Thread.sleep(10);
+        }
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // updateMovie logs each change
+        try {
+            run(service, size, 1, seconds, false); // warm up
+            console.printf("%,d movies, %d cores%n", size, cores);
+            console.printf("%8s %16s %9s %16s %9s %14s%n",
+                    "readers", "reads/s alone", "scaling", "reads/s + writer", "scaling", "writes/s");
+            long[] base = null;
+            for (int readers = 1; readers <= 2 * cores; readers *= 2) {
+                long[] alone = run(service, size, readers, seconds, false);
+                long[] contended = run(service, size, readers, seconds, true);
+                if (base == null) {
+                    base = new long[] {alone[0], contended[0]};
+                }
+                console.printf("%8d %,16d %8.1fx %,16d %8.1fx %,14d%n", readers,
+                        alone[0], (double) alone[0] / base[0],
+                        contended[0], (double) contended[0] / base[1], contended[1]);
+            }
+        } finally {
+            System.setOut(console);
+            service.close();
+        }
+    }
+
+    /**
+     * @return {reads per second, writes per second}
+     */
+    private static long[] run(MovieService service, int size, int readers, int seconds, boolean withWriter)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                await(start);
+                while (running.get()) {
+                    Movie movie = service.getMovieById(String.valueOf(1 + random.nextInt(size)));
+                    if (movie == null) {
+                        throw new IllegalStateException("Lost a movie");
+                    }
+                    service.searchMoviesByTitle(QUERIES[random.nextInt(QUERIES.length)]);
+                    count++;
+                }
+                reads.addAndGet(count);
+            }));
+        }
+        if (withWriter) {
+            threads.add(new Thread(() -> {
+                Random random = new Random(7);
+                long count = 0;
+                await(start);
+                while (running.get()) {
+                    String id = String.valueOf(1 + random.nextInt(size));
+                    service.updateMovie(id, SyntheticCatalog.movie(id, random));
+                    count++;
+                }
+                writes.addAndGet(count);
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - begin;
+        return new long[] {reads.get() * 1_000_000_000L / nanos, writes.get() * 1_000_000_000L / nanos};
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Keeps changes in memory only
+     */
+    private static class InMemoryPersistence implements CatalogPersistence {
+        @Override
+        public List<CatalogChange> recover() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void onLoad(CatalogSnapshot loaded) {
+        }
+
+        @Override
+        public void onPublish(CatalogSnapshot published, List<CatalogChange> changes) {
+        }
+
+        @Override
+        public void awaitDurable(long version) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.server.LatencyHistogram;
+import com.movieticket.server.RouteStats;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cost of the per-request bookkeeping RouteMetrics adds to every route: two
+ * System.nanoTime calls around the handler and one RouteStats.record (latency
+ * histogram, error and byte counters, per-second rate slot).
+ *
+ * Runs it on one thread and on many threads sharing one route, the worst case
+ * for contention, and subtracts the same loop without timing or recording.
+ * The budget is well under a microsecond per request. Also checks the
+ * histogram's percentiles against exact ones from a sorted sample.
+ *
+ * Usage: RouteMetricsBenchmark [threads] [requests per thread]   (default: 8 5000000)
+ */
+public class RouteMetricsBenchmark {
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        System.out.printf("%,d requests per thread, %d cores%n", requests, Runtime.getRuntime().availableProcessors());
+
+        checkAccuracy();
+        for (int round = 0; round < 3; round++) {
+            boolean report = round > 0;
+            for (int n : new int[]{1, threads}) {
+                double baseline = run(n, requests, false);
+                double recorded = run(n, requests, true);
+                if (report) {
+                    System.out.printf("%2d thread(s): %6.1f ns per request with metrics, %6.1f ns without, overhead %6.1f ns%n",
+                            n, recorded, baseline, recorded - baseline);
+                }
+            }
+        }
+    }
+
+    /**
+     * Average ns per simulated request across all threads' wall-clock time
+     */
+    private static double run(int threads, int requests, boolean record) throws Exception {
+        RouteStats stats = new RouteStats("GET", "/api/movies/:id");
+        long origin = System.nanoTime();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    long local = 0;
+                    for (int i = 0; i < requests; i++) {
+                        if (record) {
+                            long begin = System.nanoTime();
+                            local += i; // the "handler"
+                            long end = System.nanoTime();
+                            stats.record(end - begin, (i & 63) == 0 ? 404 : 200, 512, (end - origin) / 1_000_000_000L);
+                        } else {
+                            local += i;
+                        }
+                    }
+                    sink += local;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - began;
+        if (record && stats.getLatency().getCount() != (long) threads * requests) {
+            throw new IllegalStateException("Lost updates: " + stats.getLatency().getCount());
+        }
+        // Per request on one core's worth of time, so threads on few cores are comparable
+        int cores = Math.min(threads, Runtime.getRuntime().availableProcessors());
+        return (double) elapsed * cores / ((long) threads * requests);
+    }
+
+    /**
+     * Compare histogram percentiles with exact ones on a long-tailed sample
+     */
+    private static void checkAccuracy() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[1_000_000];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal-ish: mostly tens of microseconds, a tail into milliseconds
+            values[i] = (long) (20_000 * Math.exp(random.nextGaussian() * 1.2));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        double worst = 0;
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long reported = snapshot.getValueAt(q);
+            worst = Math.max(worst, Math.abs(reported - exact) / (double) exact);
+            System.out.printf("p%-5s exact %,12d ns  histogram %,12d ns%n",
+                    String.valueOf(q * 100).replace(".0", ""), exact, reported);
+        }
+        System.out.printf("worst relative error %.2f%%%n", worst * 100);
+    }
+}
@@ -0,0 +1,249 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.service.SeatInventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hammers a single sold-out-in-seconds showtime (26 rows of 40 seats) with
+ * concurrent buyers, each trying to claim 1-4 adjacent seats at random.
+ *
+ * Every claimed seat is also recorded in an owner array with compare-and-set,
+ * so a seat granted to two buyers at once fails the run. Two phases:
+ *
+ *   sell-out: buyers claim until the showtime is full, many rounds; checks
+ *             that every seat ends up with exactly one owner
+ *   churn:    buyers claim and immediately release for a fixed time, to
+ *             measure claim throughput under contention
+ *
+ * Both run against SeatInventory and against the same bitset behind one
+ * lock, for comparison.
+ *
+ * Usage: SeatClaimBenchmark [buyers] [seconds]   (default: 64 3)
+ */
+public class SeatClaimBenchmark {
+    private static final int ROWS = 26;
+    private static final int SEATS_PER_ROW = 40;
+
+    /**
+     * The claim operations the benchmark exercises
+     */
+    private interface Seats {
+        boolean claim(int[] seats);
+
+        void release(int[] seats);
+
+        int available();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int buyers = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        System.out.printf("%d buyers, %d seats, %d cores%n", buyers, ROWS * SEATS_PER_ROW,
+                Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < 2; round++) {
+            boolean warmup = round == 0;
+            report("sell-out, compare-and-set", sellOut(buyers, SeatClaimBenchmark::lockFree), warmup);
+            report("sell-out, one lock", sellOut(buyers, LockedSeats::new), warmup);
+            report("churn, compare-and-set", churn(buyers, seconds, lockFree()), warmup);
+            report("churn, one lock", churn(buyers, seconds, new LockedSeats()), warmup);
+        }
+    }
+
+    private static void report(String name, long[] result, boolean warmup) {
+        if (!warmup) {
+            System.out.printf("%-28s %,12d claims/s (%,d granted of %,d attempts)%n",
+                    name, result[1] * 1_000_000_000L / result[0], result[2], result[1]);
+        }
+    }
+
+    /**
+     * Sell the showtime out 200 times; returns {nanos, attempts, granted}
+     */
+    private static long[] sellOut(int buyers, Supplier<Seats> factory) throws InterruptedException {
+        long nanos = 0;
+        long attempts = 0;
+        long granted = 0;
+        for (int round = 0; round < 200; round++) {
+            Seats seats = factory.get();
+            AtomicIntegerArray owners = new AtomicIntegerArray(ROWS * SEATS_PER_ROW);
+            AtomicLong attemptCount = new AtomicLong();
+            AtomicLong grantedCount = new AtomicLong();
+            nanos += runBuyers(buyers, buyer -> {
+                long tries = 0;
+                long won = 0;
+                while (seats.available() > 0) {
+                    int[] wanted = pick();
+                    tries++;
+                    if (seats.claim(wanted)) {
+                        won++;
+                        own(owners, wanted, buyer + 1);
+                    }
+                }
+                attemptCount.addAndGet(tries);
+                grantedCount.addAndGet(won);
+            });
+            for (int i = 0; i < owners.length(); i++) {
+                if (owners.get(i) == 0) {
+                    throw new IllegalStateException("Seat " + i + " is taken but has no owner");
+                }
+            }
+            attempts += attemptCount.get();
+            granted += grantedCount.get();
+        }
+        return new long[]{nanos, attempts, granted};
+    }
+
+    /**
+     * Claim and release for a while; returns {nanos, attempts, granted}
+     */
+    private static long[] churn(int buyers, int seconds, Seats seats) throws InterruptedException {
+        AtomicIntegerArray owners = new AtomicIntegerArray(ROWS * SEATS_PER_ROW);
+        AtomicLong attemptCount = new AtomicLong();
+        AtomicLong grantedCount = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long nanos = runBuyers(buyers, buyer -> {
+            long tries = 0;
+            long won = 0;
+            while ((tries & 255) != 0 || System.nanoTime() < deadline) {
+                int[] wanted = pick();
+                tries++;
+                if (seats.claim(wanted)) {
+                    won++;
+                    own(owners, wanted, buyer + 1);
+                    for (int seat : wanted) {
+                        owners.set(seat, 0);
+                    }
+                    seats.release(wanted);
+                }
+            }
+            attemptCount.addAndGet(tries);
+            grantedCount.addAndGet(won);
+        });
+        return new long[]{nanos, attemptCount.get(), grantedCount.get()};
+    }
+
+    private static void own(AtomicIntegerArray owners, int[] seats, int buyer) {
+        for (int seat : seats) {
+            if (!owners.compareAndSet(seat, 0, buyer)) {
+                throw new IllegalStateException("Seat " + seat + " double-booked by buyers "
+                        + owners.get(seat) + " and " + buyer);
+            }
+        }
+    }
+
+    /**
+     * 1-4 adjacent seats in one row
+     */
+    private static int[] pick() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = 1 + random.nextInt(4);
+        int row = random.nextInt(ROWS);
+        int first = random.nextInt(SEATS_PER_ROW - count + 1);
+        int[] seats = new int[count];
+        for (int i = 0; i < count; i++) {
+            seats[i] = row * SEATS_PER_ROW + first + i;
+        }
+        return seats;
+    }
+
+    private interface Buyer {
+        void run(int buyer);
+    }
+
+    /**
+     * Start every buyer at once and wait for all of them; returns elapsed nanos
+     */
+    private static long runBuyers(int buyers, Buyer body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            int buyer = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(buyer);
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(failures.get(0));
+        }
+        return elapsed;
+    }
+
+    private static Seats lockFree() {
+        SeatInventory inventory = new SeatInventory(ROWS, SEATS_PER_ROW);
+        return new Seats() {
+            @Override
+            public boolean claim(int[] seats) {
+                return inventory.claim(seats);
+            }
+
+            @Override
+            public void release(int[] seats) {
+                inventory.release(seats);
+            }
+
+            @Override
+            public int available() {
+                return inventory.available();
+            }
+        };
+    }
+
+    /**
+     * The same bitset guarded by a single monitor
+     */
+    private static final class LockedSeats implements Seats {
+        private final long[] taken = new long[(ROWS * SEATS_PER_ROW + 63) >>> 6];
+        private int free = ROWS * SEATS_PER_ROW;
+
+        @Override
+        public synchronized boolean claim(int[] seats) {
+            for (int seat : seats) {
+                if ((taken[seat >>> 6] & (1L << seat)) != 0) {
+                    return false;
+                }
+            }
+            for (int seat : seats) {
+                taken[seat >>> 6] |= 1L << seat;
+            }
+            free -= seats.length;
+            return true;
+        }
+
+        @Override
+        public synchronized void release(int[] seats) {
+            for (int seat : seats) {
+                taken[seat >>> 6] &= ~(1L << seat);
+            }
+            free += seats.length;
+        }
+
+        @Override
+        public synchronized int available() {
+            return free;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.movieticket.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.movieticket.model.Movie;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible, realistic-looking movie catalogs of any size for benchmarks.
+ * The same seed always produces the same catalog.
+ */
+public final class SyntheticCatalog {
+    private static final String[] WORDS = {
+        "Dark", "Night", "Star", "Last", "Lost", "City", "Dream", "Storm", "Iron", "Silent",
+        "Golden", "Shadow", "River", "Fire", "Ghost", "Empire", "Winter", "Secret", "Wild", "Broken",
+        "Hidden", "Crimson", "Eternal", "Frozen", "Final", "Electric", "Savage", "Midnight", "Glass", "Paper"
+    };
+    private static final String[] NOUNS = {
+        "Knight", "Journey", "Kingdom", "Code", "Horizon", "Legacy", "Protocol", "Garden", "Signal", "Island",
+        "Machine", "Promise", "Frontier", "Echo", "Tide", "Valley", "Heart", "Mirror", "Road", "Voyage"
+    };
+    private static final String[] GENRES = {
+        "Action", "Drama", "Comedy", "Sci-Fi", "Thriller", "Horror", "Romance", "Animation",
+        "Documentary", "Crime", "Fantasy", "Adventure"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Ava", "Liam", "Maya", "Noah", "Iris", "Omar", "Lena", "Hugo", "Zoe", "Ravi", "Nina", "Theo"
+    };
+    private static final String[] LAST_NAMES = {
+        "Nolan", "Chen", "Garcia", "Okafor", "Novak", "Silva", "Kowalski", "Tanaka", "Moreau", "Haddad"
+    };
+
+    private SyntheticCatalog() {
+    }
+
+    /**
+     * Generate count movies with ids "1".."count"
+     */
+    public static List<Movie> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            movies.add(movie(String.valueOf(i), random));
+        }
+        return movies;
+    }
+
+    /**
+     * Generate one random movie with the given id
+     */
+    public static Movie movie(String id, Random random) {
+        String title = pick(WORDS, random) + " " + pick(NOUNS, random)
+                + (random.nextInt(4) == 0 ? " " + (2 + random.nextInt(4)) : "");
+        List<String> cast = Arrays.asList(person(random), person(random), person(random));
+        return new Movie(id, title, pick(GENRES, random), person(random),
+                1970 + random.nextInt(56), 80 + random.nextInt(100),
+                Math.round((3 + random.nextDouble() * 7) * 10) / 10.0,
+                "A " + pick(WORDS, random).toLowerCase() + " story about a " + pick(NOUNS, random).toLowerCase()
+                        + " and the people who chase it across a " + pick(WORDS, random).toLowerCase() + " world.",
+                cast, "", Math.round((7 + random.nextDouble() * 10) * 100) / 100.0);
+    }
+
+    /**
+     * Write a generated catalog straight to a movies.json-style file without
+     * holding it in memory
+     */
+    public static void writeJson(Path file, int count, long seed) throws IOException {
+        Gson gson = new Gson();
+        Random random = new Random(seed);
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (int i = 1; i <= count; i++) {
+                gson.toJson(movie(String.valueOf(i), random), Movie.class, writer);
+            }
+            writer.endArray();
+        }
+    }
+
+    private static String person(Random random) {
+        return pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random);
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
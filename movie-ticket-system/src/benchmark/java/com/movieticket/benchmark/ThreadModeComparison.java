@@ -0,0 +1,209 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.server.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput and tail latency of the server with request handlers on the
+ * platform thread pool vs. one virtual thread per request
+ * (-Dmovieticket.threads), at 1,000 and 10,000 concurrent connections.
+ *
+ * Starts a MovieTicketServer on port 8080 for each mode, in a scratch copy of
+ * the catalog and static files so the real movies.json is never written, and
+ * drives it with the LoadGenerator closed loop. The default mix adds static
+ * files and more writes to the usual one, since those are the routes that
+ * block on file I/O. Virtual threads need the server to run on Java 21 or
+ * later (--java); on older JVMs the virtual run falls back to the platform
+ * pool and is labelled so.
+ *
+ * Usage: ThreadModeComparison [--modes=platform,virtual] [--connections=1000,10000]
+ *                             [--duration=20] [--warmup=5] [--maxThreads=200]
+ *                             [--mix=...] [--java=path/to/java]
+ */
+public class ThreadModeComparison {
+    private static final String URL = "http://localhost:8080";
+    private static final String DEFAULT_MIX = "list:5,get:40,search:15,genre:10,static:10,create:8,update:8,delete:4";
+    private static final String SERVER_CLASS = "com.movieticket.server.MovieTicketServer";
+
+    private static final HttpClient HEALTH = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("modes", "platform,virtual");
+        options.put("connections", "1000,10000");
+        options.put("duration", "20");
+        options.put("warmup", "5");
+        options.put("maxThreads", "200");
+        options.put("mix", DEFAULT_MIX);
+        options.put("java", ProcessHandle.current().info().command().orElse("java"));
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+            if (name == null || !options.containsKey(name)) {
+                System.err.println("Unknown option: " + arg);
+                System.err.println("Options: --modes= --connections= --duration= --warmup= --maxThreads= --mix= --java=");
+                System.exit(1);
+            }
+            options.put(name, arg.substring(equals + 1));
+        }
+        if (isUp()) {
+            throw new IllegalStateException("Something is already serving " + URL + "; stop it first");
+        }
+
+        int duration = Integer.parseInt(options.get("duration"));
+        int warmup = Integer.parseInt(options.get("warmup"));
+        List<String> rows = new ArrayList<>();
+        for (String mode : options.get("modes").split(",")) {
+            Path work = scratchCopy();
+            Process server = startServer(options.get("java"), mode.trim(), options.get("maxThreads"), work);
+            try {
+                String label = mode.trim();
+                if (Files.readString(work.resolve("server.log")).contains("Virtual threads need Java 21")) {
+                    label += " (unavailable: ran platform)";
+                }
+                LoadGenerator generator = new LoadGenerator(URL, options.get("mix"));
+                generator.discover();
+                try {
+                    for (String connections : options.get("connections").split(",")) {
+                        int count = Integer.parseInt(connections.trim());
+                        System.out.printf("%n%s threads, %,d connections%n", label, count);
+                        LoadGenerator.Stats stats = generator.measure("closed", count, 0, warmup, duration);
+                        LoadGenerator.report(stats);
+                        rows.add(row(label, count, stats));
+                    }
+                } finally {
+                    generator.cleanUp();
+                }
+            } finally {
+                stopServer(server);
+                deleteRecursively(work);
+            }
+        }
+
+        System.out.printf("%n%-36s %11s %10s %9s %9s %9s %9s %8s%n",
+                "threads", "connections", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        rows.forEach(System.out::println);
+    }
+
+    private static String row(String label, int connections, LoadGenerator.Stats stats) {
+        LatencyHistogram.Snapshot latency = stats.all.snapshot();
+        return String.format("%-36s %,11d %,10.1f %9.2f %9.2f %9.2f %9.2f %,8d", label, connections,
+                latency.getCount() / stats.seconds, latency.getValueAt(0.5) / 1e6, latency.getValueAt(0.99) / 1e6,
+                latency.getValueAt(0.999) / 1e6, latency.getMax() / 1e6, stats.allErrors.sum());
+    }
+
+    /**
+     * A working directory holding copies of the catalog and static files at
+     * the relative paths the server expects
+     */
+    private static Path scratchCopy() throws IOException {
+        Path work = Files.createTempDirectory("thread-mode-");
+        Path resources = Paths.get("src/main/resources");
+        Path data = work.resolve("src/main/resources/data");
+        Files.createDirectories(data);
+        Files.copy(resources.resolve("data/movies.json"), data.resolve("movies.json"));
+        Path statics = work.resolve("src/main/resources/static");
+        Files.createDirectories(statics);
+        try (Stream<Path> files = Files.list(resources.resolve("static"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Files.copy(file, statics.resolve(file.getFileName()));
+                }
+            }
+        }
+        return work;
+    }
+
+    private static Process startServer(String java, String mode, String maxThreads, Path work) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-Dmovieticket.threads=" + mode);
+        command.add("-Dmovieticket.maxThreads=" + maxThreads);
+        command.add("-Dmovieticket.acceptQueueSize=4096"); // 10k connects at once overflow the default backlog
+        command.add("-Dmovieticket.journalDir=" + work.resolve("journal"));
+        command.add("-cp");
+        command.add(classpath());
+        command.add(SERVER_CLASS);
+        Process server = new ProcessBuilder(command)
+                .directory(work.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve("server.log").toFile())
+                .start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!isUp()) {
+            if (!server.isAlive() || System.nanoTime() > deadline) {
+                server.destroyForcibly();
+                throw new IllegalStateException("Server (" + mode + ") did not start:\n"
+                        + Files.readString(work.resolve("server.log")));
+            }
+            Thread.sleep(200);
+        }
+        return server;
+    }
+
+    private static void stopServer(Process server) throws InterruptedException {
+        server.destroy(); // runs the shutdown hook
+        if (!server.waitFor(30, TimeUnit.SECONDS)) {
+            server.destroyForcibly().waitFor();
+        }
+    }
+
+    private static boolean isUp() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(URL + "/api/health"))
+                    .timeout(Duration.ofSeconds(1)).build();
+            return HEALTH.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * The project classpath: exec:java loads it in a URLClassLoader of its own
+     */
+    private static String classpath() throws Exception {
+        ClassLoader loader = ThreadModeComparison.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            List<String> entries = new ArrayList<>();
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                entries.add(Paths.get(url.toURI()).toString());
+            }
+            return String.join(File.pathSeparator, entries);
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    System.err.println("Could not delete " + path + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+}
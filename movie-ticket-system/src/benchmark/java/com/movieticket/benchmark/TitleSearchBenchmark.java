@@ -0,0 +1,81 @@
+package com.movieticket.benchmark;
+
+import com.movieticket.model.Movie;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compares title search through the trigram index with the old full scan
+ * (lower-case every title, then contains) at several catalog sizes.
+ *
+ * Usage: TitleSearchBenchmark [size ...]   (default: 10000 100000 1000000)
+ */
+public class TitleSearchBenchmark {
+    private static final String[] QUERIES = {
+        "dark", "knight", "star kingdom", "frozen e", "ghost", "midnight mirror 3", "xyz"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? java.util.Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws IOException, InterruptedException {
+        Path file = Files.createTempFile("movies-" + size + "-", ".json");
+        file.toFile().deleteOnExit();
+        SyntheticCatalog.writeJson(file, size, 42);
+        MovieService service = new MovieService(new JsonCatalogFile(file.toString()), null);
+        while (!service.isSearchIndexReady()) {
+            Thread.sleep(10);
+        }
+
+        System.out.printf("%n%,d titles%n", size);
+        System.out.printf("%-20s %8s %12s %12s %8s%n", "query", "matches", "scan us/op", "index us/op", "speedup");
+        for (String query : QUERIES) {
+            List<Movie> expected = scan(service, query);
+            List<Movie> actual = service.searchMoviesByTitle(query);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Index and scan disagree for '" + query + "'");
+            }
+
+            int iterations = Math.max(20, 20_000_000 / size);
+            double scanMicros = time(() -> scan(service, query), iterations);
+            double indexMicros = time(() -> service.searchMoviesByTitle(query), iterations * 10);
+            System.out.printf("%-20s %8d %12.1f %12.1f %7.0fx%n",
+                    query, expected.size(), scanMicros, indexMicros, scanMicros / indexMicros);
+        }
+        service.close();
+    }
+
+    /**
+     * The search as it was before the index
+     */
+    private static List<Movie> scan(MovieService service, String title) {
+        String lowerCaseTitle = title.toLowerCase();
+        return service.getSnapshot().getMovies().stream()
+                .filter(movie -> movie.getTitle().toLowerCase().contains(lowerCaseTitle))
+                .collect(Collectors.toList());
+    }
+
+    private static double time(Runnable search, int iterations) {
+        for (int i = 0; i < iterations / 4 + 1; i++) {
+            search.run(); // warm up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            search.run();
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+}
@@ -0,0 +1,69 @@
+package com.movieticket.model;
+
+import java.util.List;
+
+/**
+ * A ticket purchase: seats of one showtime, paid for at the showtime's price
+ */
+public class Order {
+    public static final String PAID = "PAID";
+    public static final String REFUNDED = "REFUNDED";
+
+    private final String id;
+    private final String showtimeId;
+    private final List<String> seats;
+    private final double amount;
+    private final String createdAt; // ISO-8601 instant
+    private final String status;
+
+    public Order(String id, String showtimeId, List<String> seats, double amount, String createdAt, String status) {
+        this.id = id;
+        this.showtimeId = showtimeId;
+        this.seats = seats;
+        this.amount = amount;
+        this.createdAt = createdAt;
+        this.status = status;
+    }
+
+    /**
+     * The same order with another status
+     */
+    public Order withStatus(String newStatus) {
+        return new Order(id, showtimeId, seats, amount, createdAt, newStatus);
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public List<String> getSeats() {
+        return seats;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "Order{" +
+                "id='" + id + '\'' +
+                ", showtimeId='" + showtimeId + '\'' +
+                ", seats=" + seats +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
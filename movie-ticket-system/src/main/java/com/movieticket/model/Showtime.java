@@ -0,0 +1,99 @@
+package com.movieticket.model;
+
+/**
+ * One screening of a movie in an auditorium with a rectangular seat layout.
+ * Rows are lettered from A and seats numbered from 1, so seats are labelled
+ * "A1", "A2", ... "C12".
+ */
+public class Showtime {
+    private String id;
+    private String movieId;
+    private String startsAt; // ISO-8601 local date-time, e.g. 2026-10-18T19:30
+    private String auditorium;
+    private int rows;
+    private int seatsPerRow;
+    private double price;
+
+    public Showtime() {
+    }
+
+    public Showtime(String id, String movieId, String startsAt, String auditorium,
+                    int rows, int seatsPerRow, double price) {
+        this.id = id;
+        this.movieId = movieId;
+        this.startsAt = startsAt;
+        this.auditorium = auditorium;
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.price = price;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(String movieId) {
+        this.movieId = movieId;
+    }
+
+    public String getStartsAt() {
+        return startsAt;
+    }
+
+    public void setStartsAt(String startsAt) {
+        this.startsAt = startsAt;
+    }
+
+    public String getAuditorium() {
+        return auditorium;
+    }
+
+    public void setAuditorium(String auditorium) {
+        this.auditorium = auditorium;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public void setSeatsPerRow(int seatsPerRow) {
+        this.seatsPerRow = seatsPerRow;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    @Override
+    public String toString() {
+        return "Showtime{" +
+                "id='" + id + '\'' +
+                ", movieId='" + movieId + '\'' +
+                ", startsAt='" + startsAt + '\'' +
+                ", auditorium='" + auditorium + '\'' +
+                ", rows=" + rows +
+                ", seatsPerRow=" + seatsPerRow +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+package com.movieticket.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that adapts to observed latency (AIMD).
+ *
+ * Latencies are averaged over windows of WINDOW_MILLIS. The lowest window
+ * average seen is the no-load baseline; it also drifts slowly towards recent
+ * averages so a lasting change (a bigger catalog, a slower disk) becomes the
+ * new normal. A window whose average exceeds TOLERANCE times the baseline, or
+ * that saw a server error, cuts the limit by BACKOFF. Otherwise, if requests
+ * actually pressed against the limit, it grows by one.
+ *
+ * Acquiring and releasing are lock-free. Only the thread closing a window
+ * takes the lock, and a release that finds it taken skips adding its sample.
+ */
+public final class AdaptiveLimit {
+    static final long WINDOW_MILLIS = 100;
+    static final double TOLERANCE = 2.0;
+    static final double BACKOFF = 0.9;
+    private static final long MIN_SLACK_NANOS = 5_000_000; // latency jitter below this is never overload
+    private static final double BASELINE_DRIFT = 0.01;     // per window, about 10 s to follow a lasting change
+    private static final int MIN_SAMPLES = 10;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private long windowStart = System.nanoTime();
+    private long windowSum;
+    private int windowCount;
+    private int windowPeak;
+    private boolean windowFailed;
+    private double baseline = Double.NaN;
+
+    /**
+     * @param initialLimit starting limit; the limit stays between 1 and ten times this
+     */
+    public AdaptiveLimit(String name, int initialLimit) {
+        if (initialLimit < 1) {
+            throw new IllegalArgumentException("Limit of " + name + " must be at least 1");
+        }
+        this.name = name;
+        this.minLimit = 1;
+        this.maxLimit = initialLimit * 10;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Take a slot if fewer than limit requests are in flight
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Count a request turned away because it waited too long to be admitted
+     */
+    public void expired() {
+        expired.increment();
+    }
+
+    /**
+     * Give back a slot and record how the request went
+     *
+     * @param latencyNanos time from arrival to completion
+     * @param failed whether it ended in a server error
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int concurrency = inFlight.getAndDecrement();
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            windowSum += latencyNanos;
+            windowCount++;
+            windowPeak = Math.max(windowPeak, concurrency);
+            windowFailed |= failed;
+            long now = System.nanoTime();
+            if (now - windowStart >= WINDOW_MILLIS * 1_000_000 && windowCount >= MIN_SAMPLES) {
+                adjust();
+                windowStart = now;
+                windowSum = 0;
+                windowCount = 0;
+                windowPeak = 0;
+                windowFailed = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close a window: back off if it was slow, probe upwards if it was busy
+     */
+    private void adjust() {
+        double average = (double) windowSum / windowCount;
+        if (Double.isNaN(baseline) || average < baseline) {
+            baseline = average;
+        } else {
+            baseline += (average - baseline) * BASELINE_DRIFT;
+        }
+        double threshold = Math.max(baseline * TOLERANCE, baseline + MIN_SLACK_NANOS);
+        int current = limit;
+        if (windowFailed || average > threshold) {
+            limit = Math.max(minLimit, (int) (current * BACKOFF));
+        } else if (windowPeak * 4 >= current * 3) {
+            limit = Math.min(maxLimit, current + 1);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * No-load latency estimate in nanoseconds, NaN before the first window
+     */
+    public double getBaseline() {
+        lock.lock();
+        try {
+            return baseline;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
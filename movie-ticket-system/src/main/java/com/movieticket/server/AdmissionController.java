@@ -0,0 +1,155 @@
+package com.movieticket.server;
+
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load shedding in front of the routes: reads (GET, HEAD) and writes each get
+ * an AdaptiveLimit, and a request that finds its limit reached is refused
+ * straight away instead of queueing behind the others.
+ *
+ * A request that already waited longer than maxQueueMillis between arriving
+ * and reaching the filter (in Jetty's queue for a pool thread) is refused too:
+ * its client is likely to give up before an answer. That wait also counts
+ * towards the latency the limits adapt to.
+ *
+ * admit runs in a before filter and release in an afterAfter filter, which
+ * Spark runs even when a route throws or a filter halts.
+ */
+public final class AdmissionController {
+    private static final String PERMIT = AdmissionController.class.getName() + ".permit";
+    private static final String ARRIVED = AdmissionController.class.getName() + ".arrived";
+
+    private final AdaptiveLimit reads;
+    private final AdaptiveLimit writes;
+    private final long maxQueueMillis;
+    private final Set<String> exempt;
+
+    /**
+     * @param exemptPaths paths that are always admitted and never counted
+     */
+    public AdmissionController(int readLimit, int writeLimit, long maxQueueMillis, String... exemptPaths) {
+        this.reads = new AdaptiveLimit("read", readLimit);
+        this.writes = new AdaptiveLimit("write", writeLimit);
+        this.maxQueueMillis = maxQueueMillis;
+        this.exempt = new HashSet<>(Arrays.asList(exemptPaths));
+    }
+
+    /**
+     * Decide whether a request may go on to its route
+     *
+     * @return false if it should be refused with 503
+     */
+    public boolean admit(Request req) {
+        String method = req.requestMethod();
+        if (method.equals("OPTIONS") || exempt.contains(req.pathInfo())) {
+            return true;
+        }
+        AdaptiveLimit limit = method.equals("GET") || method.equals("HEAD") ? reads : writes;
+        long arrived = arrivalNanos(req);
+        if (System.nanoTime() - arrived > maxQueueMillis * 1_000_000) {
+            limit.expired();
+            return false;
+        }
+        if (!limit.tryAcquire()) {
+            return false;
+        }
+        req.attribute(PERMIT, limit);
+        req.attribute(ARRIVED, arrived);
+        return true;
+    }
+
+    /**
+     * Give back the slot of an admitted request, once it is answered
+     */
+    public void release(Request req, Response res) {
+        AdaptiveLimit limit = req.attribute(PERMIT);
+        if (limit == null) {
+            return; // exempt or refused
+        }
+        req.raw().removeAttribute(PERMIT);
+        long arrived = req.attribute(ARRIVED);
+        limit.release(System.nanoTime() - arrived, res.raw().getStatus() >= 500);
+    }
+
+    /**
+     * State of both limits as a JSON-ready map, latencies in microseconds
+     */
+    public Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        for (AdaptiveLimit limit : new AdaptiveLimit[]{reads, writes}) {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("limit", limit.getLimit());
+            state.put("inFlight", limit.getInFlight());
+            state.put("admitted", limit.getAdmitted());
+            state.put("rejected", limit.getRejected());
+            state.put("expired", limit.getExpired());
+            double baseline = limit.getBaseline();
+            state.put("baselineLatencyMicros", Double.isNaN(baseline) ? null : Math.round(baseline / 100.0) / 10.0);
+            json.put(limit.getName(), state);
+        }
+        return json;
+    }
+
+    /**
+     * State of both limits in the Prometheus text exposition format
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP movieticket_admission_limit Current concurrency limit\n");
+        out.append("# TYPE movieticket_admission_limit gauge\n");
+        for (AdaptiveLimit limit : new AdaptiveLimit[]{reads, writes}) {
+            sample(out, "movieticket_admission_limit", limit, null, limit.getLimit());
+        }
+        out.append("# HELP movieticket_admission_in_flight Admitted requests not yet answered\n");
+        out.append("# TYPE movieticket_admission_in_flight gauge\n");
+        for (AdaptiveLimit limit : new AdaptiveLimit[]{reads, writes}) {
+            sample(out, "movieticket_admission_in_flight", limit, null, limit.getInFlight());
+        }
+        out.append("# HELP movieticket_admission_requests_total Requests by admission decision\n");
+        out.append("# TYPE movieticket_admission_requests_total counter\n");
+        for (AdaptiveLimit limit : new AdaptiveLimit[]{reads, writes}) {
+            sample(out, "movieticket_admission_requests_total", limit, "decision=\"admitted\"", limit.getAdmitted());
+            sample(out, "movieticket_admission_requests_total", limit, "decision=\"rejected\"", limit.getRejected());
+            sample(out, "movieticket_admission_requests_total", limit, "decision=\"expired\"", limit.getExpired());
+        }
+        return out.toString();
+    }
+
+    /**
+     * When the request arrived, on the System.nanoTime clock. Jetty stamps
+     * requests in milliseconds when their headers are parsed; without that
+     * stamp, now.
+     */
+    private static long arrivalNanos(Request req) {
+        long now = System.nanoTime();
+        ServletRequest raw = req.raw();
+        while (raw instanceof ServletRequestWrapper) {
+            raw = ((ServletRequestWrapper) raw).getRequest();
+        }
+        if (raw instanceof org.eclipse.jetty.server.Request) {
+            long stamp = ((org.eclipse.jetty.server.Request) raw).getTimeStamp();
+            if (stamp > 0) {
+                long waited = Math.max(0, System.currentTimeMillis() - stamp);
+                return now - waited * 1_000_000;
+            }
+        }
+        return now;
+    }
+
+    private static void sample(StringBuilder out, String name, AdaptiveLimit limit, String extraLabel, Object value) {
+        out.append(name).append("{class=\"").append(limit.getName()).append('"');
+        if (extraLabel != null) {
+            out.append(',').append(extraLabel);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+}
@@ -0,0 +1,341 @@
+package com.movieticket.server;
+
+import com.google.gson.Gson;
+import com.movieticket.service.CatalogChange;
+import com.movieticket.service.ChangeFeed;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-Sent Events stream of catalog changes (GET /api/movies/changes).
+ *
+ * Each change is a "create", "update" or "delete" event whose data carries
+ * the catalog version that published it. The last event of a version has
+ * that version as its id, so a client that reconnects with Last-Event-ID
+ * resumes after the last version it fully received, from the ChangeFeed's
+ * buffer. A client too far behind for the buffer, or following a server that
+ * has restarted since, gets a "reset" event and must refetch the catalog. A
+ * "ready" event tells a new subscriber it is up to date.
+ *
+ * Writers only flag that something was published. One dispatcher thread
+ * renders the new events once per starting version and queues them on every
+ * subscriber, which writes with non-blocking servlet output. A subscriber
+ * whose queue outgrows MAX_PENDING_BYTES is disconnected and catches up when
+ * it reconnects.
+ */
+final class ChangeStream {
+    private static final long HEARTBEAT_SECONDS = 15; // keeps idle connections (and proxies) from timing out
+    private static final int RETRY_MILLIS = 3000;
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ChangeFeed feed;
+    private final Gson gson;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36); // tells restarts apart in event ids
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ChangeStream(ChangeFeed feed, Gson gson) {
+        this.feed = feed;
+        this.gson = gson;
+        feed.addListener(this::scheduleDispatch);
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Route handler: keep the response open as an event stream. The resume
+     * point comes from the Last-Event-ID header, or a lastEventId parameter
+     * for a first connection.
+     */
+    Object subscribe(Request req, Response res) throws IOException {
+        String lastEventId = req.headers("Last-Event-ID");
+        if (lastEventId == null) {
+            lastEventId = req.queryParams("lastEventId");
+        }
+        long from = lastEventId != null ? resumeVersion(lastEventId) : feed.getVersion();
+
+        HttpServletRequest request = req.raw();
+        AsyncContext async = request.isAsyncStarted() ? request.getAsyncContext() : request.startAsync();
+        async.setTimeout(0);
+        request.setAttribute(RequestThreading.KEEP_OPEN, Boolean.TRUE);
+
+        HttpServletResponse response = res.raw();
+        response.setStatus(200);
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no"); // tell nginx not to buffer the stream
+        response.flushBuffer(); // committed, so Spark writes no body of its own
+
+        Subscriber subscriber = new Subscriber(async, response.getOutputStream(), from);
+        async.addListener(subscriber);
+        response.getOutputStream().setWriteListener(subscriber);
+        subscribers.add(subscriber);
+        scheduleDispatch();
+        return "";
+    }
+
+    /**
+     * Version an event id stands for, or -1 if it is not one of this server's
+     * (malformed, or from before a restart)
+     */
+    private long resumeVersion(String eventId) {
+        int dash = eventId.lastIndexOf('-');
+        if (dash < 0 || !eventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void scheduleDispatch() {
+        if (dispatchPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Bring every subscriber up to date. Runs on the dispatcher thread only.
+     */
+    private void dispatch() {
+        dispatchPending.set(false);
+        Map<String, Rendered> rendered = new HashMap<>(); // subscribers at the same point share the bytes
+        for (Subscriber subscriber : subscribers) {
+            Rendered update = rendered.computeIfAbsent(subscriber.version + (subscriber.greeted ? "" : "+ready"),
+                    key -> render(subscriber.version, !subscriber.greeted));
+            subscriber.version = update.version;
+            subscriber.greeted = true;
+            if (update.bytes.length > 0) {
+                subscriber.send(update.bytes);
+            }
+        }
+    }
+
+    private static final class Rendered {
+        final byte[] bytes;
+        final long version;
+
+        Rendered(byte[] bytes, long version) {
+            this.bytes = bytes;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The events that take a subscriber from a version to the latest
+     *
+     * @param from last version the subscriber has, -1 if unknown
+     * @param greet whether to start with the retry interval and end with "ready"
+     */
+    private Rendered render(long from, boolean greet) {
+        StringBuilder out = new StringBuilder();
+        if (greet) {
+            out.append("retry: ").append(RETRY_MILLIS).append("\n\n");
+        }
+        List<ChangeFeed.Entry> entries = from >= 0 ? feed.since(from) : null;
+        long version = from;
+        if (entries == null) {
+            version = feed.getVersion();
+            event(out, "reset", version, versionJson(version), true);
+        } else {
+            for (ChangeFeed.Entry entry : entries) {
+                version = entry.getVersion();
+                if (entry.isReset()) {
+                    event(out, "reset", version, versionJson(version), true);
+                    continue;
+                }
+                List<CatalogChange> changes = entry.getChanges();
+                for (int i = 0; i < changes.size(); i++) {
+                    CatalogChange change = changes.get(i);
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("version", version);
+                    data.put("id", change.getId());
+                    if (change.getMovie() != null) {
+                        data.put("movie", change.getMovie());
+                    }
+                    event(out, change.getType().name().toLowerCase(), version, gson.toJson(data), i == changes.size() - 1);
+                }
+            }
+        }
+        if (greet) {
+            event(out, "ready", version, versionJson(version), true);
+        }
+        return new Rendered(out.toString().getBytes(StandardCharsets.UTF_8), version);
+    }
+
+    private static String versionJson(long version) {
+        return "{\"version\":" + version + "}";
+    }
+
+    /**
+     * Append one event; only the last event of a version carries an id, so
+     * Last-Event-ID never points into the middle of a version
+     */
+    private void event(StringBuilder out, String type, long version, String data, boolean withId) {
+        out.append("event: ").append(type).append('\n');
+        if (withId) {
+            out.append("id: ").append(epoch).append('-').append(version).append('\n');
+        }
+        out.append("data: ").append(data).append("\n\n");
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.send(HEARTBEAT);
+        }
+    }
+
+    /**
+     * One open stream. send() queues bytes and writes as many as the
+     * connection takes without blocking; Jetty calls onWritePossible when
+     * it takes more.
+     */
+    private final class Subscriber implements WriteListener, AsyncListener {
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<byte[]> pending = new ArrayDeque<>(); // guarded by lock
+        private int pendingBytes;                                      // guarded by lock
+        private boolean needsFlush;                                    // guarded by lock
+        private volatile boolean closed;
+
+        // Dispatcher thread only
+        long version;
+        boolean greeted;
+
+        Subscriber(AsyncContext async, ServletOutputStream out, long version) {
+            this.async = async;
+            this.out = out;
+            this.version = version;
+        }
+
+        void send(byte[] bytes) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (pendingBytes + bytes.length > MAX_PENDING_BYTES) {
+                    close(); // too slow; it resumes from Last-Event-ID on reconnect
+                    return;
+                }
+                pending.addLast(bytes);
+                pendingBytes += bytes.length;
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Write queued bytes while the connection is ready. Must hold lock.
+         */
+        private void drain() {
+            try {
+                while (!closed && out.isReady()) {
+                    byte[] next = pending.pollFirst();
+                    if (next != null) {
+                        pendingBytes -= next.length;
+                        out.write(next);
+                        needsFlush = true;
+                    } else if (needsFlush) {
+                        needsFlush = false;
+                        out.flush(); // small writes are aggregated until flushed
+                    } else {
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+            subscribers.remove(this);
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // already completed by the container
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            lock.lock();
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
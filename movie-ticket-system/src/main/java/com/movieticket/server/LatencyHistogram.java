@@ -0,0 +1,119 @@
+package com.movieticket.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-scaled buckets, in the style of
+ * HdrHistogram: every power of two is split into 32 linear sub-buckets, so a
+ * value is reported at most 1/32 (about 3%) above what was recorded whatever
+ * its size, and everything from 1 ns to about 18 minutes fits in 1,152
+ * counters.
+ *
+ * Recording is a few bit operations and one atomic increment, safe from any
+ * number of threads. Percentiles come from a snapshot of the counters, which
+ * may miss values recorded while it is being taken.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value in nanoseconds; larger values than the range count as its top
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        long highest = max.get();
+        while (value > highest && !max.compareAndSet(highest, value)) {
+            highest = max.get();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Bucket of a value: values below 64 (2 * SUB_COUNT) get their own bucket,
+     * larger ones keep their top 6 significant bits
+     */
+    static int indexOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Largest value that falls in a bucket
+     */
+    static long highestValueIn(int index) {
+        int shift = Math.max(0, (index >> SUB_BITS) - 1);
+        long lowest = (long) (index - (shift << SUB_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Counts as of one moment
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Total of the recorded values, in nanoseconds
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Value at a quantile (0.99 for p99) in nanoseconds, 0 when empty
+         */
+        public long getValueAt(double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return 0;
+        }
+    }
+}
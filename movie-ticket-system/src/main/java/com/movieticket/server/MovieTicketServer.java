@@ -1,18 +1,55 @@
 package com.movieticket.server;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
 import com.movieticket.model.Movie;
+import com.movieticket.model.Order;
+import com.movieticket.model.Showtime;
+import com.movieticket.service.BatchOperation;
+import com.movieticket.service.BatchResult;
+import com.movieticket.service.BinaryCatalogFile;
+import com.movieticket.service.CatalogPersistence;
+import com.movieticket.service.CatalogSnapshot;
+import com.movieticket.service.HoldService;
+import com.movieticket.service.ImportResult;
+import com.movieticket.service.ChangeLogPersistence;
+import com.movieticket.service.JsonCatalogFile;
+import com.movieticket.service.MovieJsonWriter;
+import com.movieticket.service.MovieNdjson;
+import com.movieticket.service.MovieQuery;
+import com.movieticket.service.MoviePage;
 import com.movieticket.service.MovieService;
+import com.movieticket.service.OrderJournal;
+import com.movieticket.service.QueryResult;
+import com.movieticket.service.SeatClaimResult;
+import com.movieticket.service.SeatHold;
+import com.movieticket.service.SeatInventory;
+import com.movieticket.service.ShowtimeService;
+import com.movieticket.service.SynchronousPersistence;
+import com.movieticket.service.UnsynchronizedBufferedWriter;
+import com.movieticket.service.WriteBehindPersistence;
 import spark.Request;
 import spark.Response;
+import spark.Route;
+import spark.embeddedserver.EmbeddedServers;
 
-import java.io.File;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import static spark.Spark.*;
 
@@ -23,19 +60,95 @@ import static spark.Spark.*;
 public class MovieTicketServer {
     private static final int PORT = 8080;
     private static final String DATA_FILE = "src/main/resources/data/movies.json";
+    private static final String STATIC_DIR = "src/main/resources/static";
+
+    // Reload static files when they change on disk (-Dmovieticket.devMode=true)
+    private static final boolean DEV_MODE = Boolean.getBoolean("movieticket.devMode");
+
+    // Persistence options, set with -D on the command line
+    private static final String PERSISTENCE_MODE = System.getProperty("movieticket.persistence", "sync");
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("movieticket.flushIntervalMs", 200);
+    private static final int FLUSH_MAX_CHANGES = Integer.getInteger("movieticket.flushMaxChanges", 100);
+    private static final boolean DURABLE_WRITES = Boolean.parseBoolean(
+            System.getProperty("movieticket.durableWrites", "false"));
+    private static final long COMPACT_INTERVAL_MS = Long.getLong("movieticket.compactIntervalMs", 60_000);
+    private static final long COMPACT_THRESHOLD_BYTES = Long.getLong("movieticket.compactThresholdBytes", 4L << 20);
+    private static final boolean LOG_FSYNC = Boolean.parseBoolean(
+            System.getProperty("movieticket.logFsync", "false"));
+    private static final boolean BINARY_SNAPSHOT = Boolean.parseBoolean(
+            System.getProperty("movieticket.binarySnapshot", "false"));
+
+    // How long seats are held during checkout (-Dmovieticket.holdSeconds)
+    private static final long HOLD_SECONDS = Long.getLong("movieticket.holdSeconds", 300);
+
+    // Order journal options (-Dmovieticket.journalDir etc.)
+    private static final String JOURNAL_DIR = System.getProperty("movieticket.journalDir",
+            Paths.get(DATA_FILE).resolveSibling("journal").toString());
+    private static final long JOURNAL_SEGMENT_BYTES = Long.getLong("movieticket.journalSegmentBytes", 64L << 20);
+    private static final boolean JOURNAL_FSYNC = Boolean.parseBoolean(
+            System.getProperty("movieticket.journalFsync", "true"));
+
+    // Request threading (-Dmovieticket.threads=platform|virtual); see RequestThreading
+    private static final String THREAD_MODE = System.getProperty("movieticket.threads", "platform");
+    private static final int MAX_THREADS = Integer.getInteger("movieticket.maxThreads", 0); // 0: Jetty's default
+    private static final int ACCEPT_QUEUE_SIZE = Integer.getInteger("movieticket.acceptQueueSize", 0); // 0: OS default
+
+    // Admission control (-Dmovieticket.admission=false to turn it off); see AdmissionController
+    private static final boolean ADMISSION = Boolean.parseBoolean(System.getProperty("movieticket.admission", "true"));
+    private static final int ADMISSION_READ_LIMIT = Integer.getInteger("movieticket.admission.readLimit", 100);
+    private static final int ADMISSION_WRITE_LIMIT = Integer.getInteger("movieticket.admission.writeLimit", 20);
+    private static final long ADMISSION_MAX_QUEUE_MS = Long.getLong("movieticket.admission.maxQueueMs", 1000);
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    // Search and genre results kept per catalog version (-Dmovieticket.queryCache.size); see QueryCache
+    private static final int QUERY_CACHE_SIZE = Integer.getInteger("movieticket.queryCache.size", 1000);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+
     private static MovieService movieService;
+    private static ShowtimeService showtimeService;
+    private static HoldService holdService;
+    private static OrderJournal orderJournal;
     private static Gson gson;
+    private static final ResponseCache responseCache = new ResponseCache();
+    private static final QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE);
+    private static final RouteMetrics routeMetrics = new RouteMetrics();
+    private static StaticAssetCache staticAssets;
+    private static AdmissionController admission; // null when disabled
+    private static ChangeStream changeStream;
 
     public static void main(String[] args) {
         gson = new Gson();
-        movieService = new MovieService(DATA_FILE);
+        staticAssets = new StaticAssetCache(Paths.get(STATIC_DIR), DEV_MODE);
+        JsonCatalogFile catalogFile = new JsonCatalogFile(DATA_FILE);
+        movieService = new MovieService(catalogFile, createPersistence(catalogFile),
+                BINARY_SNAPSHOT ? new BinaryCatalogFile(catalogFile) : null);
+        orderJournal = openJournal(Paths.get(JOURNAL_DIR));
+        showtimeService = new ShowtimeService(movieService, orderJournal);
+        changeStream = new ChangeStream(movieService.getChangeFeed(), gson);
+        holdService = new HoldService(showtimeService, HOLD_SECONDS * 1000);
+
+        // Flush any pending catalog writes before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop();
+            holdService.close();
+            orderJournal.close();
+            movieService.close();
+        }, "shutdown"));
 
         // Configure server
+        configureThreads();
         port(PORT);
 
         // Enable CORS
         enableCORS();
 
+        // Refuse requests over the concurrency limits instead of queueing them
+        if (ADMISSION) {
+            enableAdmissionControl();
+        }
+
         // Define API routes FIRST
         setupRoutes();
 
@@ -47,26 +160,109 @@ public class MovieTicketServer {
         System.out.println("========================================");
     }
 
+    /**
+     * Choose how catalog changes are written to disk (-Dmovieticket.persistence)
+     */
+    private static CatalogPersistence createPersistence(JsonCatalogFile catalogFile) {
+        switch (PERSISTENCE_MODE) {
+            case "write-behind":
+                System.out.println("Persistence: write-behind (every " + FLUSH_INTERVAL_MS + " ms or "
+                        + FLUSH_MAX_CHANGES + " changes, durable writes: " + DURABLE_WRITES + ")");
+                return new WriteBehindPersistence(catalogFile, FLUSH_INTERVAL_MS, FLUSH_MAX_CHANGES, DURABLE_WRITES);
+            case "change-log":
+                System.out.println("Persistence: change log (compact every " + COMPACT_INTERVAL_MS + " ms or "
+                        + COMPACT_THRESHOLD_BYTES + " bytes, fsync: " + LOG_FSYNC + ")");
+                return new ChangeLogPersistence(catalogFile, COMPACT_INTERVAL_MS, COMPACT_THRESHOLD_BYTES, LOG_FSYNC);
+            case "sync":
+                return new SynchronousPersistence(catalogFile);
+            default:
+                throw new IllegalArgumentException("Unknown persistence mode: " + PERSISTENCE_MODE);
+        }
+    }
+
+    /**
+     * Choose which threads run request handlers (-Dmovieticket.threads). Must
+     * run before the first route or filter starts the server.
+     */
+    private static void configureThreads() {
+        ExecutorService handlerExecutor = null;
+        switch (THREAD_MODE) {
+            case "virtual":
+                handlerExecutor = RequestThreading.virtualThreadExecutor();
+                if (handlerExecutor == null) {
+                    System.err.println("Virtual threads need Java 21 or later (running " + Runtime.version()
+                            + "); request handlers stay on the platform thread pool");
+                } else {
+                    System.out.println("Request threads: one virtual thread per request"
+                            + " (report pinning with -Djdk.tracePinnedThreads=short or JFR jdk.VirtualThreadPinned)");
+                }
+                break;
+            case "platform":
+                System.out.println("Request threads: platform pool of "
+                        + (MAX_THREADS > 0 ? String.valueOf(MAX_THREADS) : "Jetty's default size"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown thread mode: " + THREAD_MODE);
+        }
+        EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), new RequestThreading(handlerExecutor, ACCEPT_QUEUE_SIZE));
+        if (MAX_THREADS > 0) {
+            threadPool(MAX_THREADS);
+        }
+    }
+
+    private static OrderJournal openJournal(Path directory) {
+        try {
+            System.out.println("Order journal: " + directory + " (segments of " + JOURNAL_SEGMENT_BYTES
+                    + " bytes, fsync: " + JOURNAL_FSYNC + ")");
+            return new OrderJournal(directory, JOURNAL_SEGMENT_BYTES, JOURNAL_FSYNC);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open order journal " + directory, e);
+        }
+    }
+
+    /**
+     * Register a route, recording its requests in routeMetrics
+     */
+    private static void route(String method, String path, Route handler) {
+        Route timed = routeMetrics.timed(method, path, handler);
+        switch (method) {
+            case "GET":
+                get(path, timed);
+                break;
+            case "POST":
+                post(path, timed);
+                break;
+            case "PUT":
+                put(path, timed);
+                break;
+            case "DELETE":
+                delete(path, timed);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported method: " + method);
+        }
+    }
+
     /**
      * Setup all REST API routes
      */
     private static void setupRoutes() {
         // Explicit routes for static files - MUST be defined BEFORE other routes
-        get("/index.html", (req, res) -> serveStaticFile(req, res));
-        get("/dashboard.html", (req, res) -> serveStaticFile(req, res));
-        get("/styles.css", (req, res) -> serveStaticFile(req, res));
-        get("/dashboard.css", (req, res) -> serveStaticFile(req, res));
-        get("/app.js", (req, res) -> serveStaticFile(req, res));
-        get("/dashboard.js", (req, res) -> serveStaticFile(req, res));
+        route("GET", "/index.html", staticAssets::serve);
+        route("GET", "/dashboard.html", staticAssets::serve);
+        route("GET", "/styles.css", staticAssets::serve);
+        route("GET", "/dashboard.css", staticAssets::serve);
+        route("GET", "/app.js", staticAssets::serve);
+        route("GET", "/dashboard.js", staticAssets::serve);
 
         // Root endpoint
-        get("/", (req, res) -> {
+        route("GET", "/", (req, res) -> {
             res.redirect("/index.html");
             return null;
         });
 
         // API Health check
-        get("/api/health", (req, res) -> {
+        route("GET", "/api/health", (req, res) -> {
             res.type("application/json");
             Map<String, String> status = new HashMap<>();
             status.put("status", "UP");
@@ -75,31 +271,69 @@ public class MovieTicketServer {
         });
 
         // Get all movies
-        get("/api/movies", MovieTicketServer::getAllMovies);
+        route("GET", "/api/movies", MovieTicketServer::getAllMovies);
+
+        // Query movies by attribute ranges (registered before /api/movies/:id)
+        route("GET", "/api/movies/query", MovieTicketServer::queryMovies);
+
+        // Stream the whole catalog as NDJSON (registered before /api/movies/:id)
+        route("GET", "/api/movies/export", MovieTicketServer::exportMovies);
+
+        // Ranked full-text search (registered before /api/movies/:id)
+        route("GET", "/api/movies/search", MovieTicketServer::fullTextSearch);
+
+        // Follow catalog changes as Server-Sent Events (registered before /api/movies/:id)
+        route("GET", "/api/movies/changes", changeStream::subscribe);
 
         // Get movie by ID
-        get("/api/movies/:id", MovieTicketServer::getMovieById);
+        route("GET", "/api/movies/:id", MovieTicketServer::getMovieById);
 
         // Search movies by title
-        get("/api/movies/search/:query", MovieTicketServer::searchMovies);
+        route("GET", "/api/movies/search/:query", MovieTicketServer::searchMovies);
 
         // Get movies by genre
-        get("/api/movies/genre/:genre", MovieTicketServer::getMoviesByGenre);
+        route("GET", "/api/movies/genre/:genre", MovieTicketServer::getMoviesByGenre);
 
         // Get all genres
-        get("/api/genres", MovieTicketServer::getAllGenres);
+        route("GET", "/api/genres", MovieTicketServer::getAllGenres);
 
         // Create a new movie
-        post("/api/movies", MovieTicketServer::createMovie);
+        route("POST", "/api/movies", MovieTicketServer::createMovie);
+
+        // Upsert movies from an NDJSON (or JSON array) upload
+        route("POST", "/api/movies/import", MovieTicketServer::importMovies);
+
+        // Apply a batch of creates, updates and deletes atomically
+        route("POST", "/api/movies/batch", MovieTicketServer::applyBatch);
 
         // Update an existing movie
-        put("/api/movies/:id", MovieTicketServer::updateMovie);
+        route("PUT", "/api/movies/:id", MovieTicketServer::updateMovie);
 
         // Delete a movie
-        delete("/api/movies/:id", MovieTicketServer::deleteMovie);
+        route("DELETE", "/api/movies/:id", MovieTicketServer::deleteMovie);
+
+        // Showtimes and seats
+        route("GET", "/api/movies/:id/showtimes", MovieTicketServer::getShowtimesForMovie);
+        route("POST", "/api/showtimes", MovieTicketServer::createShowtime);
+        route("GET", "/api/showtimes/:id", MovieTicketServer::getShowtime);
+        route("POST", "/api/showtimes/:id/claims", MovieTicketServer::claimSeats);
+
+        // Ticket orders
+        route("GET", "/api/orders/:id", MovieTicketServer::getOrder);
+        route("POST", "/api/orders/:id/refund", MovieTicketServer::refundOrder);
+
+        // Timed seat holds during checkout (metrics registered before /api/holds/:id)
+        route("POST", "/api/showtimes/:id/holds", MovieTicketServer::holdSeats);
+        route("GET", "/api/holds/metrics", MovieTicketServer::getHoldMetrics);
+        route("GET", "/api/holds/:id", MovieTicketServer::getHold);
+        route("POST", "/api/holds/:id/confirm", MovieTicketServer::confirmHold);
+        route("DELETE", "/api/holds/:id", MovieTicketServer::cancelHold);
 
         // Reload movies from file
-        post("/api/reload", MovieTicketServer::reloadMovies);
+        route("POST", "/api/reload", MovieTicketServer::reloadMovies);
+
+        // Request metrics as JSON, or Prometheus text with ?format=prometheus
+        route("GET", "/api/metrics", MovieTicketServer::getMetrics);
 
         // Handle 404
         notFound((req, res) -> {
@@ -122,12 +356,58 @@ public class MovieTicketServer {
     }
 
     /**
-     * Get all movies endpoint
+     * Get all movies endpoint. The plain list is cached per catalog version
+     * (supports If-None-Match); limit/cursor page through the catalog and
+     * fields= keeps only the named properties, written without Gson.
      */
-    private static String getAllMovies(Request req, Response res) {
-        res.type("application/json");
-        List<Movie> movies = movieService.getAllMovies();
-        return gson.toJson(movies);
+    private static Object getAllMovies(Request req, Response res) throws IOException {
+        String limit = req.queryParams("limit");
+        String cursor = req.queryParams("cursor");
+        String fields = req.queryParams("fields");
+        if (limit == null && cursor == null && fields == null) {
+            CatalogSnapshot snapshot = movieService.getSnapshot();
+            return responseCache.serve(req, res, "movies", snapshot.getVersion(),
+                    () -> gson.toJson(snapshot.getMovies()));
+        }
+
+        MovieJsonWriter writer;
+        MoviePage page = null;
+        try {
+            writer = MovieJsonWriter.forFields(fields);
+            if (limit != null || cursor != null) {
+                page = movieService.getMoviePage(cursor, limit != null ? Integer.parseInt(limit) : DEFAULT_PAGE_SIZE);
+            }
+        } catch (IllegalArgumentException e) {
+            res.type("application/json");
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
+        }
+
+        // Stream the (projected) movies straight to the client
+        HttpServletResponse raw = res.raw();
+        raw.setContentType("application/json");
+        raw.setCharacterEncoding("UTF-8");
+        JsonWriter out = new JsonWriter(new UnsynchronizedBufferedWriter(raw.getWriter()));
+        out.setHtmlSafe(true); // escape like Gson does
+        if (page == null) {
+            writer.writeAll(out, movieService.getSnapshot().getMovies());
+        } else {
+            out.beginObject();
+            out.name("movies");
+            writer.writeAll(out, page.getMovies());
+            out.name("nextCursor");
+            if (page.getNextCursor() != null) {
+                out.value(page.getNextCursor());
+            } else {
+                out.nullValue();
+            }
+            out.endObject();
+        }
+        out.flush();
+        return "";
     }
 
     /**
@@ -150,32 +430,114 @@ public class MovieTicketServer {
     }
 
     /**
-     * Search movies by title endpoint
+     * Search movies by title endpoint (cached per catalog version, supports
+     * If-None-Match). Matching is case-insensitive, so the key is lower case.
      */
-    private static String searchMovies(Request req, Response res) {
-        res.type("application/json");
-        String query = req.params(":query");
-        List<Movie> movies = movieService.searchMoviesByTitle(query);
-        return gson.toJson(movies);
+    private static Object searchMovies(Request req, Response res) {
+        String query = req.params(":query").toLowerCase();
+        return queryCache.serve(req, res, "search", query, movieService.getLookupVersion(),
+                () -> gson.toJson(movieService.searchMoviesByTitle(query)));
     }
 
     /**
-     * Get movies by genre endpoint
+     * Ranked full-text search endpoint, e.g. /api/movies/search?q=shawshank+redemtion&limit=10
+     * (cached per catalog version, supports If-None-Match)
      */
-    private static String getMoviesByGenre(Request req, Response res) {
-        res.type("application/json");
-        String genre = req.params(":genre");
-        List<Movie> movies = movieService.getMoviesByGenre(genre);
-        return gson.toJson(movies);
+    private static Object fullTextSearch(Request req, Response res) {
+        String q = req.queryParams("q");
+        String limitParam = req.queryParams("limit");
+        try {
+            if (q == null || q.trim().isEmpty()) {
+                throw new IllegalArgumentException("q is required");
+            }
+            String query = q.trim().toLowerCase();
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_SEARCH_LIMIT;
+            return queryCache.serve(req, res, "fulltext", limit + " " + query, movieService.getLookupVersion(),
+                    () -> gson.toJson(movieService.searchMovies(query, limit)));
+        } catch (IllegalArgumentException e) {
+            res.type("application/json");
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
+        }
     }
 
     /**
-     * Get all genres endpoint
+     * Attribute query endpoint, e.g.
+     * /api/movies/query?genre=Drama&minReleaseYear=2016&maxPrice=11.99&sort=rating&order=desc&limit=20
      */
-    private static String getAllGenres(Request req, Response res) {
+    private static String queryMovies(Request req, Response res) {
         res.type("application/json");
-        List<String> genres = movieService.getAllGenres();
-        return gson.toJson(genres);
+        try {
+            QueryResult result = movieService.queryMovies(parseQuery(req));
+            res.header("X-Query-Plan", result.getPlan());
+            return gson.toJson(result.getMovies());
+        } catch (IllegalArgumentException e) {
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
+        }
+    }
+
+    /**
+     * Build a MovieQuery from min/max range parameters (minRating, maxReleaseYear, ...),
+     * genre, director, cast, sort, order and limit
+     */
+    private static MovieQuery parseQuery(Request req) {
+        MovieQuery query = new MovieQuery();
+        for (MovieQuery.Field field : MovieQuery.Field.values()) {
+            String name = field.getParamName();
+            String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            String min = req.queryParams("min" + suffix);
+            String max = req.queryParams("max" + suffix);
+            if (min != null) {
+                query.setMin(field, Double.parseDouble(min));
+            }
+            if (max != null) {
+                query.setMax(field, Double.parseDouble(max));
+            }
+        }
+        query.setGenre(req.queryParams("genre"));
+        query.setDirector(req.queryParams("director"));
+        query.setCastMember(req.queryParams("cast"));
+        if (req.queryParams("sort") != null) {
+            query.setSortBy(MovieQuery.Field.fromParamName(req.queryParams("sort")));
+        }
+        String order = req.queryParams("order");
+        if (order != null) {
+            if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+                throw new IllegalArgumentException("order must be asc or desc");
+            }
+            query.setDescending(order.equalsIgnoreCase("desc"));
+        }
+        if (req.queryParams("limit") != null) {
+            query.setLimit(Integer.parseInt(req.queryParams("limit")));
+        }
+        return query;
+    }
+
+    /**
+     * Get movies by genre endpoint (cached per catalog version, supports
+     * If-None-Match). Genres match case-insensitively, so the key is lower case.
+     */
+    private static Object getMoviesByGenre(Request req, Response res) {
+        String genre = req.params(":genre").toLowerCase();
+        return queryCache.serve(req, res, "genre", genre, movieService.getLookupVersion(),
+                () -> gson.toJson(movieService.getMoviesByGenre(genre)));
+    }
+
+    /**
+     * Get all genres endpoint (cached per catalog version, supports If-None-Match).
+     * The list comes from the genre index, so it is keyed on the lookup version.
+     */
+    private static Object getAllGenres(Request req, Response res) {
+        long version = movieService.getLookupVersion();
+        return responseCache.serve(req, res, "genres", version,
+                () -> gson.toJson(movieService.getAllGenres()));
     }
 
     /**
@@ -203,6 +565,58 @@ public class MovieTicketServer {
         }
     }
 
+    /**
+     * Batch endpoint: a JSON array of {"op", "id", "movie"} operations, applied
+     * all-or-nothing with one persistence write
+     */
+    private static String applyBatch(Request req, Response res) {
+        res.type("application/json");
+        try {
+            BatchOperation[] operations = gson.fromJson(req.body(), BatchOperation[].class);
+            BatchResult result = movieService.applyBatch(operations != null ? Arrays.asList(operations) : null);
+            res.status(result.isApplied() ? 200 : 400);
+            return gson.toJson(result);
+        } catch (IllegalArgumentException | JsonParseException e) {
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
+        }
+    }
+
+    /**
+     * Export endpoint: one movie per line, streamed from a single snapshot
+     * straight to the response, so memory use does not grow with the catalog
+     */
+    private static Object exportMovies(Request req, Response res) throws IOException {
+        CatalogSnapshot snapshot = movieService.getSnapshot();
+        HttpServletResponse raw = res.raw();
+        raw.setContentType("application/x-ndjson");
+        raw.setCharacterEncoding("UTF-8");
+        raw.setHeader("Content-Disposition", "attachment; filename=\"movies.ndjson\"");
+        raw.setHeader("X-Catalog-Version", String.valueOf(snapshot.getVersion()));
+        MovieNdjson.write(snapshot.getMovies(), raw.getWriter());
+        return "";
+    }
+
+    /**
+     * Import endpoint: parses the upload as it arrives and upserts it in batches
+     */
+    private static String importMovies(Request req, Response res) throws IOException {
+        res.type("application/json");
+        // Spark's request wrapper reads the whole body into a byte array on
+        // first access, so read the underlying servlet request's stream instead
+        ServletRequest raw = req.raw();
+        while (raw instanceof ServletRequestWrapper) {
+            raw = ((ServletRequestWrapper) raw).getRequest();
+        }
+        Reader body = new BufferedReader(new InputStreamReader(raw.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        ImportResult result = movieService.importMovies(MovieNdjson.read(body));
+        res.status(result.isComplete() ? 200 : 400);
+        return gson.toJson(result);
+    }
+
     /**
      * Update an existing movie endpoint
      */
@@ -252,58 +666,269 @@ public class MovieTicketServer {
     }
 
     /**
-     * Reload movies from file endpoint
+     * Showtimes of one movie, earliest first
      */
-    private static String reloadMovies(Request req, Response res) {
+    private static String getShowtimesForMovie(Request req, Response res) {
         res.type("application/json");
-        movieService.reloadMovies();
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "success");
-        response.put("message", "Movies reloaded from file");
-        return gson.toJson(response);
+        String id = req.params(":id");
+        if (movieService.getMovieById(id) == null) {
+            res.status(404);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Movie not found");
+            error.put("id", id);
+            return gson.toJson(error);
+        }
+        return gson.toJson(showtimeService.getShowtimesForMovie(id));
     }
 
     /**
-     * Serve static files (HTML, CSS, JS)
+     * Schedule a showtime: {"movieId", "startsAt", "auditorium", "rows", "seatsPerRow", "price"}
      */
-    private static String serveStaticFile(Request req, Response res) {
-        String fileName = req.pathInfo();
-        if (fileName.startsWith("/")) {
-            fileName = fileName.substring(1);
+    private static String createShowtime(Request req, Response res) {
+        res.type("application/json");
+        try {
+            Showtime showtime = gson.fromJson(req.body(), Showtime.class);
+            if (showtime == null) {
+                throw new IllegalArgumentException("Showtime is required");
+            }
+            Showtime created = showtimeService.createShowtime(showtime);
+            res.status(201); // Created
+            return gson.toJson(created);
+        } catch (IllegalArgumentException | JsonParseException e) {
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
         }
+    }
 
-        System.out.println("Serving static file: " + fileName);
+    /**
+     * A showtime with its seat map, one string per row ('.' free, 'X' taken)
+     */
+    private static String getShowtime(Request req, Response res) {
+        res.type("application/json");
+        String id = req.params(":id");
+        Showtime showtime = showtimeService.getShowtime(id);
+        if (showtime == null) {
+            return showtimeNotFound(res, id);
+        }
+        SeatInventory seats = showtimeService.getSeats(id);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("showtime", showtime);
+        response.put("capacity", seats.capacity());
+        response.put("available", seats.available());
+        response.put("seatMap", seats.seatMap());
+        return gson.toJson(response);
+    }
 
-        String filePath = "src/main/resources/static/" + fileName;
-        File file = new File(filePath);
+    /**
+     * Buy seats all-or-nothing: {"seats": ["C5", "C6"]}. The result carries the
+     * order id; 409 if any seat is taken.
+     */
+    private static String claimSeats(Request req, Response res) {
+        res.type("application/json");
+        String id = req.params(":id");
+        try {
+            SeatClaimResult result = showtimeService.claimSeats(id, parseSeats(req));
+            if (result == null) {
+                return showtimeNotFound(res, id);
+            }
+            res.status(result.isClaimed() ? 200 : 409); // Conflict
+            return gson.toJson(result);
+        } catch (IllegalArgumentException | JsonParseException e) {
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
+        }
+    }
 
-        System.out.println("Looking for file at: " + file.getAbsolutePath());
+    private static String getOrder(Request req, Response res) {
+        res.type("application/json");
+        Order order = showtimeService.getOrder(req.params(":id"));
+        return order != null ? gson.toJson(order) : orderNotFound(res, req.params(":id"));
+    }
 
-        if (!file.exists()) {
-            res.status(404);
-            System.err.println("File not found: " + file.getAbsolutePath());
-            return "File not found: " + fileName + " (looked at: " + file.getAbsolutePath() + ")";
+    /**
+     * Refund an order and free its seats. 409 if it was already refunded.
+     */
+    private static String refundOrder(Request req, Response res) {
+        res.type("application/json");
+        String id = req.params(":id");
+        try {
+            Order order = showtimeService.refundOrder(id);
+            return order != null ? gson.toJson(order) : orderNotFound(res, id);
+        } catch (IllegalStateException e) {
+            res.status(409); // Conflict
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Conflict");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
         }
+    }
+
+    private static String orderNotFound(Response res, String id) {
+        res.status(404);
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Order not found");
+        error.put("id", id);
+        return gson.toJson(error);
+    }
 
+    /**
+     * Hold seats during checkout: {"seats": ["C5", "C6"]}. 201 with the hold id
+     * and expiry, 409 if any seat is taken.
+     */
+    private static String holdSeats(Request req, Response res) {
+        res.type("application/json");
+        String id = req.params(":id");
         try {
-            String content = new String(Files.readAllBytes(Paths.get(filePath)));
-
-            // Set content type based on file extension
-            if (fileName.endsWith(".html")) {
-                res.type("text/html");
-            } else if (fileName.endsWith(".css")) {
-                res.type("text/css");
-            } else if (fileName.endsWith(".js")) {
-                res.type("application/javascript");
+            SeatClaimResult result = holdService.holdSeats(id, parseSeats(req));
+            if (result == null) {
+                return showtimeNotFound(res, id);
             }
+            res.status(result.isClaimed() ? 201 : 409); // Created or Conflict
+            return gson.toJson(result);
+        } catch (IllegalArgumentException | JsonParseException e) {
+            res.status(400); // Bad Request
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Bad Request");
+            error.put("message", e.getMessage());
+            return gson.toJson(error);
+        }
+    }
 
-            System.out.println("Successfully served: " + fileName + " (" + content.length() + " bytes)");
-            return content;
-        } catch (IOException e) {
-            res.status(500);
-            System.err.println("Error reading file: " + e.getMessage());
-            return "Error reading file: " + e.getMessage();
+    private static String getHold(Request req, Response res) {
+        res.type("application/json");
+        SeatHold hold = holdService.getHold(req.params(":id"));
+        return hold != null ? gson.toJson(holdJson(hold, "held")) : holdNotFound(res, req.params(":id"));
+    }
+
+    /**
+     * Complete checkout for a hold; returns the order the seats now belong to
+     */
+    private static String confirmHold(Request req, Response res) {
+        res.type("application/json");
+        Order order = holdService.confirmHold(req.params(":id"));
+        return order != null ? gson.toJson(order) : holdNotFound(res, req.params(":id"));
+    }
+
+    /**
+     * Abandon checkout for a hold and free its seats
+     */
+    private static String cancelHold(Request req, Response res) {
+        res.type("application/json");
+        SeatHold hold = holdService.cancelHold(req.params(":id"));
+        return hold != null ? gson.toJson(holdJson(hold, "cancelled")) : holdNotFound(res, req.params(":id"));
+    }
+
+    private static String getHoldMetrics(Request req, Response res) {
+        res.type("application/json");
+        return gson.toJson(holdService.getMetrics());
+    }
+
+    private static Map<String, Object> holdJson(SeatHold hold, String status) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("holdId", hold.getId());
+        json.put("showtimeId", hold.getShowtimeId());
+        json.put("seats", hold.getSeats());
+        json.put("expiresAt", hold.getExpiresAt());
+        json.put("status", status);
+        return json;
+    }
+
+    private static String holdNotFound(Response res, String id) {
+        res.status(404);
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Hold not found");
+        error.put("message", "Hold " + id + " does not exist, has expired or was already completed");
+        return gson.toJson(error);
+    }
+
+    private static List<String> parseSeats(Request req) {
+        SeatSelection selection = gson.fromJson(req.body(), SeatSelection.class);
+        return selection != null ? selection.seats : null;
+    }
+
+    private static String showtimeNotFound(Response res, String id) {
+        res.status(404);
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Showtime not found");
+        error.put("id", id);
+        return gson.toJson(error);
+    }
+
+    /**
+     * Request body of the claim and hold endpoints
+     */
+    private static class SeatSelection {
+        List<String> seats;
+    }
+
+    /**
+     * Per-route request counts, errors, bytes, rates and latency percentiles.
+     * Prometheus text format with ?format=prometheus or an Accept header that
+     * asks for text/plain or OpenMetrics, JSON otherwise.
+     */
+    private static String getMetrics(Request req, Response res) {
+        String format = req.queryParams("format");
+        String accept = req.headers("Accept");
+        boolean prometheus = format != null ? format.equals("prometheus")
+                : accept != null && (accept.contains("text/plain") || accept.contains("application/openmetrics-text"));
+        if (prometheus) {
+            res.type("text/plain; version=0.0.4; charset=utf-8");
+            String text = routeMetrics.toPrometheus() + queryCache.toPrometheus()
+                    + "# HELP movieticket_change_stream_subscribers Open /api/movies/changes streams\n"
+                    + "# TYPE movieticket_change_stream_subscribers gauge\n"
+                    + "movieticket_change_stream_subscribers " + changeStream.getSubscriberCount() + "\n";
+            return admission != null ? text + admission.toPrometheus() : text;
         }
+        res.type("application/json");
+        Map<String, Object> metrics = routeMetrics.toJson();
+        metrics.put("queryCache", queryCache.toJson());
+        metrics.put("changeStreamSubscribers", changeStream.getSubscriberCount());
+        if (admission != null) {
+            metrics.put("admission", admission.toJson());
+        }
+        return gson.toJson(metrics);
+    }
+
+    /**
+     * Reload movies from file endpoint
+     */
+    private static String reloadMovies(Request req, Response res) {
+        res.type("application/json");
+        movieService.reloadMovies();
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("message", "Movies reloaded from file");
+        return gson.toJson(response);
+    }
+
+    /**
+     * Admit requests through adaptive read and write concurrency limits and
+     * answer the rest with 503 and Retry-After. Health checks, metrics and
+     * the change stream (an EventSource gives up on a 503) always get through.
+     */
+    private static void enableAdmissionControl() {
+        admission = new AdmissionController(ADMISSION_READ_LIMIT, ADMISSION_WRITE_LIMIT, ADMISSION_MAX_QUEUE_MS,
+                "/api/health", "/api/metrics", "/api/movies/changes");
+        System.out.println("Admission control: reads start at " + ADMISSION_READ_LIMIT + ", writes at "
+                + ADMISSION_WRITE_LIMIT + " concurrent requests (queue limit " + ADMISSION_MAX_QUEUE_MS + " ms)");
+
+        before((request, response) -> {
+            if (!admission.admit(request)) {
+                response.header("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                response.type("application/json");
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Service Unavailable");
+                error.put("message", "The server is busy, retry in " + RETRY_AFTER_SECONDS + " second(s)");
+                halt(503, gson.toJson(error));
+            }
+        });
+        afterAfter(admission::release);
     }
 
     /**
@@ -0,0 +1,233 @@
+package com.movieticket.server;
+
+import spark.Request;
+import spark.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caches the JSON of parameterized lookups (title search, genre) keyed by
+ * route, normalized parameter and catalog version.
+ *
+ * Unlike ResponseCache, which keeps one body per endpoint, this holds many
+ * keys, so it is a bounded LRU. A mutation publishes a new catalog version,
+ * which no older key matches; entries of older versions are dropped as soon
+ * as a newer one is stored.
+ *
+ * Identical lookups that miss at the same time are computed once: the first
+ * renders the body and the others wait for it (single flight), so a burst of
+ * the same search costs one index lookup and one serialization.
+ */
+class QueryCache {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock(); // LinkedHashMap in access order changes on get
+    private final LinkedHashMap<Key, CachedBody> entries;  // guarded by lock
+    private long newestVersion;                            // guarded by lock
+    private final ConcurrentHashMap<Key, CompletableFuture<CachedBody>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Key {
+        final String route;
+        final String parameter;
+        final long version;
+
+        Key(String route, String parameter, long version) {
+            this.route = route;
+            this.parameter = parameter;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && route.equals(other.route) && parameter.equals(other.parameter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(route, parameter, version);
+        }
+    }
+
+    private static final class CachedBody {
+        final byte[] body;
+        final String etag;
+
+        CachedBody(byte[] body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    /**
+     * @param capacity most results kept; 0 keeps none but still coalesces
+     *        identical lookups in flight
+     */
+    QueryCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, CachedBody>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedBody> eldest) {
+                if (size() > QueryCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Serve a cached JSON body, rendering it first (once, however many
+     * requests ask at the same time) on a miss.
+     *
+     * @param route identifies the lookup, e.g. "search"
+     * @param parameter the lookup's parameter, already normalized so that
+     *        equivalent requests share a key
+     * @param version catalog version the render is guaranteed to reflect
+     * @param render produces the JSON on a miss
+     * @return the body bytes, or an empty body for a 304
+     */
+    Object serve(Request req, Response res, String route, String parameter, long version, Supplier<String> render) {
+        CachedBody entry = lookup(new Key(route, parameter, version), render);
+        res.type("application/json");
+        res.header("ETag", entry.etag);
+        res.header("Cache-Control", "no-cache");
+        if (ResponseCache.matches(req.headers("If-None-Match"), entry.etag)) {
+            res.status(304);
+            return "";
+        }
+        return entry.body;
+    }
+
+    private CachedBody lookup(Key key, Supplier<String> render) {
+        CachedBody entry = get(key);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+
+        CompletableFuture<CachedBody> mine = new CompletableFuture<>();
+        CompletableFuture<CachedBody> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            // The previous flight may have finished between get and putIfAbsent
+            entry = get(key);
+            if (entry != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                byte[] body = render.get().getBytes(StandardCharsets.UTF_8);
+                entry = new CachedBody(body, ResponseCache.etagOf(body));
+                put(key, entry);
+            }
+            mine.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine); // after put, so no request misses both
+        }
+    }
+
+    private CachedBody get(Key key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Key key, CachedBody entry) {
+        lock.lock();
+        try {
+            if (key.version < newestVersion) {
+                return; // rendered for a version that has already been superseded
+            }
+            if (key.version > newestVersion) {
+                newestVersion = key.version;
+                for (Iterator<Key> keys = entries.keySet().iterator(); keys.hasNext(); ) {
+                    if (keys.next().version < newestVersion) {
+                        keys.remove();
+                        invalidations.increment();
+                    }
+                }
+            }
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counters as a JSON-ready map
+     */
+    Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            json.put("size", entries.size());
+        } finally {
+            lock.unlock();
+        }
+        json.put("capacity", capacity);
+        json.put("hits", hits.sum());
+        json.put("misses", misses.sum());
+        json.put("coalesced", coalesced.sum());
+        json.put("evictions", evictions.sum());
+        json.put("invalidations", invalidations.sum());
+        return json;
+    }
+
+    /**
+     * Counters in the Prometheus text exposition format
+     */
+    String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP movieticket_query_cache_requests_total Cached lookups by outcome\n");
+        out.append("# TYPE movieticket_query_cache_requests_total counter\n");
+        out.append("movieticket_query_cache_requests_total{outcome=\"hit\"} ").append(hits.sum()).append('\n');
+        out.append("movieticket_query_cache_requests_total{outcome=\"miss\"} ").append(misses.sum()).append('\n');
+        out.append("movieticket_query_cache_requests_total{outcome=\"coalesced\"} ").append(coalesced.sum()).append('\n');
+        out.append("# HELP movieticket_query_cache_removals_total Entries removed, by reason\n");
+        out.append("# TYPE movieticket_query_cache_removals_total counter\n");
+        out.append("movieticket_query_cache_removals_total{reason=\"eviction\"} ").append(evictions.sum()).append('\n');
+        out.append("movieticket_query_cache_removals_total{reason=\"invalidation\"} ").append(invalidations.sum()).append('\n');
+        out.append("# HELP movieticket_query_cache_entries Entries in the query cache\n");
+        out.append("# TYPE movieticket_query_cache_entries gauge\n");
+        lock.lock();
+        try {
+            out.append("movieticket_query_cache_entries ").append(entries.size()).append('\n');
+        } finally {
+            lock.unlock();
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,171 @@
+package com.movieticket.server;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.ExceptionMapper;
+import spark.embeddedserver.EmbeddedServer;
+import spark.embeddedserver.EmbeddedServerFactory;
+import spark.embeddedserver.jetty.EmbeddedJettyServer;
+import spark.embeddedserver.jetty.JettyHandler;
+import spark.embeddedserver.jetty.JettyServerFactory;
+import spark.http.matching.MatcherFilter;
+import spark.route.Routes;
+import spark.staticfiles.StaticFilesConfiguration;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Builds Spark's embedded Jetty server for one threading mode.
+ *
+ * In platform mode Jetty's QueuedThreadPool runs every request handler, as
+ * Spark does by default. In virtual mode that pool only accepts connections
+ * and parses requests: Spark's route matching and the handler run on a new
+ * virtual thread per request, with the request in async mode until it is
+ * done, so a handler blocked on file I/O holds no pool thread. Virtual threads
+ * need Java 21 while the project compiles for 11, so they are looked up
+ * reflectively; see {@link #virtualThreadExecutor()}.
+ */
+final class RequestThreading implements EmbeddedServerFactory, JettyServerFactory {
+    /**
+     * Request attribute a handler sets when it keeps the response open after
+     * returning (an event stream), so the hand-off does not complete it
+     */
+    static final String KEEP_OPEN = RequestThreading.class.getName() + ".keepOpen";
+
+    private final ExecutorService handlerExecutor; // null: handlers run on Jetty's pool
+    private final int acceptQueueSize;
+
+    /**
+     * @param handlerExecutor runs each request handler, or null for Jetty's pool
+     * @param acceptQueueSize listen backlog of the connector, 0 for the OS default
+     */
+    RequestThreading(ExecutorService handlerExecutor, int acceptQueueSize) {
+        this.handlerExecutor = handlerExecutor;
+        this.acceptQueueSize = acceptQueueSize;
+    }
+
+    /**
+     * Same as Spark's EmbeddedJettyFactory, with the hand-off in front of
+     * the route matcher
+     */
+    @Override
+    public EmbeddedServer create(Routes routes, StaticFilesConfiguration staticFiles,
+                                 ExceptionMapper exceptionMapper, boolean hasMultipleHandler) {
+        MatcherFilter matcher = new MatcherFilter(routes, staticFiles, exceptionMapper, false, hasMultipleHandler);
+        matcher.init(null);
+        JettyHandler handler = new JettyHandler(handlerExecutor == null ? matcher : new HandOffFilter(matcher, handlerExecutor));
+        handler.getSessionCookieConfig().setHttpOnly(true);
+        return new EmbeddedJettyServer(this, handler);
+    }
+
+    /**
+     * Same pool sizing as Spark's own factory, except that a maximum below
+     * Spark's default minimum of 8 threads lowers the minimum instead of failing
+     */
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        if (maxThreads <= 0) {
+            return create(new QueuedThreadPool());
+        }
+        return create(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : Math.min(8, maxThreads),
+                threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000));
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        return new Server(threadPool) {
+            @Override
+            public void setConnectors(Connector[] connectors) {
+                if (acceptQueueSize > 0 && connectors != null) {
+                    for (Connector connector : connectors) {
+                        if (connector instanceof ServerConnector) {
+                            ((ServerConnector) connector).setAcceptQueueSize(acceptQueueSize);
+                        }
+                    }
+                }
+                super.setConnectors(connectors);
+            }
+        };
+    }
+
+    /**
+     * An executor that starts a new virtual thread per task, named
+     * "request-N", or null when this JVM has no virtual threads (before 21)
+     */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "request-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs the rest of the filter chain on another executor. Jetty's thread
+     * returns as soon as the request is in async mode; the response completes
+     * when the chain finishes on its own thread.
+     */
+    static final class HandOffFilter implements Filter {
+        private final Filter next;
+        private final ExecutorService executor;
+
+        HandOffFilter(Filter next, ExecutorService executor) {
+            this.next = next;
+            this.executor = executor;
+        }
+
+        @Override
+        public void init(FilterConfig config) {
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) {
+            AsyncContext async = request.startAsync();
+            async.setTimeout(0); // handlers are not cut off; the client's timeout applies
+            try {
+                executor.execute(() -> {
+                    try {
+                        next.doFilter(request, response, chain);
+                    } catch (Throwable e) {
+                        // Spark maps route exceptions itself; this is a failure around them
+                        System.err.println("Request failed: " + e);
+                        if (!response.isCommitted()) {
+                            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                        }
+                    } finally {
+                        if (request.getAttribute(KEEP_OPEN) == null) {
+                            async.complete();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                async.complete();
+            }
+        }
+
+        @Override
+        public void destroy() {
+            executor.shutdown();
+            next.destroy();
+        }
+    }
+}
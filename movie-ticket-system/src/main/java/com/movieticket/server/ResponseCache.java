@@ -0,0 +1,99 @@
+package com.movieticket.server;
+
+import spark.Request;
+import spark.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches serialized JSON responses per catalog version.
+ *
+ * Read endpoints like GET /api/movies return the same bytes until the catalog
+ * changes, so the body is rendered once per catalog version and reused. Every
+ * mutation or reload publishes a new version, which makes older entries miss.
+ *
+ * Each body carries a strong ETag derived from its content, so clients that
+ * send If-None-Match get a 304 with no body at all. Because the tag is a
+ * content hash it stays valid across server restarts.
+ */
+class ResponseCache {
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        final long version;
+        final byte[] body;
+        final String etag;
+
+        Entry(long version, byte[] body, String etag) {
+            this.version = version;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    /**
+     * Serve a cached JSON body, rendering it first if the catalog has changed.
+     *
+     * @param key identifies the endpoint (and its parameters, if any)
+     * @param version current catalog version
+     * @param render produces the JSON for that version on a miss
+     * @return the body bytes, or an empty body for a 304
+     */
+    Object serve(Request req, Response res, String key, long version, Supplier<String> render) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.version != version) {
+            byte[] body = render.get().getBytes(StandardCharsets.UTF_8);
+            Entry rendered = new Entry(version, body, etagOf(body));
+            // Never let a slow render replace an entry for a newer version
+            entry = entries.merge(key, rendered, (old, fresh) -> old.version > fresh.version ? old : fresh);
+        }
+
+        res.type("application/json");
+        res.header("ETag", entry.etag);
+        res.header("Cache-Control", "no-cache");
+        if (matches(req.headers("If-None-Match"), entry.etag)) {
+            res.status(304);
+            return "";
+        }
+        return entry.body;
+    }
+
+    /**
+     * Check an If-None-Match header, which may list several tags or be "*"
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // weak comparison is allowed for If-None-Match
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strong ETag: quoted, truncated SHA-256 of the body
+     */
+    static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder tag = new StringBuilder("\"");
+            for (int i = 0; i < 12; i++) {
+                tag.append(String.format("%02x", digest[i]));
+            }
+            return tag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
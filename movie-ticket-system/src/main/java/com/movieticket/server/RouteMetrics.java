@@ -0,0 +1,185 @@
+package com.movieticket.server;
+
+import spark.Response;
+import spark.Route;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Request metrics for every route: latency histogram, client and server
+ * errors, response bytes and request rate.
+ *
+ * Routes are wrapped when they are registered, so each request goes straight
+ * to its route's RouteStats without a lookup, and recording takes no locks.
+ * Latency is the time spent in the handler. Bytes are what the handler
+ * streamed itself plus the body it returned for Spark to write.
+ */
+public final class RouteMetrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final long origin = System.nanoTime();
+    private final List<RouteStats> routes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Wrap a route so its requests are recorded
+     */
+    public Route timed(String method, String path, Route route) {
+        RouteStats stats = new RouteStats(method, path);
+        routes.add(stats);
+        return (req, res) -> {
+            long start = System.nanoTime();
+            Object body;
+            try {
+                body = route.handle(req, res);
+            } catch (Exception e) {
+                long end = System.nanoTime();
+                stats.record(end - start, 500, 0, second(end));
+                throw e;
+            }
+            long end = System.nanoTime();
+            stats.record(end - start, res.raw().getStatus(), streamed(res) + sizeOf(body), second(end));
+            return body;
+        };
+    }
+
+    public List<RouteStats> getRoutes() {
+        return new ArrayList<>(routes);
+    }
+
+    /**
+     * Metrics as a JSON-ready map, latencies in microseconds
+     */
+    public Map<String, Object> toJson() {
+        long second = second(System.nanoTime());
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (RouteStats stats : routes) {
+            LatencyHistogram.Snapshot latency = stats.getLatency();
+            Map<String, Object> micros = new LinkedHashMap<>();
+            micros.put("mean", micros(latency.getMean()));
+            for (int i = 0; i < QUANTILES.length; i++) {
+                micros.put(QUANTILE_NAMES[i], micros(latency.getValueAt(QUANTILES[i])));
+            }
+            micros.put("max", micros(latency.getMax()));
+
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("method", stats.getMethod());
+            route.put("route", stats.getPath());
+            route.put("requests", latency.getCount());
+            route.put("clientErrors", stats.getClientErrors());
+            route.put("serverErrors", stats.getServerErrors());
+            route.put("bytesOut", stats.getBytesOut());
+            route.put("requestsPerSecond", stats.getRate(second));
+            route.put("latencyMicros", micros);
+            list.add(route);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("uptimeSeconds", second);
+        json.put("rateWindowSeconds", RouteStats.RATE_WINDOW_SECONDS);
+        json.put("routes", list);
+        return json;
+    }
+
+    /**
+     * Metrics in the Prometheus text exposition format, latencies in seconds
+     */
+    public String toPrometheus() {
+        List<RouteStats> all = getRoutes();
+        List<LatencyHistogram.Snapshot> latencies = new ArrayList<>();
+        for (RouteStats stats : all) {
+            latencies.add(stats.getLatency());
+        }
+        StringBuilder out = new StringBuilder();
+
+        header(out, "movieticket_http_requests_total", "counter", "Requests handled, by route");
+        for (int i = 0; i < all.size(); i++) {
+            sample(out, "movieticket_http_requests_total", all.get(i), null, latencies.get(i).getCount());
+        }
+        header(out, "movieticket_http_errors_total", "counter", "Requests answered with a 4xx (client) or 5xx (server) status");
+        for (RouteStats stats : all) {
+            sample(out, "movieticket_http_errors_total", stats, "class=\"client\"", stats.getClientErrors());
+            sample(out, "movieticket_http_errors_total", stats, "class=\"server\"", stats.getServerErrors());
+        }
+        header(out, "movieticket_http_response_bytes_total", "counter", "Response body bytes sent");
+        for (RouteStats stats : all) {
+            sample(out, "movieticket_http_response_bytes_total", stats, null, stats.getBytesOut());
+        }
+        header(out, "movieticket_http_request_duration_seconds", "summary", "Time spent in the route handler");
+        for (int i = 0; i < all.size(); i++) {
+            LatencyHistogram.Snapshot latency = latencies.get(i);
+            for (double quantile : QUANTILES) {
+                // Prometheus expects NaN for quantiles of an empty summary
+                sample(out, "movieticket_http_request_duration_seconds", all.get(i), "quantile=\"" + quantile + "\"",
+                        latency.getCount() == 0 ? "NaN" : seconds(latency.getValueAt(quantile)));
+            }
+            sample(out, "movieticket_http_request_duration_seconds_sum", all.get(i), null, seconds(latency.getSum()));
+            sample(out, "movieticket_http_request_duration_seconds_count", all.get(i), null, latency.getCount());
+        }
+        return out.toString();
+    }
+
+    private long second(long nanoTime) {
+        return (nanoTime - origin) / 1_000_000_000L;
+    }
+
+    /**
+     * Bytes a handler wrote to the response itself, if the container can tell
+     */
+    private static long streamed(Response res) {
+        Object raw = res.raw();
+        return raw instanceof org.eclipse.jetty.server.Response
+                ? ((org.eclipse.jetty.server.Response) raw).getHttpOutput().getWritten() : 0;
+    }
+
+    /**
+     * Size of a returned body once Spark writes it as UTF-8
+     */
+    static long sizeOf(Object body) {
+        if (body instanceof byte[]) {
+            return ((byte[]) body).length;
+        }
+        if (!(body instanceof String)) {
+            return 0;
+        }
+        String text = (String) body;
+        long bytes = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Two bytes below U+0800 and per half of a surrogate pair, else three
+                bytes += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return bytes;
+    }
+
+    private static double micros(double nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, RouteStats stats, String extraLabel, Object value) {
+        out.append(name).append("{method=\"").append(stats.getMethod())
+                .append("\",route=\"").append(escape(stats.getPath())).append('"');
+        if (extraLabel != null) {
+            out.append(',').append(extraLabel);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
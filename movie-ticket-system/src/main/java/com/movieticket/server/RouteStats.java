@@ -0,0 +1,100 @@
+package com.movieticket.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of one route.
+ *
+ * The request rate comes from a ring of per-second counts. Each slot packs
+ * the second it belongs to (high 24 bits) with its count (low 40 bits) into
+ * one long, so a slot left over from an earlier lap is recognised and
+ * restarted in the same compare-and-set that counts the request.
+ */
+public final class RouteStats {
+    static final int RATE_WINDOW_SECONDS = 10;
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long SECOND_MASK = (1L << (64 - COUNT_BITS)) - 1;
+
+    private final String method;
+    private final String path;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final AtomicLongArray bySecond = new AtomicLongArray(RATE_WINDOW_SECONDS + 1);
+
+    public RouteStats(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    /**
+     * Record one request
+     *
+     * @param nanos time spent in the handler
+     * @param status response status
+     * @param bytes response body size
+     * @param second current second on the caller's clock, for the request rate
+     */
+    public void record(long nanos, int status, long bytes, long second) {
+        latency.record(nanos);
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+        if (bytes > 0) {
+            bytesOut.add(bytes);
+        }
+
+        int slot = (int) (second % bySecond.length());
+        long stamp = (second & SECOND_MASK) << COUNT_BITS;
+        while (true) {
+            long current = bySecond.get(slot);
+            long next = (current & ~COUNT_MASK) == stamp ? current + 1 : stamp | 1;
+            if (bySecond.compareAndSet(slot, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Requests per second over the last complete seconds of the window
+     */
+    public double getRate(long second) {
+        long total = 0;
+        for (long s = Math.max(0, second - RATE_WINDOW_SECONDS); s < second; s++) {
+            long value = bySecond.get((int) (s % bySecond.length()));
+            if ((value >>> COUNT_BITS) == (s & SECOND_MASK)) {
+                total += value & COUNT_MASK;
+            }
+        }
+        return (double) total / RATE_WINDOW_SECONDS;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public LatencyHistogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    public long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+}
@@ -0,0 +1,221 @@
+package com.movieticket.server;
+
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory cache of the web UI files (HTML, CSS, JS).
+ *
+ * Every file in the static directory is read once, together with a gzip
+ * variant, an ETag per variant and its Last-Modified date, so serving a file
+ * costs no disk I/O. The variants' bytes differ, so they get different strong
+ * ETags. Clients that send If-None-Match or If-Modified-Since get a 304.
+ *
+ * In dev mode a background WatchService reloads a file as soon as it changes
+ * on disk, so edits show up without restarting the server.
+ */
+class StaticAssetCache {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    private final Path root;
+    private final boolean devMode;
+    private final ConcurrentHashMap<String, Asset> assets = new ConcurrentHashMap<>();
+
+    private static final class Asset {
+        final byte[] body;
+        final byte[] gzipBody; // null when compression does not make it smaller
+        final String contentType;
+        final String etag;
+        final String gzipEtag;
+        final long lastModifiedSeconds;
+        final String lastModified;
+
+        Asset(byte[] body, byte[] gzipBody, String contentType, long lastModifiedMillis) {
+            this.body = body;
+            this.gzipBody = gzipBody;
+            this.contentType = contentType;
+            this.etag = ResponseCache.etagOf(body);
+            this.gzipEtag = gzipBody != null ? ResponseCache.etagOf(gzipBody) : null;
+            this.lastModifiedSeconds = lastModifiedMillis / 1000;
+            this.lastModified = HTTP_DATE.format(
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(lastModifiedSeconds), ZoneOffset.UTC));
+        }
+    }
+
+    StaticAssetCache(Path root, boolean devMode) {
+        this.root = root;
+        this.devMode = devMode;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    load(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading static files from " + root.toAbsolutePath() + ": " + e.getMessage());
+        }
+        System.out.println("Cached " + assets.size() + " static files from " + root.toAbsolutePath());
+
+        if (devMode) {
+            startWatcher();
+        }
+    }
+
+    /**
+     * Serve the file named by the request path
+     */
+    Object serve(Request req, Response res) throws IOException {
+        String fileName = req.pathInfo();
+        if (fileName.startsWith("/")) {
+            fileName = fileName.substring(1);
+        }
+
+        Asset asset = assets.get(fileName);
+        if (asset == null) {
+            res.status(404);
+            return "File not found: " + fileName;
+        }
+
+        boolean gzip = asset.gzipBody != null && acceptsGzip(req.headers("Accept-Encoding"));
+        String etag = gzip ? asset.gzipEtag : asset.etag;
+        res.header("ETag", etag);
+        res.header("Last-Modified", asset.lastModified);
+        res.header("Cache-Control", devMode || fileName.endsWith(".html") ? "no-cache" : "public, max-age=300");
+        res.header("Vary", "Accept-Encoding");
+        if (notModified(req, asset, etag)) {
+            res.status(304);
+            return "";
+        }
+
+        byte[] body = gzip ? asset.gzipBody : asset.body;
+
+        // Write the cached bytes ourselves: Spark would gzip the body a second
+        // time if it saw Content-Encoding: gzip on a returned value
+        HttpServletResponse raw = res.raw();
+        raw.setContentType(asset.contentType);
+        if (gzip) {
+            raw.setHeader("Content-Encoding", "gzip");
+        }
+        raw.setContentLength(body.length);
+        ServletOutputStream out = raw.getOutputStream();
+        out.write(body);
+        out.flush();
+        return "";
+    }
+
+    /**
+     * @param etag the tag of the variant being served
+     */
+    private boolean notModified(Request req, Asset asset, String etag) {
+        String ifNoneMatch = req.headers("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ResponseCache.matches(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = req.headers("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, HTTP_DATE).toEpochSecond();
+                return asset.lastModifiedSeconds <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    /**
+     * (Re)load one file into the cache, or drop it if it is gone
+     */
+    private void load(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            byte[] body = Files.readAllBytes(file);
+            byte[] gzipBody = gzip(body);
+            assets.put(name, new Asset(body, gzipBody.length < body.length ? gzipBody : null,
+                    contentTypeOf(name), Files.getLastModifiedTime(file).toMillis()));
+        } catch (IOException e) {
+            assets.remove(name);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String contentTypeOf(String fileName) {
+        if (fileName.endsWith(".html")) {
+            return "text/html";
+        } else if (fileName.endsWith(".css")) {
+            return "text/css";
+        } else if (fileName.endsWith(".js")) {
+            return "application/javascript";
+        }
+        return "application/octet-stream";
+    }
+
+    /**
+     * Dev mode: reload files as they change on disk
+     */
+    private void startWatcher() {
+        try {
+            WatchService watcher = FileSystems.getDefault().newWatchService();
+            root.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            Thread thread = new Thread(() -> watch(watcher), "static-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            System.out.println("Dev mode: watching " + root.toAbsolutePath() + " for changes");
+        } catch (IOException e) {
+            System.err.println("Could not watch static files: " + e.getMessage());
+        }
+    }
+
+    private void watch(WatchService watcher) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path) {
+                        Path file = root.resolve((Path) event.context());
+                        load(file);
+                        System.out.println("Reloaded static file: " + file.getFileName());
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Secondary indexes for MovieQuery: one sorted column per numeric field
+ * (release year, rating, price, duration) and case-folded director and cast
+ * member -> movies multimaps.
+ *
+ * Columns are sorted by (value, id), so a range predicate is two binary
+ * searches and walking a column gives movies in exactly the order a query
+ * sorted on that field wants. The planner estimates how many rows each access
+ * path would touch and picks the cheapest:
+ * <ul>
+ *   <li>walk the sort field's column in order, filtering, and stop after
+ *       limit matches (good when the other predicates are not selective), or</li>
+ *   <li>take the smallest candidate set (a range, genre, director or cast
+ *       member), filter it and keep the top limit in a heap.</li>
+ * </ul>
+ *
+ * As with the other indexes, only MovieService's writer modifies it and every
+ * published array is replaced rather than changed, so queries never lock.
+ */
+final class AttributeIndex {
+    private static final MovieQuery.Field[] FIELDS = MovieQuery.Field.values();
+    private static final Movie[] NO_MOVIES = new Movie[0];
+
+    private final AtomicReferenceArray<Column> columns = new AtomicReferenceArray<>(FIELDS.length);
+    private final ConcurrentHashMap<String, Movie[]> byDirector = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Movie[]> byCast = new ConcurrentHashMap<>();
+    private final Map<String, Movie> movieById = new HashMap<>(); // writer only
+
+    /**
+     * Movies sorted by (value of one field, id), with the values alongside
+     */
+    private static final class Column {
+        final double[] keys;
+        final Movie[] movies;
+
+        Column(double[] keys, Movie[] movies) {
+            this.keys = keys;
+            this.movies = movies;
+        }
+
+        /** First position whose key is >= min */
+        int lowerBound(double min) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < min) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** First position whose key is > max */
+        int upperBound(double max) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] <= max) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** Position of (key, id), or -(insertion point) - 1 like Arrays.binarySearch */
+        int find(double key, String id) {
+            int lo = lowerBound(key);
+            int hi = upperBound(key) - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = movies[mid].getId().compareTo(id);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -lo - 1;
+        }
+    }
+
+    /**
+     * Build an index over a catalog
+     */
+    static AttributeIndex build(CatalogSnapshot snapshot) {
+        AttributeIndex index = new AttributeIndex();
+        List<Movie> movies = new ArrayList<>(snapshot.size());
+        Map<String, List<Movie>> directors = new HashMap<>();
+        Map<String, List<Movie>> cast = new HashMap<>();
+        for (Movie movie : snapshot.getMovies()) {
+            if (snapshot.getMovie(movie.getId()) != movie) {
+                continue; // duplicate id, not reachable by lookups either
+            }
+            movies.add(movie);
+            index.movieById.put(movie.getId(), movie);
+            if (movie.getDirector() != null) {
+                directors.computeIfAbsent(movie.getDirector().toLowerCase(), d -> new ArrayList<>()).add(movie);
+            }
+            for (String member : castOf(movie)) {
+                cast.computeIfAbsent(member, c -> new ArrayList<>()).add(movie);
+            }
+        }
+
+        // Sort by id once; the stable per-field sorts then only compare values
+        Movie[] byId = movies.toArray(NO_MOVIES);
+        Arrays.sort(byId, Comparator.comparing(Movie::getId));
+        for (MovieQuery.Field field : FIELDS) {
+            Movie[] sorted = byId.clone();
+            Arrays.sort(sorted, Comparator.comparingDouble(field::valueOf));
+            double[] keys = new double[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = field.valueOf(sorted[i]);
+            }
+            index.columns.set(field.ordinal(), new Column(keys, sorted));
+        }
+        directors.forEach((name, list) -> index.byDirector.put(name, list.toArray(NO_MOVIES)));
+        cast.forEach((name, list) -> index.byCast.put(name, list.toArray(NO_MOVIES)));
+        return index;
+    }
+
+    /**
+     * Keep the index in step with a published change
+     */
+    void apply(CatalogChange change) {
+        Movie old = movieById.get(change.getId());
+        if (old != null) {
+            for (MovieQuery.Field field : FIELDS) {
+                columns.set(field.ordinal(), without(columns.get(field.ordinal()), field, old));
+            }
+            if (old.getDirector() != null) {
+                removeFrom(byDirector, old.getDirector().toLowerCase(), old.getId());
+            }
+            for (String member : castOf(old)) {
+                removeFrom(byCast, member, old.getId());
+            }
+            movieById.remove(change.getId());
+        }
+
+        if (change.getType() != CatalogChange.Type.DELETE) {
+            Movie movie = change.getMovie();
+            for (MovieQuery.Field field : FIELDS) {
+                columns.set(field.ordinal(), with(columns.get(field.ordinal()), field, movie));
+            }
+            if (movie.getDirector() != null) {
+                addTo(byDirector, movie.getDirector().toLowerCase(), movie);
+            }
+            for (String member : castOf(movie)) {
+                addTo(byCast, member, movie);
+            }
+            movieById.put(movie.getId(), movie);
+        }
+    }
+
+    /**
+     * Run a query with the cheapest access path
+     *
+     * @param genres genre postings, or null to treat the genre as a plain filter
+     */
+    QueryResult execute(MovieQuery query, GenreIndex genres) {
+        Column sortColumn = columns.get(query.getSortBy().ordinal());
+        int total = sortColumn.keys.length;
+        int limit = query.getLimit();
+
+        // Candidate sets the query could start from, with their exact sizes
+        String bestPath = "all movies";
+        List<Movie> best = Arrays.asList(sortColumn.movies);
+        double selectivity = 1.0; // of every predicate except the sort field's own range
+        for (MovieQuery.Field field : FIELDS) {
+            if (!query.isRestricted(field)) {
+                continue;
+            }
+            Column column = columns.get(field.ordinal());
+            int from = column.lowerBound(query.getMin(field));
+            int to = Math.max(from, column.upperBound(query.getMax(field)));
+            List<Movie> range = Arrays.asList(column.movies).subList(from, to);
+            if (range.size() < best.size()) {
+                best = range;
+                bestPath = field.getParamName() + " range";
+            }
+            if (field != query.getSortBy()) {
+                selectivity *= fraction(range.size(), column.keys.length);
+            }
+        }
+        List<List<Movie>> postings = new ArrayList<>(3);
+        List<String> postingNames = new ArrayList<>(3);
+        if (query.getGenre() != null && genres != null) {
+            postings.add(genres.postingOf(query.getGenre()));
+            postingNames.add("genre");
+        }
+        if (query.getDirector() != null) {
+            postings.add(Arrays.asList(byDirector.getOrDefault(query.getDirector().toLowerCase(), NO_MOVIES)));
+            postingNames.add("director");
+        }
+        if (query.getCastMember() != null) {
+            postings.add(Arrays.asList(byCast.getOrDefault(query.getCastMember().toLowerCase(), NO_MOVIES)));
+            postingNames.add("cast");
+        }
+        for (int i = 0; i < postings.size(); i++) {
+            List<Movie> posting = postings.get(i);
+            if (posting.size() < best.size()) {
+                best = posting;
+                bestPath = postingNames.get(i);
+            }
+            selectivity *= fraction(posting.size(), total);
+        }
+
+        if (best.isEmpty()) {
+            return new QueryResult(new ArrayList<>(), bestPath + " (empty)", 0);
+        }
+
+        // Walking the sort column in order can stop after limit matches; assuming
+        // independent predicates that takes about limit / selectivity rows
+        MovieQuery.Field sortBy = query.getSortBy();
+        int from = sortColumn.lowerBound(query.getMin(sortBy));
+        int to = Math.max(from, sortColumn.upperBound(query.getMax(sortBy)));
+        double walkCost = selectivity > 0 ? Math.min(to - from, limit / selectivity) : to - from;
+        if (walkCost <= best.size()) {
+            return walk(query, sortColumn, from, to);
+        }
+        return topK(query, best, bestPath);
+    }
+
+    /**
+     * Walk [from, to) of the sort column in result order, stopping at the limit
+     */
+    private static QueryResult walk(MovieQuery query, Column column, int from, int to) {
+        List<Movie> results = new ArrayList<>(Math.min(query.getLimit(), to - from));
+        int examined = 0;
+        if (query.isDescending()) {
+            for (int i = to - 1; i >= from && results.size() < query.getLimit(); i--) {
+                examined++;
+                if (query.matches(column.movies[i])) {
+                    results.add(column.movies[i]);
+                }
+            }
+        } else {
+            for (int i = from; i < to && results.size() < query.getLimit(); i++) {
+                examined++;
+                if (query.matches(column.movies[i])) {
+                    results.add(column.movies[i]);
+                }
+            }
+        }
+        String plan = "ordered " + query.getSortBy().getParamName() + " walk over " + (to - from) + " rows";
+        return new QueryResult(results, plan, examined);
+    }
+
+    /**
+     * Filter a candidate set and keep the best limit matches in a bounded heap
+     */
+    private static QueryResult topK(MovieQuery query, List<Movie> candidates, String path) {
+        Comparator<Movie> order = query.resultOrder();
+        PriorityQueue<Movie> heap = new PriorityQueue<>(query.getLimit() + 1, order.reversed());
+        for (Movie movie : candidates) {
+            if (!query.matches(movie)) {
+                continue;
+            }
+            if (heap.size() < query.getLimit()) {
+                heap.add(movie);
+            } else if (order.compare(movie, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(movie);
+            }
+        }
+        List<Movie> results = new ArrayList<>(heap);
+        results.sort(order);
+        String plan = path + " (" + candidates.size() + " rows), top " + query.getLimit();
+        return new QueryResult(results, plan, candidates.size());
+    }
+
+    /**
+     * Run a query by scanning a snapshot, for when no index is available
+     */
+    static QueryResult scan(MovieQuery query, CatalogSnapshot snapshot) {
+        return topK(query, snapshot.getMovies(), "full scan");
+    }
+
+    private static double fraction(int part, int total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    private static Column with(Column column, MovieQuery.Field field, Movie movie) {
+        double key = field.valueOf(movie);
+        int at = column.find(key, movie.getId());
+        if (at >= 0) {
+            Movie[] movies = column.movies.clone();
+            movies[at] = movie;
+            return new Column(column.keys, movies);
+        }
+        at = -at - 1;
+        int size = column.keys.length;
+        double[] keys = new double[size + 1];
+        Movie[] movies = new Movie[size + 1];
+        System.arraycopy(column.keys, 0, keys, 0, at);
+        System.arraycopy(column.movies, 0, movies, 0, at);
+        keys[at] = key;
+        movies[at] = movie;
+        System.arraycopy(column.keys, at, keys, at + 1, size - at);
+        System.arraycopy(column.movies, at, movies, at + 1, size - at);
+        return new Column(keys, movies);
+    }
+
+    private static Column without(Column column, MovieQuery.Field field, Movie movie) {
+        int at = column.find(field.valueOf(movie), movie.getId());
+        if (at < 0) {
+            return column;
+        }
+        int size = column.keys.length;
+        double[] keys = new double[size - 1];
+        Movie[] movies = new Movie[size - 1];
+        System.arraycopy(column.keys, 0, keys, 0, at);
+        System.arraycopy(column.movies, 0, movies, 0, at);
+        System.arraycopy(column.keys, at + 1, keys, at, size - at - 1);
+        System.arraycopy(column.movies, at + 1, movies, at, size - at - 1);
+        return new Column(keys, movies);
+    }
+
+    private static void addTo(ConcurrentHashMap<String, Movie[]> map, String key, Movie movie) {
+        Movie[] movies = map.getOrDefault(key, NO_MOVIES);
+        Movie[] longer = Arrays.copyOf(movies, movies.length + 1);
+        longer[movies.length] = movie;
+        map.put(key, longer);
+    }
+
+    private static void removeFrom(ConcurrentHashMap<String, Movie[]> map, String key, String id) {
+        Movie[] movies = map.get(key);
+        if (movies == null) {
+            return;
+        }
+        List<Movie> kept = new ArrayList<>(movies.length);
+        for (Movie movie : movies) {
+            if (!movie.getId().equals(id)) {
+                kept.add(movie);
+            }
+        }
+        if (kept.isEmpty()) {
+            map.remove(key);
+        } else {
+            map.put(key, kept.toArray(NO_MOVIES));
+        }
+    }
+
+    /**
+     * Distinct case-folded cast members of a movie
+     */
+    private static Set<String> castOf(Movie movie) {
+        if (movie.getCast() == null) {
+            return Collections.emptySet();
+        }
+        Set<String> members = new LinkedHashSet<>();
+        for (String member : movie.getCast()) {
+            if (member != null) {
+                members.add(member.toLowerCase());
+            }
+        }
+        return members;
+    }
+}
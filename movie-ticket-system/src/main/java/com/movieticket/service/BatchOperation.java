@@ -0,0 +1,48 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+/**
+ * One entry of a POST /api/movies/batch request: {"op": "create" | "update" | "delete", "id": ..., "movie": {...}}
+ *
+ * Creates take the movie (its id is optional), updates take the id and the
+ * movie, deletes take only the id.
+ */
+public class BatchOperation {
+    private String op;
+    private String id;
+    private Movie movie;
+
+    public BatchOperation() {
+    }
+
+    public BatchOperation(String op, String id, Movie movie) {
+        this.op = op;
+        this.id = id;
+        this.movie = movie;
+    }
+
+    public static BatchOperation create(Movie movie) {
+        return new BatchOperation("create", null, movie);
+    }
+
+    public static BatchOperation update(String id, Movie movie) {
+        return new BatchOperation("update", id, movie);
+    }
+
+    public static BatchOperation delete(String id) {
+        return new BatchOperation("delete", id, null);
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Movie getMovie() {
+        return movie;
+    }
+}
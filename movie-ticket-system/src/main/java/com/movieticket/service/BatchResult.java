@@ -0,0 +1,85 @@
+package com.movieticket.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch: whether it was applied, and a status per operation.
+ *
+ * A batch is all-or-nothing. If any operation fails, nothing is applied; the
+ * failing operations carry their own status (400, 404 or 409) and the others
+ * are reported as 424 (not applied because another operation failed).
+ */
+public class BatchResult {
+    private final boolean applied;
+    private final long version;
+    private final List<OperationResult> results;
+
+    BatchResult(boolean applied, long version, List<OperationResult> results) {
+        this.applied = applied;
+        this.version = version;
+        this.results = results;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * Catalog version that contains the batch (or the unchanged version if it failed)
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<OperationResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Status of a single operation, with HTTP-style codes
+     */
+    public static class OperationResult {
+        private final int index;
+        private final String op;
+        private final String id;
+        private int status;
+        private String error;
+
+        OperationResult(int index, String op, String id, int status, String error) {
+            this.index = index;
+            this.op = op;
+            this.id = id;
+            this.status = status;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        boolean failed() {
+            return status >= 400;
+        }
+
+        void notApplied() {
+            status = 424;
+            error = "Not applied because another operation in the batch failed";
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary copy of movies.json (movies.json.bin) that the server can
+ * memory-map at startup instead of parsing JSON.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header        magic, format version, size + mtime of the movies.json it was built from,
+ *                 counts and section offsets (HEADER_SIZE bytes)
+ *   records       one fixed-size record per movie, in catalog order (RECORD_SIZE bytes each)
+ *   cast refs     int string refs, each record points at a run of them
+ *   id hash       open-addressing table of (record ordinal + 1), 0 = empty slot
+ *   string index  int offset of each string in the string data, plus an end offset
+ *   string data   UTF-8 bytes of every distinct string
+ * </pre>
+ * Every string field in a record is a reference into the string table (-1 for null),
+ * so repeated genres and names are stored once.
+ *
+ * The header remembers which movies.json the snapshot was built from. If that
+ * file has changed since, the snapshot is ignored and JSON stays the source of truth.
+ */
+public class BinaryCatalogFile {
+    static final int MAGIC = 0x4D564342; // "MVCB"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 80;
+    static final int RECORD_SIZE = 56;
+
+    // Header field offsets
+    static final int SOURCE_SIZE = 8;
+    static final int SOURCE_MTIME = 16;
+    static final int MOVIE_COUNT = 24;
+    static final int CAST_REF_COUNT = 28;
+    static final int STRING_COUNT = 32;
+    static final int HASH_SLOTS = 36;
+    static final int RECORDS_OFFSET = 40;
+    static final int CAST_OFFSET = 48;
+    static final int HASH_OFFSET = 56;
+    static final int STRING_INDEX_OFFSET = 64;
+    static final int STRING_DATA_OFFSET = 72;
+
+    private final JsonCatalogFile source;
+    private final Path path;
+
+    public BinaryCatalogFile(JsonCatalogFile source) {
+        this.source = source;
+        this.path = source.getPath().resolveSibling(source.getPath().getFileName() + ".bin");
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Map the snapshot if it exists and was built from the current movies.json.
+     *
+     * @return the mapped catalog, or null if JSON has to be loaded instead
+     */
+    MappedCatalog open() {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                System.err.println("Ignoring binary snapshot with unknown format: " + path);
+                return null;
+            }
+            if (buffer.getLong(SOURCE_SIZE) != Files.size(source.getPath())
+                    || buffer.getLong(SOURCE_MTIME) != Files.getLastModifiedTime(source.getPath()).toMillis()) {
+                System.out.println("Binary snapshot is older than " + source.getPath().getFileName() + ", loading JSON");
+                return null;
+            }
+            return new MappedCatalog(buffer);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error opening binary snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a snapshot of the catalog. The caller guarantees that movies.json
+     * currently holds exactly this snapshot; its size and mtime are stamped
+     * into the header.
+     */
+    public void write(CatalogSnapshot snapshot) throws IOException {
+        List<Movie> movies = snapshot.getMovies();
+        Map<String, Integer> stringRefs = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] refs = new int[movies.size() * 6];
+        List<Integer> castRefs = new ArrayList<>();
+        int[] castStart = new int[movies.size()];
+        int[] castCount = new int[movies.size()];
+
+        // Pass 1: intern every string and collect cast runs
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            refs[i * 6] = ref(movie.getId(), stringRefs, strings);
+            refs[i * 6 + 1] = ref(movie.getTitle(), stringRefs, strings);
+            refs[i * 6 + 2] = ref(movie.getGenre(), stringRefs, strings);
+            refs[i * 6 + 3] = ref(movie.getDirector(), stringRefs, strings);
+            refs[i * 6 + 4] = ref(movie.getDescription(), stringRefs, strings);
+            refs[i * 6 + 5] = ref(movie.getPosterUrl(), stringRefs, strings);
+            castStart[i] = castRefs.size();
+            if (movie.getCast() != null) {
+                for (String member : movie.getCast()) {
+                    castRefs.add(ref(member, stringRefs, strings));
+                }
+                castCount[i] = movie.getCast().size();
+            } else {
+                castCount[i] = -1;
+            }
+        }
+
+        // The id hash points at the first record for each id, like the JSON loader
+        int hashSlots = Integer.highestOneBit(Math.max(1, movies.size()) * 2) * 2;
+        int[] hash = new int[hashSlots];
+        for (int i = 0; i < movies.size(); i++) {
+            String id = movies.get(i).getId();
+            if (id == null || snapshot.getMovie(id) != movies.get(i)) {
+                continue;
+            }
+            int slot = id.hashCode() & (hashSlots - 1);
+            while (hash[slot] != 0) {
+                slot = (slot + 1) & (hashSlots - 1);
+            }
+            hash[slot] = i + 1;
+        }
+
+        long stringBytes = 0;
+        for (byte[] string : strings) {
+            stringBytes += string.length;
+        }
+        long recordsOffset = HEADER_SIZE;
+        long castOffset = recordsOffset + (long) movies.size() * RECORD_SIZE;
+        long hashOffset = castOffset + castRefs.size() * 4L;
+        long stringIndexOffset = hashOffset + hashSlots * 4L;
+        long stringDataOffset = stringIndexOffset + (strings.size() + 1) * 4L;
+        if (stringDataOffset + stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large for a binary snapshot");
+        }
+
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(Files.size(source.getPath()));
+            out.writeLong(Files.getLastModifiedTime(source.getPath()).toMillis());
+            out.writeInt(movies.size());
+            out.writeInt(castRefs.size());
+            out.writeInt(strings.size());
+            out.writeInt(hashSlots);
+            out.writeLong(recordsOffset);
+            out.writeLong(castOffset);
+            out.writeLong(hashOffset);
+            out.writeLong(stringIndexOffset);
+            out.writeLong(stringDataOffset);
+
+            for (int i = 0; i < movies.size(); i++) {
+                Movie movie = movies.get(i);
+                for (int field = 0; field < 6; field++) {
+                    out.writeInt(refs[i * 6 + field]);
+                }
+                out.writeInt(movie.getReleaseYear());
+                out.writeInt(movie.getDuration());
+                out.writeDouble(movie.getRating());
+                out.writeDouble(movie.getPrice());
+                out.writeInt(castStart[i]);
+                out.writeInt(castCount[i]);
+            }
+            for (int castRef : castRefs) {
+                out.writeInt(castRef);
+            }
+            for (int slot : hash) {
+                out.writeInt(slot);
+            }
+            int offset = 0;
+            for (byte[] string : strings) {
+                out.writeInt(offset);
+                offset += string.length;
+            }
+            out.writeInt(offset);
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Wrote binary snapshot of " + movies.size() + " movies to " + path.getFileName());
+    }
+
+    private static int ref(String value, Map<String, Integer> stringRefs, List<byte[]> strings) {
+        if (value == null) {
+            return -1;
+        }
+        Integer existing = stringRefs.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int ref = strings.size();
+        strings.add(value.getBytes(StandardCharsets.UTF_8));
+        stringRefs.put(value, ref);
+        return ref;
+    }
+
+    /**
+     * Read a UTF-8 string of the given length at an absolute position
+     */
+    static String readString(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+/**
+ * A single create, update or delete applied to the catalog.
+ * Writers record these while building the next snapshot so persistence
+ * strategies can store the change itself instead of the whole catalog.
+ */
+public final class CatalogChange {
+    public enum Type { CREATE, UPDATE, DELETE }
+
+    private final Type type;
+    private final String id;
+    private final Movie movie; // null for DELETE
+
+    private CatalogChange(Type type, String id, Movie movie) {
+        this.type = type;
+        this.id = id;
+        this.movie = movie;
+    }
+
+    public static CatalogChange created(Movie movie) {
+        return new CatalogChange(Type.CREATE, movie.getId(), movie);
+    }
+
+    public static CatalogChange updated(Movie movie) {
+        return new CatalogChange(Type.UPDATE, movie.getId(), movie);
+    }
+
+    public static CatalogChange deleted(String id) {
+        return new CatalogChange(Type.DELETE, id, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Movie getMovie() {
+        return movie;
+    }
+}
@@ -0,0 +1,51 @@
+package com.movieticket.service;
+
+import java.util.List;
+
+/**
+ * Strategy for getting published catalog snapshots onto disk.
+ *
+ * MovieService calls onPublish while it still holds its write lock, so
+ * implementations must keep that call short. awaitDurable is called after the
+ * lock has been released and is where a writer may block until its change is
+ * safely stored.
+ */
+public interface CatalogPersistence {
+
+    /**
+     * Changes stored after the last full snapshot, to replay on top of movies.json
+     *
+     * @throws RuntimeException if stored changes cannot all be read
+     */
+    List<CatalogChange> recover();
+
+    /**
+     * A snapshot has been loaded from disk and is already persisted
+     */
+    void onLoad(CatalogSnapshot loaded);
+
+    /**
+     * A new snapshot has been published by a writer
+     *
+     * @param published the new snapshot
+     * @param changes the changes that turned the previous snapshot into this one
+     */
+    void onPublish(CatalogSnapshot published, List<CatalogChange> changes);
+
+    /**
+     * Block until the given snapshot version is durable, if this strategy promises that
+     */
+    void awaitDurable(long version);
+
+    /**
+     * Write out anything that is still pending
+     *
+     * @throws RuntimeException if pending changes could not be written
+     */
+    void flush();
+
+    /**
+     * Flush and release any background resources
+     */
+    void close();
+}
@@ -0,0 +1,333 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, versioned view of the movie catalog.
+ *
+ * MovieService publishes a new snapshot after every mutation. Readers grab the
+ * current snapshot once and work against it without locking; nothing inside a
+ * published snapshot is ever modified again.
+ *
+ * Every movie also carries a sequence number that grows in catalog order and
+ * never changes while the movie exists (updates keep it, creates get a new
+ * highest one). Pagination cursors are sequence numbers, so a page boundary
+ * stays put when movies are added or deleted around it. Sequence numbers are
+ * reassigned from file order whenever the catalog is loaded.
+ */
+public final class CatalogSnapshot {
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final long version;
+    private final List<Movie> movies;
+    private final Map<String, Movie> moviesById;
+    private final long[] seqs;   // parallel to movies; null means seq == position
+    private final long nextSeq;
+    private final long maxNumericId; // UNKNOWN until a builder has needed it
+
+    /**
+     * Callers hand over collections that nobody will modify again
+     */
+    private CatalogSnapshot(long version, List<Movie> movies, Map<String, Movie> moviesById,
+                            long[] seqs, long nextSeq, long maxNumericId) {
+        this.version = version;
+        this.movies = movies;
+        this.moviesById = moviesById;
+        this.seqs = seqs;
+        this.nextSeq = nextSeq;
+        this.maxNumericId = maxNumericId;
+    }
+
+    /**
+     * Build a snapshot from a freshly loaded movie list.
+     * If the list contains duplicate IDs the first one wins.
+     */
+    static CatalogSnapshot of(List<Movie> movies, long version) {
+        Builder builder = newBuilder();
+        movies.forEach(builder::addLoaded);
+        return builder.build(version);
+    }
+
+    /**
+     * Wrap a memory-mapped catalog; movies are decoded as they are read
+     */
+    static CatalogSnapshot mapped(MappedCatalog catalog, long version) {
+        List<Movie> movies = catalog.asList();
+        return new CatalogSnapshot(version, Collections.unmodifiableList(movies),
+                Collections.unmodifiableMap(catalog.asMap()), null, movies.size(), UNKNOWN);
+    }
+
+    /**
+     * Start an empty builder, e.g. for a loader to stream movies into
+     */
+    static Builder newBuilder() {
+        return new Builder(new ArrayList<>(), new HashMap<>(), new long[16], 0, 0);
+    }
+
+    /**
+     * Version number, incremented on every published change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * All movies in catalog order (read-only)
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Look up a movie by ID
+     */
+    public Movie getMovie(String id) {
+        return moviesById.get(id);
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    /**
+     * Sequence number of the movie at a position in catalog order
+     */
+    long seqAt(int index) {
+        return seqs != null ? seqs[index] : index;
+    }
+
+    /**
+     * Position of the first movie whose sequence number is greater than seq
+     */
+    int indexAfter(long seq) {
+        if (seqs == null) {
+            return (int) Math.max(0, Math.min(seq + 1, movies.size()));
+        }
+        int lo = 0;
+        int hi = movies.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seqs[mid] <= seq) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The same catalog published under a different version number
+     */
+    CatalogSnapshot withVersion(long newVersion) {
+        return new CatalogSnapshot(newVersion, movies, moviesById, seqs, nextSeq, maxNumericId);
+    }
+
+    /**
+     * Start a mutable copy of this snapshot for a writer
+     */
+    Builder toBuilder() {
+        long[] copiedSeqs = new long[movies.size() + 16];
+        for (int i = 0; i < movies.size(); i++) {
+            copiedSeqs[i] = seqAt(i);
+        }
+        return new Builder(new ArrayList<>(movies), new HashMap<>(moviesById), copiedSeqs, nextSeq, maxNumericId);
+    }
+
+    /**
+     * Mutable working copy used by a single writer to prepare the next snapshot.
+     * Every mutation is also recorded as a CatalogChange.
+     * A builder must not be used again after build() has been called.
+     *
+     * Removed movies only leave a hole in the list, which build() closes in one
+     * pass, and once a builder has looked up a few positions it switches from
+     * linear searches to an id -> position map. A builder applying a large batch
+     * therefore costs about the same as one applying a single change.
+     */
+    static final class Builder {
+        private static final int POSITION_SCANS_BEFORE_MAP = 8;
+
+        private final List<Movie> movies;   // removed entries are null until build()
+        private final Map<String, Movie> moviesById;
+        private final List<CatalogChange> changes = new ArrayList<>();
+        private long[] seqs; // parallel to movies, may have spare capacity
+        private long nextSeq;
+        private long maxNumericId;
+        private final Set<String> removedIds = new HashSet<>();
+        private Map<String, Integer> positions; // null until enough lookups
+        private int positionScans;
+
+        private Builder(List<Movie> movies, Map<String, Movie> moviesById, long[] seqs, long nextSeq,
+                        long maxNumericId) {
+            this.movies = movies;
+            this.moviesById = moviesById;
+            this.seqs = seqs;
+            this.nextSeq = nextSeq;
+            this.maxNumericId = maxNumericId;
+        }
+
+        Movie get(String id) {
+            return moviesById.get(id);
+        }
+
+        /**
+         * Add a movie read from disk. Not recorded as a change, and if the file
+         * contains duplicate IDs the first one stays in the index.
+         */
+        void addLoaded(Movie movie) {
+            int at = append(movie);
+            if (moviesById.putIfAbsent(movie.getId(), movie) == null && positions != null) {
+                positions.put(movie.getId(), at);
+            }
+        }
+
+        void add(Movie movie) {
+            int at = append(movie);
+            moviesById.put(movie.getId(), movie);
+            if (positions != null) {
+                positions.put(movie.getId(), at);
+            }
+            changes.add(CatalogChange.created(movie));
+        }
+
+        void replace(Movie existing, Movie updated) {
+            movies.set(positionOf(existing), updated);
+            moviesById.put(updated.getId(), updated);
+            changes.add(CatalogChange.updated(updated));
+        }
+
+        Movie remove(String id) {
+            Movie removed = moviesById.get(id);
+            if (removed != null) {
+                movies.set(positionOf(removed), null);
+                moviesById.remove(id);
+                if (positions != null) {
+                    positions.remove(id);
+                }
+                // build() also drops any duplicates a loaded file had for this ID
+                removedIds.add(id);
+                changes.add(CatalogChange.deleted(id));
+            }
+            return removed;
+        }
+
+        /**
+         * Replay a logged change. Creates and updates are applied as upserts and
+         * deletes of unknown IDs are ignored, so replaying a change twice is harmless.
+         */
+        void apply(CatalogChange change) {
+            if (change.getType() == CatalogChange.Type.DELETE) {
+                remove(change.getId());
+                return;
+            }
+            Movie existing = moviesById.get(change.getId());
+            if (existing != null) {
+                replace(existing, change.getMovie());
+            } else {
+                add(change.getMovie());
+            }
+        }
+
+        /**
+         * Next unused numeric ID: one more than the highest numeric ID ever seen
+         * by this catalog, so IDs of deleted movies are not handed out again
+         */
+        String nextNumericId() {
+            if (maxNumericId == UNKNOWN) {
+                maxNumericId = 0;
+                for (Movie movie : movies) {
+                    if (movie != null) {
+                        noteId(movie.getId());
+                    }
+                }
+            }
+            return String.valueOf(maxNumericId + 1);
+        }
+
+        /**
+         * Changes made through this builder, in order
+         */
+        List<CatalogChange> changes() {
+            return Collections.unmodifiableList(changes);
+        }
+
+        CatalogSnapshot build(long version) {
+            if (!removedIds.isEmpty()) {
+                compact();
+            }
+            return new CatalogSnapshot(version, Collections.unmodifiableList(movies),
+                    Collections.unmodifiableMap(moviesById), seqs, nextSeq, maxNumericId);
+        }
+
+        private int append(Movie movie) {
+            int at = movies.size();
+            if (at == seqs.length) {
+                seqs = Arrays.copyOf(seqs, at + (at >> 1) + 16);
+            }
+            seqs[at] = nextSeq++;
+            movies.add(movie);
+            if (maxNumericId != UNKNOWN) {
+                noteId(movie.getId());
+            }
+            return at;
+        }
+
+        private void noteId(String id) {
+            if (id == null || id.isEmpty() || id.length() > 18) {
+                return;
+            }
+            long value = 0;
+            for (int i = 0; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9') {
+                    return;
+                }
+                value = value * 10 + (c - '0');
+            }
+            maxNumericId = Math.max(maxNumericId, value);
+        }
+
+        /**
+         * Position of a movie that moviesById currently maps its ID to
+         */
+        private int positionOf(Movie movie) {
+            if (positions == null && ++positionScans > POSITION_SCANS_BEFORE_MAP) {
+                positions = new HashMap<>(moviesById.size() * 4 / 3 + 1);
+                for (int i = 0; i < movies.size(); i++) {
+                    Movie entry = movies.get(i);
+                    if (entry != null && moviesById.get(entry.getId()) == entry) {
+                        positions.put(entry.getId(), i);
+                    }
+                }
+            }
+            return positions != null ? positions.get(movie.getId()) : movies.indexOf(movie);
+        }
+
+        /**
+         * Close the holes left by remove(), keeping sequence numbers lined up
+         */
+        private void compact() {
+            int kept = 0;
+            for (int i = 0; i < movies.size(); i++) {
+                Movie movie = movies.get(i);
+                if (movie == null || (removedIds.contains(movie.getId()) && moviesById.get(movie.getId()) != movie)) {
+                    continue;
+                }
+                movies.set(kept, movie);
+                seqs[kept++] = seqs[i];
+            }
+            movies.subList(kept, movies.size()).clear();
+            removedIds.clear();
+            positions = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.movieticket.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The most recent catalog changes, grouped by the version that published them,
+ * for clients that follow the catalog instead of refetching it.
+ *
+ * The buffer holds at most `capacity` changes; older publishes fall off the
+ * front. A publish with more changes than that (a big import), and every
+ * reload, is kept as a reset: followers must refetch the catalog rather than
+ * replay it.
+ *
+ * MovieService appends while holding its write lock, so listeners are only
+ * told that something was published and must not block.
+ */
+public final class ChangeFeed {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>(); // guarded by lock, oldest first
+    private int size;                                              // changes in entries; guarded by lock
+    private long version;                                          // guarded by lock
+    private long oldestVersion;                                    // lowest version since() can start after; guarded by lock
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The changes of one published version
+     */
+    public static final class Entry {
+        private final long version;
+        private final List<CatalogChange> changes; // null for a reset
+
+        Entry(long version, List<CatalogChange> changes) {
+            this.version = version;
+            this.changes = changes;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Whether the whole catalog was replaced, so there are no changes to replay
+         */
+        public boolean isReset() {
+            return changes == null;
+        }
+
+        public List<CatalogChange> getChanges() {
+            return changes;
+        }
+    }
+
+    public ChangeFeed(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Record the changes published as a version
+     */
+    void publish(long version, List<CatalogChange> changes) {
+        append(new Entry(version, changes.size() > capacity ? null : new ArrayList<>(changes)));
+    }
+
+    /**
+     * Record that the whole catalog was replaced by a version
+     */
+    void reset(long version) {
+        append(new Entry(version, null));
+    }
+
+    private void append(Entry entry) {
+        lock.lock();
+        try {
+            entries.addLast(entry);
+            size += changeCount(entry);
+            version = entry.version;
+            while (size > capacity || entries.size() > capacity) {
+                Entry dropped = entries.removeFirst();
+                size -= changeCount(dropped);
+                oldestVersion = dropped.version;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private static int changeCount(Entry entry) {
+        return entry.changes != null ? entry.changes.size() : 1;
+    }
+
+    /**
+     * Everything published after a version, oldest first
+     *
+     * @return the entries, or null if that version is no longer (or not yet)
+     *         covered by the buffer
+     */
+    public List<Entry> since(long after) {
+        lock.lock();
+        try {
+            if (after < oldestVersion || after > version) {
+                return null;
+            }
+            List<Entry> newer = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.version > after) {
+                    newer.add(entry);
+                }
+            }
+            return newer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Latest version published
+     */
+    public long getVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run a callback after every publish. It runs on the publishing thread
+     * while the catalog is locked, so it must only hand the work off.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+}
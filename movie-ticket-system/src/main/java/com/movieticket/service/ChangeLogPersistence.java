@@ -0,0 +1,324 @@
+package com.movieticket.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change log with periodic snapshot compaction.
+ *
+ * Each mutation appends one line per change to movies.json.log, so a write
+ * costs about the size of one record instead of the whole catalog. A line
+ * looks like
+ *
+ *   3f2a9c01 {"type":"UPDATE","id":"7","movie":{...}}
+ *
+ * where the first field is the CRC32 of the JSON. A background job folds the
+ * log into a fresh movies.json: it rotates the log to movies.json.log.compacting,
+ * writes the snapshot, then deletes the rotated file. On startup the snapshot
+ * is loaded and the rotated log (if a compaction was interrupted) and the live
+ * log are replayed on top. Replay is idempotent, so it does not matter whether
+ * the interrupted compaction managed to write its snapshot.
+ *
+ * A damaged last record (missing its newline or failing its checksum) is the
+ * torn tail of a crashed append; it is skipped and cut off the file. A damaged
+ * record with intact ones after it is not a crash artifact, so recover fails
+ * rather than drop the acknowledged changes behind it; the file is left as it
+ * is for repair.
+ *
+ * Appends (and their fsync) happen under a ReentrantLock rather than a
+ * monitor, so a writer on a virtual thread does not pin its carrier thread
+ * while it waits for the disk.
+ */
+public class ChangeLogPersistence implements CatalogPersistence {
+    private final JsonCatalogFile catalogFile;
+    private final Path logPath;
+    private final Path compactingPath;
+    private final long compactThresholdBytes;
+    private final boolean fsync;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService compactor;
+    private final ReentrantLock compactionLock = new ReentrantLock(); // one compaction at a time
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private FileChannel log;
+    private long logSize;
+    private CatalogSnapshot latest;
+    private boolean compactionQueued;
+
+    public ChangeLogPersistence(JsonCatalogFile catalogFile, long compactIntervalMillis,
+                                long compactThresholdBytes, boolean fsync) {
+        this.catalogFile = catalogFile;
+        this.logPath = catalogFile.getPath().resolveSibling(catalogFile.getPath().getFileName() + ".log");
+        this.compactingPath = logPath.resolveSibling(logPath.getFileName() + ".compacting");
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.fsync = fsync;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compact,
+                compactIntervalMillis, compactIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<CatalogChange> recover() {
+        List<CatalogChange> changes = new ArrayList<>();
+        lock.lock();
+        try {
+            closeLog();
+            readLog(compactingPath, changes);
+            logSize = readLog(logPath, changes);
+        } catch (IOException e) {
+            System.err.println("Error reading change log: " + e.getMessage());
+            throw new RuntimeException("Failed to read change log", e);
+        } finally {
+            lock.unlock();
+        }
+        return changes;
+    }
+
+    @Override
+    public void onLoad(CatalogSnapshot loaded) {
+        lock.lock();
+        try {
+            latest = loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onPublish(CatalogSnapshot published, List<CatalogChange> changes) {
+        lock.lock();
+        try {
+            try {
+                FileChannel channel = openLog();
+                for (CatalogChange change : changes) {
+                    ByteBuffer record = encode(change);
+                    logSize += record.remaining();
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                System.err.println("Error appending to change log: " + e.getMessage());
+                throw new RuntimeException("Failed to save movies", e);
+            }
+            latest = published;
+
+            if (logSize >= compactThresholdBytes && !compactionQueued && !compactor.isShutdown()) {
+                compactionQueued = true;
+                compactor.execute(this::compact);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long version) {
+        // The record was written (and forced, if configured) before onPublish returned
+    }
+
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            if (log != null) {
+                log.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Error syncing change log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compact();
+        lock.lock();
+        try {
+            closeLog();
+        } catch (IOException e) {
+            System.err.println("Error closing change log: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fold the log into a fresh movies.json. Writers are only blocked while
+     * the log is rotated, not while the snapshot is written.
+     */
+    private void compact() {
+        compactionLock.lock();
+        try {
+            CatalogSnapshot toWrite;
+            lock.lock();
+            try {
+                compactionQueued = false;
+                if (latest == null || (logSize == 0 && !Files.exists(compactingPath))) {
+                    return;
+                }
+                toWrite = latest;
+                rotateLog();
+            } catch (IOException e) {
+                System.err.println("Error rotating change log: " + e.getMessage());
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                catalogFile.write(toWrite);
+                Files.delete(compactingPath);
+                System.out.println("Compacted change log into snapshot version " + toWrite.getVersion());
+            } catch (IOException e) {
+                // The rotated log is kept, so nothing is lost; the next run retries
+                System.err.println("Error compacting change log: " + e.getMessage());
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Move the live log aside so new appends start a fresh file. If an earlier
+     * compaction failed, its rotated log is still there and the live log is
+     * appended to it instead. Must hold lock.
+     */
+    private void rotateLog() throws IOException {
+        closeLog();
+        if (!Files.exists(logPath)) {
+            logSize = 0;
+            return;
+        }
+        if (Files.exists(compactingPath)) {
+            try (FileChannel target = FileChannel.open(compactingPath, StandardOpenOption.APPEND);
+                 FileChannel source = FileChannel.open(logPath, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = source.size();
+                while (position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+                target.force(false);
+            }
+            Files.delete(logPath);
+        } else {
+            Files.move(logPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        logSize = 0;
+    }
+
+    /**
+     * Read every record of a log file into changes, truncating a torn tail.
+     *
+     * @return the length of the intact part of the file
+     * @throws IOException if a record before the last one is damaged
+     */
+    private long readLog(Path path, List<CatalogChange> changes) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        int start = 0;
+        while (start < bytes.length) {
+            int end = start;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            CatalogChange change = end < bytes.length ? decode(bytes, start, end) : null;
+            if (change == null && end < bytes.length - 1) {
+                throw new IOException("Damaged change log record at " + path + ":" + start
+                        + " is followed by more records; repair or move the file aside");
+            }
+            if (change == null) {
+                System.err.println("Skipping torn change log record at " + path + ":" + start);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                }
+                return start;
+            }
+            changes.add(change);
+            start = end + 1;
+        }
+        return bytes.length;
+    }
+
+    private ByteBuffer encode(CatalogChange change) {
+        byte[] json = gson.toJson(change).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        byte[] header = String.format("%08x ", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+
+        ByteBuffer record = ByteBuffer.allocate(header.length + json.length + 1);
+        record.put(header).put(json).put((byte) '\n');
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Decode one line, or return null if it is damaged
+     */
+    private CatalogChange decode(byte[] bytes, int start, int end) {
+        int jsonStart = start + 9;
+        if (end - start < 10 || bytes[start + 8] != ' ') {
+            return null;
+        }
+        try {
+            long expected = Long.parseLong(new String(bytes, start, 8, StandardCharsets.US_ASCII), 16);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, jsonStart, end - jsonStart);
+            if (crc.getValue() != expected) {
+                return null;
+            }
+            String json = new String(bytes, jsonStart, end - jsonStart, StandardCharsets.UTF_8);
+            return gson.fromJson(json, CatalogChange.class);
+        } catch (NumberFormatException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        if (log == null) {
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return log;
+    }
+
+    private void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+}
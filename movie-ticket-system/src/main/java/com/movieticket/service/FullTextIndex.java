@@ -0,0 +1,822 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index over movie titles, descriptions and cast, for ranked
+ * search with typo tolerance.
+ *
+ * Text is split into lower-case runs of letters and digits with accents
+ * removed; English stop words and single letters are dropped. Each term maps
+ * to a posting list of (document, term frequency) pairs stored as varint
+ * deltas, with a skip entry every SKIP_INTERVAL postings. A title word counts
+ * TITLE_WEIGHT times and a cast name CAST_WEIGHT times, so one BM25 score
+ * covers all three fields (a simplified BM25F).
+ *
+ * A query is evaluated document-at-a-time over its terms' posting lists,
+ * keeping the best hits in a heap. MaxScore pruning stops scoring lists whose
+ * largest possible contribution can no longer lift a document into the top
+ * hits: they are only probed, through their skips, for documents the other
+ * lists produce. A query term that is not in the dictionary stands for the
+ * dictionary terms within one edit of it (two from 8 letters on; swapping
+ * adjacent letters is one edit), each scored down by FUZZY_DISCOUNT per edit.
+ *
+ * Documents are numbered in the order they are added, so postings are only
+ * ever appended. Deleting a movie, or changing its text, leaves a dead
+ * document behind that searches skip; once needsCompaction() the index should
+ * be rebuilt. Only MovieService's writer modifies the index. Appends write
+ * past the end that published views cover and then publish a new view, so
+ * searches run without locking.
+ */
+final class FullTextIndex {
+    static final int TITLE_WEIGHT = 3;
+    static final int CAST_WEIGHT = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int SKIP_INTERVAL = 64;
+    private static final double FUZZY_DISCOUNT = 0.7;
+    private static final int MAX_EXPANSIONS = 16;    // dictionary terms one misspelt query term may stand for
+    private static final int MAX_TERM_LENGTH = 32;   // longer terms share the last length bucket
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "he", "her",
+            "his", "in", "into", "is", "it", "its", "of", "on", "or", "she", "that", "the", "their",
+            "them", "they", "this", "to", "was", "who", "with"));
+
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Terms> termsByLength = new AtomicReferenceArray<>(MAX_TERM_LENGTH + 1);
+    private volatile String[] idsByDoc = new String[16];   // null once a document is dead
+    private volatile int[] lengthsByDoc = new int[16];     // weighted term count
+    private volatile int liveDocs;
+    private volatile long liveLength;
+
+    // Writer only
+    private final Map<String, Integer> docById = new HashMap<>();
+    private String[][] textByDoc = new String[16][]; // indexed fields, to skip updates that leave them alone
+    private int nextDoc;
+    private int deadDocs;
+
+    FullTextIndex() {
+        Terms none = new Terms(new String[0], 0);
+        for (int length = 0; length <= MAX_TERM_LENGTH; length++) {
+            termsByLength.set(length, none);
+        }
+    }
+
+    /**
+     * Build an index over a catalog in one pass
+     */
+    static FullTextIndex build(CatalogSnapshot snapshot) {
+        FullTextIndex index = new FullTextIndex();
+        Map<String, Appender> lists = new HashMap<>();
+        for (Movie movie : snapshot.getMovies()) {
+            if (snapshot.getMovie(movie.getId()) != movie) {
+                continue; // duplicate id, not reachable by lookups either
+            }
+            Map<String, Integer> frequencies = termFrequencies(movie);
+            int doc = index.assignDoc(movie, frequencies);
+            for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                lists.computeIfAbsent(term.getKey(), t -> new Appender()).add(doc, term.getValue());
+            }
+        }
+        for (Map.Entry<String, Appender> entry : lists.entrySet()) {
+            index.postings.put(entry.getKey(), entry.getValue().view());
+            index.addTerm(entry.getKey());
+        }
+        return index;
+    }
+
+    /**
+     * Keep the index in step with a published change
+     */
+    void apply(CatalogChange change) {
+        switch (change.getType()) {
+            case CREATE:
+            case UPDATE:
+                put(change.getMovie());
+                break;
+            case DELETE:
+                remove(change.getId());
+                break;
+        }
+    }
+
+    /**
+     * Whether dead documents have come to outnumber live ones, so a rebuild
+     * would pay for itself in smaller posting lists
+     */
+    boolean needsCompaction() {
+        return deadDocs > Math.max(MIN_DEAD_TO_COMPACT, liveDocs);
+    }
+
+    /**
+     * The best-scoring movies for a query, best first; ties keep catalog order
+     *
+     * @param snapshot hits are resolved against this snapshot
+     */
+    List<SearchHit> search(String query, int limit, CatalogSnapshot snapshot) {
+        String[] ids = idsByDoc;
+        int[] lengths = lengthsByDoc;
+        int documents = Math.max(1, liveDocs);
+        double averageLength = Math.max(1.0, (double) liveLength / documents);
+
+        // One cursor per distinct dictionary term, weighted by its idf (and discounted if fuzzy)
+        Map<String, Double> weights = new LinkedHashMap<>();
+        int[][] scratch = new int[3][MAX_TERM_LENGTH + 3];
+        for (String token : new LinkedHashSet<>(tokens(query))) {
+            Postings exact = postings.get(token);
+            if (exact != null) {
+                weights.merge(token, idf(exact.count, documents), Math::max);
+                continue;
+            }
+            for (Map.Entry<String, Integer> near : expand(token, scratch).entrySet()) {
+                double weight = idf(postings.get(near.getKey()).count, documents) * Math.pow(FUZZY_DISCOUNT, near.getValue());
+                weights.merge(near.getKey(), weight, Math::max);
+            }
+        }
+        if (weights.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Cursor> cursorList = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : weights.entrySet()) {
+            cursorList.add(new Cursor(postings.get(entry.getKey()), entry.getValue()));
+        }
+        cursorList.sort(Comparator.comparingDouble(cursor -> cursor.upperBound));
+        Cursor[] cursors = cursorList.toArray(new Cursor[0]);
+        double[] boundBelow = new double[cursors.length + 1]; // boundBelow[i]: sum of the upper bounds of cursors[0..i)
+        for (int i = 0; i < cursors.length; i++) {
+            boundBelow[i + 1] = boundBelow[i] + cursors[i].upperBound;
+            cursors[i].next();
+        }
+
+        double lengthFactor = K1 * B / averageLength;
+        TopHits top = new TopHits(limit);
+        int essential = 0; // cursors[essential..] can produce candidates; the rest only add to them
+        while (essential < cursors.length) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = essential; i < cursors.length; i++) {
+                doc = Math.min(doc, cursors[i].doc);
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            boolean live = doc < ids.length && doc < lengths.length && ids[doc] != null;
+            double norm = live ? K1 * (1 - B) + lengthFactor * lengths[doc] : 0;
+            double score = 0;
+            for (int i = essential; i < cursors.length; i++) {
+                Cursor cursor = cursors[i];
+                if (cursor.doc == doc) {
+                    if (live) {
+                        score += cursor.score(norm);
+                    }
+                    cursor.next();
+                }
+            }
+            if (!live) {
+                continue;
+            }
+            for (int i = essential - 1; i >= 0; i--) {
+                if (top.isFull() && score + boundBelow[i + 1] <= top.threshold()) {
+                    break;
+                }
+                Cursor cursor = cursors[i];
+                cursor.advance(doc);
+                if (cursor.doc == doc) {
+                    score += cursor.score(norm);
+                }
+            }
+            if (top.offer(doc, score)) {
+                while (essential < cursors.length && boundBelow[essential + 1] <= top.threshold()) {
+                    essential++;
+                }
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i : top.bestFirst()) {
+            String id = top.docs[i] < ids.length ? ids[top.docs[i]] : null;
+            Movie movie = id != null ? snapshot.getMovie(id) : null;
+            if (movie != null && seen.add(id)) { // a search racing an update may meet both versions
+                hits.add(new SearchHit(top.scores[i], movie));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Rank a query by scanning a snapshot, for when no index has been built for
+     * it yet. Scores like search, except that a term missing from the catalog
+     * matches each movie's closest term rather than the closest dictionary
+     * terms, so fuzzy rankings can differ slightly. One pass over the text;
+     * only matching movies are kept.
+     */
+    static List<SearchHit> scan(String query, int limit, CatalogSnapshot snapshot) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokens(query)));
+        int[] exactFrequency = new int[terms.size()];  // movies containing the term itself
+        int[] fuzzyFrequency = new int[terms.size()];  // movies containing only a near term
+        List<Movie> matched = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>(); // per match: (frequency, edits) per term, then length
+        int[][] scratch = new int[3][MAX_TERM_LENGTH + 3];
+        int documents = 0;
+        long totalLength = 0;
+        for (Movie movie : snapshot.getMovies()) {
+            if (snapshot.getMovie(movie.getId()) != movie) {
+                continue; // duplicate id, as in build
+            }
+            Map<String, Integer> frequencies = termFrequencies(movie);
+            int length = lengthOf(frequencies);
+            documents++;
+            totalLength += length;
+            int[] row = null;
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                Integer exact = frequencies.get(term);
+                int frequency = exact != null ? exact : 0;
+                int edits = 0;
+                int maxEdits = exact != null ? 0 : maxEdits(term);
+                for (Map.Entry<String, Integer> candidate : maxEdits > 0 ? frequencies.entrySet()
+                        : Collections.<Map.Entry<String, Integer>>emptySet()) {
+                    int distance = editDistance(term, candidate.getKey(), maxEdits, scratch);
+                    if (distance <= maxEdits && (frequency == 0 || distance < edits
+                            || (distance == edits && candidate.getValue() > frequency))) {
+                        frequency = candidate.getValue();
+                        edits = distance;
+                    }
+                }
+                if (frequency > 0) {
+                    if (row == null) {
+                        row = new int[2 * terms.size() + 1];
+                    }
+                    row[2 * t] = frequency;
+                    row[2 * t + 1] = edits;
+                    if (edits == 0) {
+                        exactFrequency[t]++;
+                    } else {
+                        fuzzyFrequency[t]++;
+                    }
+                }
+            }
+            if (row != null) {
+                row[2 * terms.size()] = length;
+                matched.add(movie);
+                rows.add(row);
+            }
+        }
+
+        int docs = Math.max(1, documents);
+        double lengthFactor = K1 * B / Math.max(1.0, (double) totalLength / docs);
+        TopHits top = new TopHits(limit);
+        for (int i = 0; i < rows.size(); i++) {
+            int[] row = rows.get(i);
+            double norm = K1 * (1 - B) + lengthFactor * row[2 * terms.size()];
+            double score = 0;
+            for (int t = 0; t < terms.size(); t++) {
+                int frequency = row[2 * t];
+                int edits = row[2 * t + 1];
+                if (frequency == 0 || (edits > 0 && exactFrequency[t] > 0)) {
+                    continue; // like search, a term found as such is not expanded
+                }
+                int df = edits == 0 ? exactFrequency[t] : fuzzyFrequency[t];
+                score += idf(df, docs) * Math.pow(FUZZY_DISCOUNT, edits) * frequency * (K1 + 1) / (frequency + norm);
+            }
+            if (score > 0) {
+                top.offer(i, score);
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>();
+        for (int i : top.bestFirst()) {
+            hits.add(new SearchHit(top.scores[i], matched.get(top.docs[i])));
+        }
+        return hits;
+    }
+
+    private void put(Movie movie) {
+        Integer doc = docById.get(movie.getId());
+        if (doc != null) {
+            if (Arrays.equals(textByDoc[doc], indexedText(movie))) {
+                return; // price, rating, ... changed; nothing this index holds
+            }
+            kill(doc);
+        }
+        Map<String, Integer> frequencies = termFrequencies(movie);
+        int newDoc = assignDoc(movie, frequencies);
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            Postings list = postings.get(term.getKey());
+            if (list == null) {
+                postings.put(term.getKey(), new Appender().add(newDoc, term.getValue()).view());
+                addTerm(term.getKey());
+            } else {
+                postings.put(term.getKey(), new Appender(list).add(newDoc, term.getValue()).view());
+            }
+        }
+    }
+
+    private void remove(String id) {
+        Integer doc = docById.remove(id);
+        if (doc != null) {
+            kill(doc);
+        }
+    }
+
+    private int assignDoc(Movie movie, Map<String, Integer> frequencies) {
+        int doc = nextDoc++;
+        if (doc == idsByDoc.length) {
+            textByDoc = Arrays.copyOf(textByDoc, doc * 2);
+            lengthsByDoc = Arrays.copyOf(lengthsByDoc, doc * 2);
+            idsByDoc = Arrays.copyOf(idsByDoc, doc * 2);
+        }
+        int length = lengthOf(frequencies);
+        textByDoc[doc] = indexedText(movie);
+        lengthsByDoc[doc] = length;
+        idsByDoc[doc] = movie.getId();
+        docById.put(movie.getId(), doc);
+        liveLength += length;
+        liveDocs++;
+        return doc;
+    }
+
+    private void kill(int doc) {
+        idsByDoc[doc] = null;
+        textByDoc[doc] = null;
+        liveLength -= lengthsByDoc[doc];
+        liveDocs--;
+        deadDocs++;
+    }
+
+    private void addTerm(String term) {
+        int bucket = Math.min(term.length(), MAX_TERM_LENGTH);
+        Terms terms = termsByLength.get(bucket);
+        String[] array = terms.terms;
+        if (terms.size == array.length) {
+            array = Arrays.copyOf(array, Math.max(8, array.length * 2));
+        }
+        array[terms.size] = term;
+        termsByLength.set(bucket, new Terms(array, terms.size + 1));
+    }
+
+    /**
+     * Dictionary terms within the edit budget of a term that is not in the
+     * dictionary itself, with their distances; closest and commonest first
+     */
+    private Map<String, Integer> expand(String term, int[][] scratch) {
+        Map<String, Integer> near = new LinkedHashMap<>();
+        int maxEdits = maxEdits(term);
+        if (maxEdits == 0) {
+            return near;
+        }
+        List<String> candidates = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        int from = Math.max(1, term.length() - maxEdits);
+        int to = Math.min(MAX_TERM_LENGTH, term.length() + maxEdits);
+        for (int length = from; length <= to; length++) {
+            Terms terms = termsByLength.get(length);
+            for (int i = 0; i < terms.size; i++) {
+                int distance = editDistance(term, terms.terms[i], maxEdits, scratch);
+                if (distance <= maxEdits) {
+                    candidates.add(terms.terms[i]);
+                    distances.add(distance);
+                }
+            }
+        }
+        Integer[] order = new Integer[candidates.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(distances::get)
+                .thenComparing(i -> -postings.get(candidates.get(i)).count));
+        for (int i = 0; i < order.length && i < MAX_EXPANSIONS; i++) {
+            near.put(candidates.get(order[i]), distances.get(order[i]));
+        }
+        return near;
+    }
+
+    /**
+     * Edits a query term may be away from a term it matches
+     */
+    private static int maxEdits(String term) {
+        if (term.chars().anyMatch(Character::isDigit)) {
+            return 0; // years and sequel numbers must match exactly
+        }
+        return term.length() < 4 ? 0 : term.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent
+     * transpositions), or max + 1 as soon as it must exceed max
+     */
+    static int editDistance(String a, String b, int max, int[][] scratch) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        if (m + 1 > scratch[0].length) {
+            scratch = new int[3][m + 1];
+        }
+        int[] before = scratch[0];
+        int[] previous = scratch[1];
+        int[] current = scratch[2];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + (ca == cb ? 0 : 1));
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m];
+    }
+
+    static double idf(int documentFrequency, int documents) {
+        int df = Math.min(documentFrequency, documents); // dead documents still count in posting lists
+        return Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+    }
+
+    /**
+     * Weighted frequency of every term of a movie's title, cast and description
+     */
+    static Map<String, Integer> termFrequencies(Movie movie) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String term : tokens(movie.getTitle())) {
+            frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+        }
+        if (movie.getCast() != null) {
+            for (String member : movie.getCast()) {
+                for (String term : tokens(member)) {
+                    frequencies.merge(term, CAST_WEIGHT, Integer::sum);
+                }
+            }
+        }
+        for (String term : tokens(movie.getDescription())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static int lengthOf(Map<String, Integer> frequencies) {
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+        return length;
+    }
+
+    /**
+     * Searchable terms of a text, in order, repeats included
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) >= 0x80) {
+                folded = MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, i);
+                if ((token.length() > 1 || Character.isDigit(token.charAt(0))) && !STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The fields this index holds terms from: title, description, then cast
+     */
+    private static String[] indexedText(Movie movie) {
+        List<String> cast = movie.getCast() != null ? movie.getCast() : Collections.<String>emptyList();
+        String[] text = new String[2 + cast.size()];
+        text[0] = movie.getTitle();
+        text[1] = movie.getDescription();
+        for (int i = 0; i < cast.size(); i++) {
+            text[2 + i] = cast.get(i);
+        }
+        return text;
+    }
+
+    /**
+     * Published view of one term's posting list: data[0, length) holds
+     * (document delta, frequency) varint pairs. Entry j of skips, as the pair
+     * (skips[2j], skips[2j + 1]), gives the document before posting
+     * (j + 1) * SKIP_INTERVAL and that posting's offset in data.
+     */
+    private static final class Postings {
+        final byte[] data;
+        final int length;
+        final int[] skips;
+        final int skipCount;
+        final int count;
+        final int lastDoc;
+        final int maxFrequency;
+
+        Postings(byte[] data, int length, int[] skips, int skipCount, int count, int lastDoc, int maxFrequency) {
+            this.data = data;
+            this.length = length;
+            this.skips = skips;
+            this.skipCount = skipCount;
+            this.count = count;
+            this.lastDoc = lastDoc;
+            this.maxFrequency = maxFrequency;
+        }
+    }
+
+    /**
+     * Appends to a posting list in place of its published view. It writes
+     * only beyond the view's end (or into fresh arrays), so the view stays
+     * valid for searches still reading it.
+     */
+    private static final class Appender {
+        private byte[] data;
+        private int length;
+        private int[] skips;
+        private int skipCount;
+        private int count;
+        private int lastDoc = -1;
+        private int maxFrequency;
+
+        Appender() {
+            data = new byte[16];
+            skips = new int[0];
+        }
+
+        Appender(Postings view) {
+            data = view.data;
+            length = view.length;
+            skips = view.skips;
+            skipCount = view.skipCount;
+            count = view.count;
+            lastDoc = view.lastDoc;
+            maxFrequency = view.maxFrequency;
+        }
+
+        Appender add(int doc, int frequency) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(length + 10, data.length * 2));
+            }
+            if (count > 0 && count % SKIP_INTERVAL == 0) {
+                if (2 * skipCount + 2 > skips.length) {
+                    skips = Arrays.copyOf(skips, Math.max(8, skips.length * 2));
+                }
+                skips[2 * skipCount] = lastDoc;
+                skips[2 * skipCount + 1] = length;
+                skipCount++;
+            }
+            length = writeVarint(data, length, doc - lastDoc);
+            length = writeVarint(data, length, frequency);
+            lastDoc = doc;
+            count++;
+            maxFrequency = Math.max(maxFrequency, frequency);
+            return this;
+        }
+
+        Postings view() {
+            return new Postings(data, length, skips, skipCount, count, lastDoc, maxFrequency);
+        }
+
+        private static int writeVarint(byte[] out, int at, int value) {
+            while ((value & ~0x7F) != 0) {
+                out[at++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out[at++] = (byte) value;
+            return at;
+        }
+    }
+
+    /**
+     * Walks one posting list during a search
+     */
+    private static final class Cursor {
+        private final Postings list;
+        private final double weight; // idf, discounted for fuzzy terms
+        final double upperBound;     // the most this term can add to any document's score
+        private int offset;
+        private int read;            // postings decoded so far
+        int doc = -1;                // current document, Integer.MAX_VALUE once exhausted
+        private int frequency;
+
+        Cursor(Postings list, double weight) {
+            this.list = list;
+            this.weight = weight;
+            // BM25 grows with frequency and shrinks with length; bound it at the shortest document
+            this.upperBound = weight * list.maxFrequency * (K1 + 1) / (list.maxFrequency + K1 * (1 - B));
+        }
+
+        double score(double norm) {
+            return weight * frequency * (K1 + 1) / (frequency + norm);
+        }
+
+        void next() {
+            if (read == list.count) {
+                doc = Integer.MAX_VALUE;
+                return;
+            }
+            byte[] data = list.data;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += value;
+            value = 0;
+            shift = 0;
+            do {
+                b = data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            frequency = value;
+            read++;
+        }
+
+        /**
+         * Move to the first document at or after target, jumping whole blocks
+         * of SKIP_INTERVAL postings where the skips allow
+         */
+        void advance(int target) {
+            if (doc >= target) {
+                return;
+            }
+            int skip = read / SKIP_INTERVAL; // first skip that lands past the current position
+            int landing = -1;
+            while (skip < list.skipCount && list.skips[2 * skip] < target) {
+                landing = skip++;
+            }
+            if (landing >= 0) {
+                doc = list.skips[2 * landing];
+                offset = list.skips[2 * landing + 1];
+                read = (landing + 1) * SKIP_INTERVAL;
+            }
+            do {
+                next();
+            } while (doc < target);
+        }
+    }
+
+    /**
+     * Bounded min-heap of the best (score, document) pairs; on equal scores
+     * the earlier document wins
+     */
+    private static final class TopHits {
+        final int[] docs;
+        final double[] scores;
+        private int size;
+
+        TopHits(int limit) {
+            docs = new int[limit];
+            scores = new double[limit];
+        }
+
+        boolean isFull() {
+            return size == docs.length;
+        }
+
+        /**
+         * Score the weakest kept hit has, which a new one must beat
+         */
+        double threshold() {
+            return isFull() ? scores[0] : 0;
+        }
+
+        /**
+         * @return whether the heap was full and its threshold may have risen
+         */
+        boolean offer(int doc, double score) {
+            if (!isFull()) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+                return isFull();
+            }
+            if (score <= scores[0]) {
+                return false; // documents arrive in order, so a tie loses to the one already kept
+            }
+            docs[0] = doc;
+            scores[0] = score;
+            siftDown(0);
+            return true;
+        }
+
+        /**
+         * Heap slots from best to worst
+         */
+        int[] bestFirst() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> worse(a, b) ? 1 : worse(b, a) ? -1 : 0);
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = order[i];
+            }
+            return slots;
+        }
+
+        private boolean worse(int a, int b) {
+            return scores[a] < scores[b] || (scores[a] == scores[b] && docs[a] > docs[b]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!worse(i, parent)) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && worse(child + 1, child)) {
+                    child++;
+                }
+                if (!worse(child, i)) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int doc = docs[a];
+            docs[a] = docs[b];
+            docs[b] = doc;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    /**
+     * Published view of the dictionary terms of one length
+     */
+    private static final class Terms {
+        final String[] terms;
+        final int size;
+
+        Terms(String[] terms, int size) {
+            this.terms = terms;
+            this.size = size;
+        }
+    }
+}
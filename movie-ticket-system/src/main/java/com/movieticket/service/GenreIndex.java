@@ -0,0 +1,184 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Genre lookups without scanning the catalog.
+ *
+ * Keeps a case-folded genre -> movies multimap, plus a reference count per
+ * distinct genre name so the sorted genre list only has to be rebuilt when a
+ * genre appears or disappears. Looking up a genre costs the size of the
+ * result, and listing genres costs the number of genres.
+ *
+ * Movies carry a sequence number in catalog order and each genre's movies are
+ * kept sorted by it, so results come out in catalog order like the old scan.
+ * As with TrigramIndex, only MovieService's writer modifies the index and every
+ * published structure is immutable, so readers never lock.
+ */
+final class GenreIndex {
+    private static final Posting EMPTY = new Posting(new int[0], new Movie[0]);
+
+    private final ConcurrentHashMap<String, Posting> byGenre = new ConcurrentHashMap<>();
+    private volatile List<String> sortedGenres = Collections.emptyList();
+
+    // Writer only
+    private final Map<String, Integer> seqById = new HashMap<>();
+    private final Map<String, Movie> movieById = new HashMap<>();
+    private final TreeMap<String, Integer> genreCounts = new TreeMap<>();
+    private int nextSeq;
+
+    /**
+     * Movies of one folded genre, sorted by sequence number
+     */
+    private static final class Posting {
+        final int[] seqs;
+        final Movie[] movies;
+
+        Posting(int[] seqs, Movie[] movies) {
+            this.seqs = seqs;
+            this.movies = movies;
+        }
+    }
+
+    /**
+     * Build an index over a catalog in one pass
+     */
+    static GenreIndex build(CatalogSnapshot snapshot) {
+        GenreIndex index = new GenreIndex();
+        Map<String, List<Movie>> lists = new HashMap<>();
+        Map<String, List<Integer>> seqs = new HashMap<>();
+        for (Movie movie : snapshot.getMovies()) {
+            if (snapshot.getMovie(movie.getId()) != movie) {
+                continue; // duplicate id, not reachable by lookups either
+            }
+            int seq = index.nextSeq++;
+            index.seqById.put(movie.getId(), seq);
+            index.movieById.put(movie.getId(), movie);
+            if (movie.getGenre() == null) {
+                continue;
+            }
+            String folded = movie.getGenre().toLowerCase();
+            lists.computeIfAbsent(folded, g -> new ArrayList<>()).add(movie);
+            seqs.computeIfAbsent(folded, g -> new ArrayList<>()).add(seq);
+            index.genreCounts.merge(movie.getGenre(), 1, Integer::sum);
+        }
+        for (Map.Entry<String, List<Movie>> entry : lists.entrySet()) {
+            int[] seqArray = seqs.get(entry.getKey()).stream().mapToInt(Integer::intValue).toArray();
+            index.byGenre.put(entry.getKey(), new Posting(seqArray, entry.getValue().toArray(new Movie[0])));
+        }
+        index.publishGenres();
+        return index;
+    }
+
+    /**
+     * Movies in a genre (case-insensitive), in catalog order
+     */
+    List<Movie> moviesIn(String genre) {
+        Posting posting = byGenre.getOrDefault(genre.toLowerCase(), EMPTY);
+        return new ArrayList<>(Arrays.asList(posting.movies));
+    }
+
+    /**
+     * Read-only view of the movies in a genre (case-insensitive), in catalog order
+     */
+    List<Movie> postingOf(String genre) {
+        return Collections.unmodifiableList(Arrays.asList(byGenre.getOrDefault(genre.toLowerCase(), EMPTY).movies));
+    }
+
+    /**
+     * Every distinct genre name, sorted (read-only)
+     */
+    List<String> genres() {
+        return sortedGenres;
+    }
+
+    /**
+     * Keep the index in step with a published change
+     */
+    void apply(CatalogChange change) {
+        Movie old = change.getType() == CatalogChange.Type.CREATE ? null : movieById.get(change.getId());
+        Integer seq = seqById.get(change.getId());
+        boolean genresChanged = false;
+
+        if (old != null && old.getGenre() != null) {
+            removeFrom(old.getGenre().toLowerCase(), seq);
+            genresChanged |= genreCounts.merge(old.getGenre(), -1, Integer::sum) == 0;
+            genreCounts.remove(old.getGenre(), 0);
+        }
+
+        if (change.getType() == CatalogChange.Type.DELETE) {
+            seqById.remove(change.getId());
+            movieById.remove(change.getId());
+        } else {
+            Movie movie = change.getMovie();
+            if (seq == null) {
+                seq = nextSeq++;
+                seqById.put(movie.getId(), seq);
+            }
+            movieById.put(movie.getId(), movie);
+            if (movie.getGenre() != null) {
+                insertInto(movie.getGenre().toLowerCase(), seq, movie);
+                genresChanged |= genreCounts.merge(movie.getGenre(), 1, Integer::sum) == 1;
+            }
+        }
+
+        if (genresChanged) {
+            publishGenres();
+        }
+    }
+
+    private void insertInto(String folded, int seq, Movie movie) {
+        Posting posting = byGenre.getOrDefault(folded, EMPTY);
+        int at = Arrays.binarySearch(posting.seqs, seq);
+        if (at >= 0) {
+            Movie[] movies = posting.movies.clone();
+            movies[at] = movie;
+            byGenre.put(folded, new Posting(posting.seqs, movies));
+            return;
+        }
+        at = -at - 1;
+        int size = posting.seqs.length;
+        int[] seqs = new int[size + 1];
+        Movie[] movies = new Movie[size + 1];
+        System.arraycopy(posting.seqs, 0, seqs, 0, at);
+        System.arraycopy(posting.movies, 0, movies, 0, at);
+        seqs[at] = seq;
+        movies[at] = movie;
+        System.arraycopy(posting.seqs, at, seqs, at + 1, size - at);
+        System.arraycopy(posting.movies, at, movies, at + 1, size - at);
+        byGenre.put(folded, new Posting(seqs, movies));
+    }
+
+    private void removeFrom(String folded, int seq) {
+        Posting posting = byGenre.get(folded);
+        int at = posting != null ? Arrays.binarySearch(posting.seqs, seq) : -1;
+        if (at < 0) {
+            return;
+        }
+        int size = posting.seqs.length;
+        if (size == 1) {
+            byGenre.remove(folded);
+            return;
+        }
+        int[] seqs = new int[size - 1];
+        Movie[] movies = new Movie[size - 1];
+        System.arraycopy(posting.seqs, 0, seqs, 0, at);
+        System.arraycopy(posting.movies, 0, movies, 0, at);
+        System.arraycopy(posting.seqs, at + 1, seqs, at, size - at - 1);
+        System.arraycopy(posting.movies, at + 1, movies, at, size - at - 1);
+        byGenre.put(folded, new Posting(seqs, movies));
+    }
+
+    private void publishGenres() {
+        sortedGenres = Collections.unmodifiableList(new ArrayList<>(genreCounts.keySet()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.movieticket.service;
+
+/**
+ * Point-in-time counters of the seat-hold service
+ */
+public class HoldMetrics {
+    private final int activeHolds;
+    private final int pendingTimers;
+    private final long created;
+    private final long confirmed;
+    private final long cancelled;
+    private final long expired;
+    private final double expirationsPerSecond;
+
+    HoldMetrics(int activeHolds, int pendingTimers, long created, long confirmed, long cancelled,
+                long expired, double expirationsPerSecond) {
+        this.activeHolds = activeHolds;
+        this.pendingTimers = pendingTimers;
+        this.created = created;
+        this.confirmed = confirmed;
+        this.cancelled = cancelled;
+        this.expired = expired;
+        this.expirationsPerSecond = expirationsPerSecond;
+    }
+
+    public int getActiveHolds() {
+        return activeHolds;
+    }
+
+    /**
+     * Expiry timers still in the timing wheel
+     */
+    public int getPendingTimers() {
+        return pendingTimers;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getConfirmed() {
+        return confirmed;
+    }
+
+    public long getCancelled() {
+        return cancelled;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Average over the last few complete seconds
+     */
+    public double getExpirationsPerSecond() {
+        return expirationsPerSecond;
+    }
+}
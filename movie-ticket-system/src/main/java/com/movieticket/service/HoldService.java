@@ -0,0 +1,208 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Order;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timed seat holds: seats are claimed when checkout starts and released again
+ * unless the hold is confirmed or cancelled before it lapses.
+ *
+ * Expiry is driven by a TimingWheel advanced every 100 ms on a background
+ * thread, so each tick only looks at the holds due in that tick rather than
+ * sweeping all of them. The holds map decides races between expiry, confirm
+ * and cancel: whichever removes the hold from it owns the outcome.
+ */
+public class HoldService {
+    private static final long TICK_MILLIS = 100;
+    private static final int RATE_WINDOW_SECONDS = 10;
+
+    private final ShowtimeService showtimeService;
+    private final long holdMillis;
+    private final ConcurrentHashMap<String, SeatHold> holds = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long origin = System.nanoTime();
+
+    // Guarded by wheel
+    private final TimingWheel<SeatHold> wheel;
+    private final long[] expiredBySecond = new long[RATE_WINDOW_SECONDS + 1];
+    private long rateSecond;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "seat-hold-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param holdMillis how long a hold lasts
+     */
+    public HoldService(ShowtimeService showtimeService, long holdMillis) {
+        if (holdMillis < 1) {
+            throw new IllegalArgumentException("holdMillis must be positive");
+        }
+        this.showtimeService = showtimeService;
+        this.holdMillis = holdMillis;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, now());
+        this.rateSecond = now() / 1000;
+        ticker.scheduleAtFixedRate(this::expireDue, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Claim seats (labels like "C12") all-or-nothing and hold them
+     *
+     * @return the outcome, with the hold id on success, or null if there is no such showtime
+     */
+    public SeatClaimResult holdSeats(String showtimeId, List<String> labels) {
+        SeatInventory inventory = showtimeService.getSeats(showtimeId);
+        if (inventory == null) {
+            return null;
+        }
+        int[] seats = ShowtimeService.seatsOf(inventory, labels);
+        if (!inventory.claim(seats)) {
+            return ShowtimeService.rejected(showtimeId, inventory, seats);
+        }
+
+        SeatHold hold = new SeatHold(newHoldId(), showtimeId, inventory, seats,
+                System.currentTimeMillis() + holdMillis);
+        synchronized (wheel) {
+            // Registered under the wheel's lock so expiry never sees the timer
+            // before the hold
+            hold.timer = wheel.schedule(now() + holdMillis, hold);
+            holds.put(hold.getId(), hold);
+        }
+        created.increment();
+        return new SeatClaimResult(showtimeId, hold.getSeats(), true, Collections.emptyList(),
+                null, hold.getId(), hold.getExpiresAt());
+    }
+
+    /**
+     * A hold that has not lapsed, been confirmed or been cancelled, else null
+     */
+    public SeatHold getHold(String holdId) {
+        return holds.get(holdId);
+    }
+
+    /**
+     * Complete checkout: the held seats become a paid order
+     *
+     * @return the order, or null if the hold no longer exists
+     */
+    public Order confirmHold(String holdId) {
+        SeatHold hold = removeHold(holdId);
+        if (hold == null) {
+            return null;
+        }
+        Order order = showtimeService.sell(hold.getShowtimeId(), hold.inventory(), hold.seatNumbers());
+        confirmed.increment();
+        return order;
+    }
+
+    /**
+     * Abandon checkout and free the seats now
+     *
+     * @return the hold, or null if it no longer exists
+     */
+    public SeatHold cancelHold(String holdId) {
+        SeatHold hold = removeHold(holdId);
+        if (hold != null) {
+            hold.inventory().release(hold.seatNumbers());
+            cancelled.increment();
+        }
+        return hold;
+    }
+
+    public HoldMetrics getMetrics() {
+        synchronized (wheel) {
+            long second = now() / 1000;
+            roll(second);
+            long recent = 0;
+            for (int i = 0; i < expiredBySecond.length; i++) {
+                if (i != (int) (second % expiredBySecond.length)) {
+                    recent += expiredBySecond[i];
+                }
+            }
+            return new HoldMetrics(holds.size(), wheel.size(), created.sum(), confirmed.sum(), cancelled.sum(),
+                    expired.sum(), (double) recent / RATE_WINDOW_SECONDS);
+        }
+    }
+
+    /**
+     * Stop expiring holds
+     */
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private SeatHold removeHold(String holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold != null) {
+            synchronized (wheel) {
+                wheel.cancel(hold.timer);
+            }
+        }
+        return hold;
+    }
+
+    /**
+     * One tick: release the seats of every hold that has lapsed
+     */
+    private void expireDue() {
+        try {
+            long now = now();
+            List<SeatHold> due = new ArrayList<>();
+            synchronized (wheel) {
+                wheel.advance(now, due);
+            }
+            int count = 0;
+            for (SeatHold hold : due) {
+                if (holds.remove(hold.getId(), hold)) {
+                    hold.inventory().release(hold.seatNumbers());
+                    count++;
+                }
+            }
+            expired.add(count);
+            synchronized (wheel) {
+                roll(now / 1000);
+                expiredBySecond[(int) (rateSecond % expiredBySecond.length)] += count;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error expiring seat holds: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Move the per-second expiry counts forward to this second, zeroing the
+     * seconds skipped
+     */
+    private void roll(long second) {
+        rateSecond = Math.max(rateSecond, second - expiredBySecond.length);
+        while (rateSecond < second) {
+            rateSecond++;
+            expiredBySecond[(int) (rateSecond % expiredBySecond.length)] = 0;
+        }
+    }
+
+    private String newHoldId() {
+        return Long.toUnsignedString(random.nextLong(), 36);
+    }
+
+    /**
+     * Monotonic milliseconds, the wheel's clock
+     */
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+}
@@ -0,0 +1,46 @@
+package com.movieticket.service;
+
+/**
+ * Outcome of a streamed import: how many movies were created and updated,
+ * and the error that stopped it early, if any
+ */
+public class ImportResult {
+    private final int created;
+    private final int updated;
+    private final long version;
+    private final String error;
+
+    ImportResult(int created, int updated, long version, String error) {
+        this.created = created;
+        this.updated = updated;
+        this.version = version;
+        this.error = error;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Catalog version that contains everything imported
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Why the import stopped before the end of the input, or null if it completed.
+     * Records before the bad one are kept.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isComplete() {
+        return error == null;
+    }
+}
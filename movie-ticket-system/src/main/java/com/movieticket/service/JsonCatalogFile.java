@@ -0,0 +1,141 @@
+package com.movieticket.service;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.movieticket.model.Movie;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The movies.json document: reads the catalog from disk and writes snapshots back.
+ *
+ * Reading is streamed: movies are parsed one at a time with a JsonReader and
+ * handed straight to the caller, so loading never holds a second copy of the
+ * catalog or a parse tree in memory. Genre, director and cast names repeat
+ * across thousands of movies, so the loader shares one String per distinct
+ * name instead of keeping a copy per movie.
+ *
+ * Writes go to a temporary file in the same directory which is then moved over
+ * the original, so a reader (or a crash) never sees a half-written catalog.
+ */
+public class JsonCatalogFile {
+    private static final int PROGRESS_INTERVAL = 100_000;
+    private static final int MAX_SHARED_STRINGS = 100_000;
+
+    private final Path path;
+    private final Gson gson;
+    private volatile CatalogSnapshot lastWritten;
+
+    public JsonCatalogFile(String dataFilePath) {
+        this.path = Paths.get(dataFilePath);
+        this.gson = new Gson();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * The snapshot most recently written to the file, or null if none was written
+     */
+    public CatalogSnapshot getLastWritten() {
+        return lastWritten;
+    }
+
+    /**
+     * Read every movie in the file into a list
+     */
+    public List<Movie> read() throws IOException {
+        List<Movie> movies = new ArrayList<>();
+        read(movies::add);
+        return movies;
+    }
+
+    /**
+     * Stream every movie in the file to a consumer, in file order.
+     * Progress is printed every 100,000 movies for large catalogs.
+     *
+     * @return the number of movies read
+     */
+    public int read(Consumer<Movie> sink) throws IOException {
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            if (reader.peek() == JsonToken.NULL) {
+                return 0; // same as an empty catalog
+            }
+            TypeAdapter<Movie> movieAdapter = gson.getAdapter(Movie.class);
+            Map<String, String> sharedStrings = new HashMap<>();
+            int count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Movie movie = movieAdapter.read(reader);
+                shareRepeatedStrings(movie, sharedStrings);
+                sink.accept(movie);
+                count++;
+                if (count % PROGRESS_INTERVAL == 0) {
+                    System.out.println("Loaded " + count + " movies...");
+                }
+            }
+            reader.endArray();
+            return count;
+        }
+    }
+
+    /**
+     * Replace repeated names with one shared instance. The pool is capped so a
+     * catalog full of unique names cannot make it grow without bound.
+     */
+    private static void shareRepeatedStrings(Movie movie, Map<String, String> sharedStrings) {
+        movie.setGenre(share(movie.getGenre(), sharedStrings));
+        movie.setDirector(share(movie.getDirector(), sharedStrings));
+        List<String> cast = movie.getCast();
+        if (cast != null) {
+            cast.replaceAll(name -> share(name, sharedStrings));
+        }
+    }
+
+    private static String share(String value, Map<String, String> sharedStrings) {
+        if (value == null) {
+            return null;
+        }
+        String shared = sharedStrings.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (sharedStrings.size() < MAX_SHARED_STRINGS) {
+            sharedStrings.put(value, value);
+        }
+        return value;
+    }
+
+    /**
+     * Replace the file with the contents of a snapshot
+     */
+    public void write(CatalogSnapshot snapshot) throws IOException {
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = new UnsynchronizedBufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            JsonWriter json = new JsonWriter(writer);
+            json.setHtmlSafe(true); // same bytes as gson.toJson
+            MovieJsonWriter.allFields().writeAll(json, snapshot.getMovies());
+            json.flush();
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastWritten = snapshot;
+        System.out.println("Successfully saved " + snapshot.size() + " movies to file");
+    }
+}
@@ -0,0 +1,248 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.movieticket.service.BinaryCatalogFile.*;
+
+/**
+ * Read-only catalog backed by a memory-mapped BinaryCatalogFile.
+ *
+ * Opening costs the same no matter how many movies there are: nothing is
+ * decoded up front. A Movie is built the first time its record is read and
+ * then cached, so every later read returns the same instance. ID lookups go
+ * through the hash table stored in the file.
+ *
+ * The laziness only lasts until MovieService builds its search indexes, which
+ * it starts right after loading: they read every movie, and the genre and
+ * attribute indexes keep them, so all records end up decoded and cached. The
+ * first write copies the ID map as well (CatalogSnapshot.toBuilder). What a
+ * mapped catalog saves is startup time, not steady-state memory.
+ */
+final class MappedCatalog {
+    private final ByteBuffer buffer;
+    private final int movieCount;
+    private final int hashSlots;
+    private final int recordsOffset;
+    private final int castOffset;
+    private final int hashOffset;
+    private final int stringIndexOffset;
+    private final int stringDataOffset;
+    private final AtomicReferenceArray<Movie> materialized;
+
+    MappedCatalog(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.movieCount = buffer.getInt(MOVIE_COUNT);
+        this.hashSlots = buffer.getInt(HASH_SLOTS);
+        this.recordsOffset = (int) buffer.getLong(RECORDS_OFFSET);
+        this.castOffset = (int) buffer.getLong(CAST_OFFSET);
+        this.hashOffset = (int) buffer.getLong(HASH_OFFSET);
+        this.stringIndexOffset = (int) buffer.getLong(STRING_INDEX_OFFSET);
+        this.stringDataOffset = (int) buffer.getLong(STRING_DATA_OFFSET);
+        this.materialized = new AtomicReferenceArray<>(movieCount);
+
+        int stringCount = buffer.getInt(STRING_COUNT);
+        long end = (long) stringDataOffset + buffer.getInt(stringIndexOffset + stringCount * 4);
+        if (end != buffer.capacity()) {
+            throw new IllegalStateException("Binary snapshot is truncated or corrupt");
+        }
+    }
+
+    int size() {
+        return movieCount;
+    }
+
+    /**
+     * The movie stored in a record, decoded on first access
+     */
+    Movie movie(int ordinal) {
+        Movie movie = materialized.get(ordinal);
+        if (movie == null) {
+            Movie decoded = decode(ordinal);
+            movie = materialized.compareAndSet(ordinal, null, decoded) ? decoded : materialized.get(ordinal);
+        }
+        return movie;
+    }
+
+    /**
+     * Find the record for an ID, or -1
+     */
+    int ordinalOf(String id) {
+        if (id == null) {
+            return -1;
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int slot = id.hashCode() & (hashSlots - 1);
+        while (true) {
+            int entry = buffer.getInt(hashOffset + slot * 4);
+            if (entry == 0) {
+                return -1;
+            }
+            int ordinal = entry - 1;
+            if (stringEquals(buffer.getInt(recordsOffset + ordinal * RECORD_SIZE), key)) {
+                return ordinal;
+            }
+            slot = (slot + 1) & (hashSlots - 1);
+        }
+    }
+
+    /**
+     * All movies in catalog order, decoded lazily
+     */
+    List<Movie> asList() {
+        return new MovieList();
+    }
+
+    /**
+     * ID index over the stored hash table, decoded lazily
+     */
+    Map<String, Movie> asMap() {
+        return new MovieMap();
+    }
+
+    private Movie decode(int ordinal) {
+        int record = recordsOffset + ordinal * RECORD_SIZE;
+        Movie movie = new Movie();
+        movie.setId(string(buffer.getInt(record)));
+        movie.setTitle(string(buffer.getInt(record + 4)));
+        movie.setGenre(string(buffer.getInt(record + 8)));
+        movie.setDirector(string(buffer.getInt(record + 12)));
+        movie.setDescription(string(buffer.getInt(record + 16)));
+        movie.setPosterUrl(string(buffer.getInt(record + 20)));
+        movie.setReleaseYear(buffer.getInt(record + 24));
+        movie.setDuration(buffer.getInt(record + 28));
+        movie.setRating(buffer.getDouble(record + 32));
+        movie.setPrice(buffer.getDouble(record + 40));
+
+        int castStart = buffer.getInt(record + 48);
+        int castCount = buffer.getInt(record + 52);
+        if (castCount >= 0) {
+            List<String> cast = new ArrayList<>(castCount);
+            for (int i = 0; i < castCount; i++) {
+                cast.add(string(buffer.getInt(castOffset + (castStart + i) * 4)));
+            }
+            movie.setCast(cast);
+        }
+        return movie;
+    }
+
+    private String string(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        int start = buffer.getInt(stringIndexOffset + ref * 4);
+        int end = buffer.getInt(stringIndexOffset + (ref + 1) * 4);
+        return BinaryCatalogFile.readString(buffer, stringDataOffset + start, end - start);
+    }
+
+    private boolean stringEquals(int ref, byte[] key) {
+        if (ref < 0) {
+            return false;
+        }
+        int start = buffer.getInt(stringIndexOffset + ref * 4);
+        int end = buffer.getInt(stringIndexOffset + (ref + 1) * 4);
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(stringDataOffset + start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class MovieList extends AbstractList<Movie> implements RandomAccess {
+        @Override
+        public Movie get(int index) {
+            if (index < 0 || index >= movieCount) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + movieCount);
+            }
+            return movie(index);
+        }
+
+        @Override
+        public int size() {
+            return movieCount;
+        }
+    }
+
+    private final class MovieMap extends AbstractMap<String, Movie> {
+        @Override
+        public Movie get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int ordinal = ordinalOf((String) key);
+            return ordinal >= 0 ? movie(ordinal) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && ordinalOf((String) key) >= 0;
+        }
+
+        @Override
+        public Set<Entry<String, Movie>> entrySet() {
+            return new AbstractSet<Entry<String, Movie>>() {
+                @Override
+                public Iterator<Entry<String, Movie>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (int slot = 0; slot < hashSlots; slot++) {
+                        if (buffer.getInt(hashOffset + slot * 4) != 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Walks the stored hash table, so each indexed ID appears exactly once
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Movie>> {
+        private int slot = advance(0);
+
+        private int advance(int from) {
+            while (from < hashSlots && buffer.getInt(hashOffset + from * 4) == 0) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < hashSlots;
+        }
+
+        @Override
+        public Map.Entry<String, Movie> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Movie movie = movie(buffer.getInt(hashOffset + slot * 4) - 1);
+            slot = advance(slot + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(movie.getId(), movie);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.movieticket.service;
+
+import com.google.gson.stream.JsonWriter;
+import com.movieticket.model.Movie;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes movies straight to a JsonWriter, optionally keeping only some fields.
+ *
+ * Output matches what Gson produces for Movie (same field order, null fields
+ * left out), but no intermediate objects or maps are built per movie, so a
+ * projected page like fields=id,title,posterUrl costs only what it writes.
+ */
+public final class MovieJsonWriter {
+
+    /**
+     * Movie properties in the order Gson writes them
+     */
+    enum Field {
+        ID("id"),
+        TITLE("title"),
+        GENRE("genre"),
+        DIRECTOR("director"),
+        RELEASE_YEAR("releaseYear"),
+        DURATION("duration"),
+        RATING("rating"),
+        DESCRIPTION("description"),
+        CAST("cast"),
+        POSTER_URL("posterUrl"),
+        PRICE("price");
+
+        final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    private final Field[] fields;
+
+    private MovieJsonWriter(Field[] fields) {
+        this.fields = fields;
+    }
+
+    public static MovieJsonWriter allFields() {
+        return new MovieJsonWriter(Field.values());
+    }
+
+    /**
+     * Parse a fields= parameter such as "id,title,posterUrl". Fields are always
+     * written in Movie order, whatever order they were requested in.
+     */
+    public static MovieJsonWriter forFields(String fieldsParam) {
+        if (fieldsParam == null || fieldsParam.trim().isEmpty()) {
+            return allFields();
+        }
+        Set<Field> selected = EnumSet.noneOf(Field.class);
+        for (String name : fieldsParam.split(",")) {
+            selected.add(fieldNamed(name.trim()));
+        }
+        return new MovieJsonWriter(selected.toArray(new Field[0]));
+    }
+
+    private static Field fieldNamed(String name) {
+        for (Field field : Field.values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + name + ", expected one of "
+                + Arrays.stream(Field.values()).map(f -> f.jsonName).reduce((a, b) -> a + "," + b).orElse(""));
+    }
+
+    public void writeAll(JsonWriter out, Iterable<Movie> movies) throws IOException {
+        out.beginArray();
+        for (Movie movie : movies) {
+            write(out, movie);
+        }
+        out.endArray();
+    }
+
+    public void write(JsonWriter out, Movie movie) throws IOException {
+        out.beginObject();
+        for (Field field : fields) {
+            switch (field) {
+                case ID:
+                    writeString(out, field, movie.getId());
+                    break;
+                case TITLE:
+                    writeString(out, field, movie.getTitle());
+                    break;
+                case GENRE:
+                    writeString(out, field, movie.getGenre());
+                    break;
+                case DIRECTOR:
+                    writeString(out, field, movie.getDirector());
+                    break;
+                case RELEASE_YEAR:
+                    out.name(field.jsonName).value(movie.getReleaseYear());
+                    break;
+                case DURATION:
+                    out.name(field.jsonName).value(movie.getDuration());
+                    break;
+                case RATING:
+                    out.name(field.jsonName).value(movie.getRating());
+                    break;
+                case DESCRIPTION:
+                    writeString(out, field, movie.getDescription());
+                    break;
+                case CAST:
+                    if (movie.getCast() != null) {
+                        out.name(field.jsonName).beginArray();
+                        for (String member : movie.getCast()) {
+                            out.value(member);
+                        }
+                        out.endArray();
+                    }
+                    break;
+                case POSTER_URL:
+                    writeString(out, field, movie.getPosterUrl());
+                    break;
+                case PRICE:
+                    out.name(field.jsonName).value(movie.getPrice());
+                    break;
+            }
+        }
+        out.endObject();
+    }
+
+    private static void writeString(JsonWriter out, Field field, String value) throws IOException {
+        if (value != null) {
+            out.name(field.jsonName).value(value);
+        }
+    }
+}
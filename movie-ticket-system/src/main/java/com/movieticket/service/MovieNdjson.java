@@ -0,0 +1,104 @@
+package com.movieticket.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.movieticket.model.Movie;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Newline-delimited JSON (one movie object per line) for catalog export and import.
+ *
+ * Both directions stream: export writes each movie as it goes and import
+ * parses one record at a time, so neither ever holds the whole payload in
+ * memory. Import also accepts a single JSON array of movies, the format of
+ * movies.json.
+ */
+public final class MovieNdjson {
+    private static final TypeAdapter<Movie> MOVIE_ADAPTER = new Gson().getAdapter(Movie.class);
+
+    private MovieNdjson() {
+    }
+
+    /**
+     * Write movies, one JSON object per line. Output is buffered internally
+     * and flushed to out before returning.
+     *
+     * @return the number of movies written
+     */
+    public static int write(Iterable<Movie> movies, Writer out) throws IOException {
+        Writer buffered = new UnsynchronizedBufferedWriter(out);
+        JsonWriter json = new JsonWriter(buffered);
+        json.setLenient(true); // allows a sequence of top-level values
+        json.setHtmlSafe(true);
+        MovieJsonWriter writer = MovieJsonWriter.allFields();
+        int count = 0;
+        for (Movie movie : movies) {
+            writer.write(json, movie);
+            buffered.write('\n');
+            count++;
+        }
+        json.flush();
+        return count;
+    }
+
+    /**
+     * Parse movies one at a time. The iterator throws JsonParseException if the
+     * input is malformed or cannot be read; movies before that point have
+     * already been returned.
+     */
+    public static Iterator<Movie> read(Reader in) {
+        JsonReader json = new JsonReader(in);
+        json.setLenient(true);
+        return new Iterator<Movie>() {
+            private boolean started;
+            private boolean inArray;
+            private int records;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    if (!started) {
+                        started = true;
+                        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                            json.beginArray();
+                            inArray = true;
+                        }
+                    }
+                    return inArray ? json.hasNext() : json.peek() != JsonToken.END_DOCUMENT;
+                } catch (IOException | IllegalStateException e) {
+                    throw failure(e);
+                }
+            }
+
+            @Override
+            public Movie next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                        throw new IllegalStateException("Expected a movie object but found " + json.peek());
+                    }
+                    Movie movie = MOVIE_ADAPTER.read(json);
+                    records++;
+                    return movie;
+                } catch (IOException | IllegalStateException | JsonParseException e) {
+                    throw failure(e);
+                }
+            }
+
+            private JsonParseException failure(Exception e) {
+                return new JsonParseException("Bad record " + (records + 1) + ": " + e.getMessage(), e);
+            }
+        };
+    }
+}
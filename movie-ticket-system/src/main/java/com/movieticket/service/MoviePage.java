@@ -0,0 +1,29 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.List;
+
+/**
+ * One page of the catalog, plus the cursor for the page after it
+ */
+public class MoviePage {
+    private final List<Movie> movies;
+    private final String nextCursor;
+
+    MoviePage(List<Movie> movies, String nextCursor) {
+        this.movies = movies;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Cursor for the next page, or null if this is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,203 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Combinable filter for GET /api/movies/query: numeric ranges on release year,
+ * rating, price and duration, exact (case-insensitive) genre, director and
+ * cast member, a sort attribute and a result limit.
+ *
+ * Unset criteria match everything. Range bounds are inclusive.
+ */
+public class MovieQuery {
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Numeric attributes that can be filtered and sorted on
+     */
+    public enum Field {
+        RELEASE_YEAR("releaseYear"),
+        RATING("rating"),
+        PRICE("price"),
+        DURATION("duration");
+
+        private final String paramName;
+
+        Field(String paramName) {
+            this.paramName = paramName;
+        }
+
+        public String getParamName() {
+            return paramName;
+        }
+
+        public double valueOf(Movie movie) {
+            switch (this) {
+                case RELEASE_YEAR:
+                    return movie.getReleaseYear();
+                case RATING:
+                    return movie.getRating();
+                case PRICE:
+                    return movie.getPrice();
+                default:
+                    return movie.getDuration();
+            }
+        }
+
+        /**
+         * Look up a field by its JSON/query parameter name, e.g. "releaseYear"
+         */
+        public static Field fromParamName(String name) {
+            for (Field field : values()) {
+                if (field.paramName.equalsIgnoreCase(name)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown sort field: " + name);
+        }
+    }
+
+    private final double[] min = new double[Field.values().length];
+    private final double[] max = new double[Field.values().length];
+    private String genre;
+    private String director;
+    private String castMember;
+    private Field sortBy = Field.RATING;
+    private boolean descending = true;
+    private int limit = 20;
+
+    public MovieQuery() {
+        Arrays.fill(min, Double.NEGATIVE_INFINITY);
+        Arrays.fill(max, Double.POSITIVE_INFINITY);
+    }
+
+    public MovieQuery setMin(Field field, double value) {
+        min[field.ordinal()] = value;
+        return this;
+    }
+
+    public MovieQuery setMax(Field field, double value) {
+        max[field.ordinal()] = value;
+        return this;
+    }
+
+    public double getMin(Field field) {
+        return min[field.ordinal()];
+    }
+
+    public double getMax(Field field) {
+        return max[field.ordinal()];
+    }
+
+    /**
+     * Whether the query restricts this field at all
+     */
+    public boolean isRestricted(Field field) {
+        return min[field.ordinal()] != Double.NEGATIVE_INFINITY || max[field.ordinal()] != Double.POSITIVE_INFINITY;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public MovieQuery setGenre(String genre) {
+        this.genre = genre;
+        return this;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public MovieQuery setDirector(String director) {
+        this.director = director;
+        return this;
+    }
+
+    public String getCastMember() {
+        return castMember;
+    }
+
+    public MovieQuery setCastMember(String castMember) {
+        this.castMember = castMember;
+        return this;
+    }
+
+    public Field getSortBy() {
+        return sortBy;
+    }
+
+    public MovieQuery setSortBy(Field sortBy) {
+        this.sortBy = sortBy;
+        return this;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public MovieQuery setDescending(boolean descending) {
+        this.descending = descending;
+        return this;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public MovieQuery setLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Check every criterion against a movie
+     */
+    public boolean matches(Movie movie) {
+        for (Field field : Field.values()) {
+            double value = field.valueOf(movie);
+            if (value < min[field.ordinal()] || value > max[field.ordinal()]) {
+                return false;
+            }
+        }
+        if (genre != null && !equalsFolded(genre, movie.getGenre())) {
+            return false;
+        }
+        if (director != null && !equalsFolded(director, movie.getDirector())) {
+            return false;
+        }
+        if (castMember != null) {
+            if (movie.getCast() == null) {
+                return false;
+            }
+            boolean found = false;
+            for (String member : movie.getCast()) {
+                if (equalsFolded(castMember, member)) {
+                    found = true;
+                    break;
+                }
+            }
+            return found;
+        }
+        return true;
+    }
+
+    /**
+     * Result order: the sort field, ties broken by id, both reversed when descending
+     */
+    public Comparator<Movie> resultOrder() {
+        Comparator<Movie> ascending = Comparator.<Movie>comparingDouble(sortBy::valueOf)
+                .thenComparing(Movie::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+        return descending ? ascending.reversed() : ascending;
+    }
+
+    private static boolean equalsFolded(String wanted, String actual) {
+        return actual != null && actual.toLowerCase().equals(wanted.toLowerCase());
+    }
+}
@@ -1,61 +1,320 @@
 package com.movieticket.service;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
 import com.movieticket.model.Movie;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
  * Service class for managing movie operations
+ *
+ * The catalog is held in an immutable CatalogSnapshot. Readers use whatever
+ * snapshot is current and never lock; writers are serialized on writeLock,
+ * prepare the next snapshot from a copy and publish it with a single
+ * volatile write. Getting snapshots onto disk is delegated to a
+ * CatalogPersistence strategy. writeLock is a ReentrantLock rather than a
+ * monitor because synchronous persistence writes the file while holding it,
+ * and a request on a virtual thread must not pin its carrier for that long.
+ *
+ * Title search uses a TrigramIndex, genre lookups a GenreIndex and attribute
+ * queries an AttributeIndex. They are built on a background thread after each
+ * load (lookups scan the catalog until they are ready) and then kept up to
+ * date by writers. Ranked full-text search uses a FullTextIndex, built and
+ * maintained along with them; until it is ready, searches rank by a scan.
+ * No read path takes writeLock.
+ *
+ * Batches of changes are applied to one working copy and published (and
+ * persisted) together. Imports publish as they go but persist once at the end.
+ * Every publish is also appended to a ChangeFeed for clients that follow the
+ * catalog.
+ *
+ * When a BinaryCatalogFile is configured, startup memory-maps it instead of
+ * parsing movies.json whenever it was built from the current JSON file.
  */
 public class MovieService {
-    private List<Movie> movies;
-    private final Gson gson;
-    private final String dataFilePath;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 50_000;
 
+    // A publish with more changes than this rebuilds the search indexes in the
+    // background instead of updating them one change at a time
+    private static final int REINDEX_THRESHOLD = 256;
+
+    // Imports apply at least this many records per snapshot, and more as the
+    // catalog grows, so copying the catalog per batch stays linear overall
+    private static final int IMPORT_BATCH_SIZE = 10_000;
+
+    // Changes kept for clients that follow the catalog; see ChangeFeed
+    private static final int CHANGE_FEED_CAPACITY = 1000;
+
+    private volatile CatalogSnapshot snapshot;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final JsonCatalogFile catalogFile;
+    private final CatalogPersistence persistence;
+    private final BinaryCatalogFile binarySnapshot; // null when disabled
+    private volatile TrigramIndex titleIndex;       // null until built
+    private volatile GenreIndex genreIndex;         // null until built
+    private volatile AttributeIndex attributeIndex; // null until built
+    private volatile FullTextIndex fullTextIndex;   // null until built
+    private volatile long lookupVersion;            // see getLookupVersion()
+    private final ChangeFeed changeFeed = new ChangeFeed(CHANGE_FEED_CAPACITY);
+    private List<CatalogChange> deferredChanges = new ArrayList<>(); // published, not yet persisted; writeLock
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create a service that rewrites the data file on every mutation
+     */
     public MovieService(String dataFilePath) {
-        this.dataFilePath = dataFilePath;
-        this.gson = new Gson();
-        this.movies = new ArrayList<>();
+        this(new JsonCatalogFile(dataFilePath), null);
+    }
+
+    /**
+     * Create a service with an explicit persistence strategy
+     * (null means synchronous rewrites of the data file)
+     */
+    public MovieService(JsonCatalogFile catalogFile, CatalogPersistence persistence) {
+        this(catalogFile, persistence, null);
+    }
+
+    /**
+     * Create a service that also keeps a memory-mappable binary snapshot
+     * (null binarySnapshot disables it)
+     */
+    public MovieService(JsonCatalogFile catalogFile, CatalogPersistence persistence,
+                        BinaryCatalogFile binarySnapshot) {
+        this.catalogFile = catalogFile;
+        this.persistence = persistence != null ? persistence : new SynchronousPersistence(catalogFile);
+        this.binarySnapshot = binarySnapshot;
+        this.snapshot = CatalogSnapshot.of(new ArrayList<>(), 0);
         loadMoviesFromFile();
     }
 
     /**
-     * Load movies from JSON file
+     * Load movies from disk and publish them as a new snapshot.
+     * Uses the binary snapshot if it is current, otherwise streams movies.json
+     * straight into the next snapshot (and refreshes the binary snapshot).
+     * Logged changes are replayed on top either way.
+     *
+     * Holds writeLock throughout and first writes out every published change,
+     * so a reload never reads a file that is missing an accepted write.
      */
     private void loadMoviesFromFile() {
-        try (FileReader reader = new FileReader(dataFilePath)) {
-            Type movieListType = new TypeToken<List<Movie>>(){}.getType();
-            movies = gson.fromJson(reader, movieListType);
-            System.out.println("Successfully loaded " + movies.size() + " movies from file");
-        } catch (IOException e) {
+        writeLock.lock();
+        try {
+            persistDeferred();
+            persistence.flush();
+
+            long start = System.nanoTime();
+            CatalogSnapshot fromFile = loadMappedSnapshot();
+            if (fromFile != null) {
+                System.out.println("Mapped " + fromFile.size() + " movies from binary snapshot in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            } else {
+                fromFile = loadJsonSnapshot();
+                System.out.println("Successfully loaded " + fromFile.size() + " movies from file in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+                writeBinarySnapshot(fromFile);
+            }
+
+            List<CatalogChange> tail = persistence.recover();
+            CatalogSnapshot loaded = fromFile;
+            if (!tail.isEmpty()) {
+                CatalogSnapshot.Builder replayed = fromFile.toBuilder();
+                for (CatalogChange change : tail) {
+                    replayed.apply(change);
+                }
+                loaded = replayed.build(0);
+                System.out.println("Replayed " + tail.size() + " logged changes");
+            }
+            snapshot = loaded.withVersion(snapshot.getVersion() + 1);
+            persistence.onLoad(snapshot);
+            titleIndex = null;
+            genreIndex = null;
+            attributeIndex = null;
+            fullTextIndex = null;
+            lookupVersion = snapshot.getVersion();
+            changeFeed.reset(snapshot.getVersion());
+        } finally {
+            writeLock.unlock();
+        }
+        indexer.execute(this::buildIndexes);
+    }
+
+    /**
+     * Build search indexes for the current snapshot. Runs on the indexer thread
+     * and holds the write lock so no change can slip past the new index.
+     */
+    private void buildIndexes() {
+        writeLock.lock();
+        try {
+            if (titleIndex != null && fullTextIndex != null) {
+                return;
+            }
+            long start = System.nanoTime();
+            if (titleIndex == null) {
+                titleIndex = TrigramIndex.build(snapshot);
+                genreIndex = GenreIndex.build(snapshot);
+                attributeIndex = AttributeIndex.build(snapshot);
+            }
+            if (fullTextIndex == null) {
+                fullTextIndex = FullTextIndex.build(snapshot);
+            }
+            System.out.println("Built search indexes in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Whether searches are served from the indexes yet (they scan until then)
+     */
+    public boolean isSearchIndexReady() {
+        return titleIndex != null && genreIndex != null && attributeIndex != null && fullTextIndex != null;
+    }
+
+    private CatalogSnapshot loadMappedSnapshot() {
+        if (binarySnapshot == null) {
+            return null;
+        }
+        MappedCatalog mapped = binarySnapshot.open();
+        return mapped != null ? CatalogSnapshot.mapped(mapped, 0) : null;
+    }
+
+    private CatalogSnapshot loadJsonSnapshot() {
+        CatalogSnapshot.Builder loaded = CatalogSnapshot.newBuilder();
+        try {
+            catalogFile.read(loaded::addLoaded);
+        } catch (IOException | RuntimeException e) {
             System.err.println("Error loading movies from file: " + e.getMessage());
-            movies = new ArrayList<>();
+            loaded = CatalogSnapshot.newBuilder();
+        }
+        return loaded.build(0);
+    }
+
+    /**
+     * Refresh the binary snapshot. Only call with a snapshot that movies.json
+     * currently holds exactly.
+     */
+    private void writeBinarySnapshot(CatalogSnapshot toWrite) {
+        if (binarySnapshot == null) {
+            return;
+        }
+        try {
+            binarySnapshot.write(toWrite);
+        } catch (IOException e) {
+            System.err.println("Error writing binary snapshot: " + e.getMessage());
         }
     }
 
+    /**
+     * Get the current catalog snapshot
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Catalog version that title searches and genre lookups reflect at least.
+     * The snapshot is published before the indexes catch up with it, so this
+     * trails getSnapshot().getVersion() for the length of an index update;
+     * results cached under it never miss a change of that version.
+     */
+    public long getLookupVersion() {
+        return lookupVersion;
+    }
+
+    /**
+     * Recent changes, for clients that follow the catalog
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
     /**
      * Get all movies
      */
     public List<Movie> getAllMovies() {
-        return new ArrayList<>(movies);
+        return new ArrayList<>(snapshot.getMovies());
+    }
+
+    /**
+     * Get one page of movies in catalog order.
+     *
+     * @param cursor null for the first page, otherwise the nextCursor of the previous page
+     * @param limit page size, 1 to MAX_PAGE_SIZE
+     */
+    public MoviePage getMoviePage(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        CatalogSnapshot current = snapshot;
+        int from = cursor != null ? resumeIndex(current, cursor) : 0;
+        int to = Math.min(from + limit, current.size());
+        List<Movie> movies = new ArrayList<>(current.getMovies().subList(from, to));
+        String nextCursor = to < current.size()
+                ? encodeCursor(current.seqAt(to - 1), movies.get(movies.size() - 1).getId())
+                : null;
+        return new MoviePage(movies, nextCursor);
+    }
+
+    /**
+     * Cursors hold the sequence number and ID of the last movie on the page
+     */
+    private static String encodeCursor(long seq, String id) {
+        String cursor = Long.toString(seq, 36) + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Position right after the movie a cursor points at
+     */
+    private static int resumeIndex(CatalogSnapshot current, String cursor) {
+        long seq;
+        String id;
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int dot = decoded.indexOf('.');
+            seq = Long.parseLong(decoded.substring(0, dot), 36);
+            id = decoded.substring(dot + 1);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+
+        int next = current.indexAfter(seq);
+        if (next > 0 && current.getMovies().get(next - 1).getId().equals(id)) {
+            return next; // the usual case: the last movie is where we left it
+        }
+        if (current.getMovie(id) != null) {
+            // Sequence numbers are reassigned (lower) when the catalog is reloaded;
+            // if the last movie now has a lower one, resume right after it instead
+            List<Movie> movies = current.getMovies();
+            for (int i = next - 1; i >= 0; i--) {
+                if (movies.get(i).getId().equals(id)) {
+                    return i + 1;
+                }
+            }
+        }
+        // The last movie was deleted (or deleted and created again at the end)
+        return next;
     }
 
     /**
      * Get a movie by ID
      */
     public Movie getMovieById(String id) {
-        return movies.stream()
-                .filter(movie -> movie.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return snapshot.getMovie(id);
     }
 
     /**
@@ -63,17 +322,51 @@ public class MovieService {
      */
     public List<Movie> searchMoviesByTitle(String title) {
         String lowerCaseTitle = title.toLowerCase();
-        return movies.stream()
+        CatalogSnapshot current = snapshot;
+        TrigramIndex index = titleIndex;
+        if (index != null) {
+            List<Movie> matches = index.search(lowerCaseTitle, current);
+            if (matches != null) {
+                return matches;
+            }
+        }
+
+        // Index not built yet, or query too short for trigrams
+        return current.getMovies().stream()
                 .filter(movie -> movie.getTitle().toLowerCase().contains(lowerCaseTitle))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Ranked full-text search over titles, descriptions and cast, tolerating
+     * typos; see FullTextIndex
+     *
+     * @param limit most hits to return, 1 to MAX_PAGE_SIZE
+     */
+    public List<SearchHit> searchMovies(String query, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        CatalogSnapshot current = snapshot;
+        FullTextIndex index = fullTextIndex;
+        if (index == null) {
+            // Being (re)built in the background; never make a reader wait for it
+            return FullTextIndex.scan(query, limit, current);
+        }
+        return index.search(query, limit, current);
+    }
+
     /**
      * Get movies by genre
      */
     public List<Movie> getMoviesByGenre(String genre) {
+        GenreIndex index = genreIndex;
+        if (index != null) {
+            return index.moviesIn(genre);
+        }
+
         String lowerCaseGenre = genre.toLowerCase();
-        return movies.stream()
+        return snapshot.getMovies().stream()
                 .filter(movie -> movie.getGenre().toLowerCase().equals(lowerCaseGenre))
                 .collect(Collectors.toList());
     }
@@ -82,13 +375,29 @@ public class MovieService {
      * Get all unique genres
      */
     public List<String> getAllGenres() {
-        return movies.stream()
+        GenreIndex index = genreIndex;
+        if (index != null) {
+            return new ArrayList<>(index.genres());
+        }
+
+        return snapshot.getMovies().stream()
                 .map(Movie::getGenre)
                 .distinct()
                 .sorted()
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Find movies matching range and exact-match criteria, sorted and limited
+     */
+    public QueryResult queryMovies(MovieQuery query) {
+        AttributeIndex index = attributeIndex;
+        if (index != null) {
+            return index.execute(query, genreIndex);
+        }
+        return AttributeIndex.scan(query, snapshot);
+    }
+
     /**
      * Reload movies from file
      */
@@ -100,18 +409,27 @@ public class MovieService {
      * Create a new movie
      */
     public Movie createMovie(Movie movie) {
-        // Generate ID if not provided
-        if (movie.getId() == null || movie.getId().isEmpty()) {
-            movie.setId(generateNextId());
-        }
+        long version;
+        writeLock.lock();
+        try {
+            CatalogSnapshot.Builder next = snapshot.toBuilder();
 
-        // Check if ID already exists
-        if (getMovieById(movie.getId()) != null) {
-            throw new IllegalArgumentException("Movie with ID " + movie.getId() + " already exists");
-        }
+            // Generate ID if not provided
+            if (movie.getId() == null || movie.getId().isEmpty()) {
+                movie.setId(next.nextNumericId());
+            }
+
+            // Check if ID already exists
+            if (next.get(movie.getId()) != null) {
+                throw new IllegalArgumentException("Movie with ID " + movie.getId() + " already exists");
+            }
 
-        movies.add(movie);
-        saveMoviesToFile();
+            next.add(movie);
+            version = publish(next);
+        } finally {
+            writeLock.unlock();
+        }
+        persistence.awaitDurable(version);
         System.out.println("Created new movie: " + movie.getTitle() + " (ID: " + movie.getId() + ")");
         return movie;
     }
@@ -120,53 +438,288 @@ public class MovieService {
      * Update an existing movie
      */
     public Movie updateMovie(String id, Movie updatedMovie) {
-        for (int i = 0; i < movies.size(); i++) {
-            if (movies.get(i).getId().equals(id)) {
-                updatedMovie.setId(id); // Ensure ID doesn't change
-                movies.set(i, updatedMovie);
-                saveMoviesToFile();
-                System.out.println("Updated movie: " + updatedMovie.getTitle() + " (ID: " + id + ")");
-                return updatedMovie;
+        long version;
+        writeLock.lock();
+        try {
+            CatalogSnapshot.Builder next = snapshot.toBuilder();
+            Movie existing = next.get(id);
+            if (existing == null) {
+                throw new IllegalArgumentException("Movie with ID " + id + " not found");
             }
+
+            updatedMovie.setId(id); // Ensure ID doesn't change
+            next.replace(existing, updatedMovie);
+            version = publish(next);
+        } finally {
+            writeLock.unlock();
         }
-        throw new IllegalArgumentException("Movie with ID " + id + " not found");
+        persistence.awaitDurable(version);
+        System.out.println("Updated movie: " + updatedMovie.getTitle() + " (ID: " + id + ")");
+        return updatedMovie;
     }
 
     /**
      * Delete a movie by ID
      */
     public boolean deleteMovie(String id) {
-        boolean removed = movies.removeIf(movie -> movie.getId().equals(id));
-        if (removed) {
-            saveMoviesToFile();
-            System.out.println("Deleted movie with ID: " + id);
+        long version;
+        writeLock.lock();
+        try {
+            CatalogSnapshot.Builder next = snapshot.toBuilder();
+            if (next.remove(id) == null) {
+                return false;
+            }
+            version = publish(next);
+        } finally {
+            writeLock.unlock();
         }
-        return removed;
+        persistence.awaitDurable(version);
+        System.out.println("Deleted movie with ID: " + id);
+        return true;
     }
 
     /**
-     * Save movies to JSON file
+     * Apply a list of create/update/delete operations atomically: either all of
+     * them are published as one new snapshot (and persisted with one write), or
+     * none are. Operations see the effect of earlier ones in the same batch.
      */
-    private void saveMoviesToFile() {
-        try (FileWriter writer = new FileWriter(dataFilePath)) {
-            gson.toJson(movies, writer);
-            System.out.println("Successfully saved " + movies.size() + " movies to file");
-        } catch (IOException e) {
-            System.err.println("Error saving movies to file: " + e.getMessage());
-            throw new RuntimeException("Failed to save movies", e);
+    public BatchResult applyBatch(List<BatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Batch contains no operations");
+        }
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch has " + operations.size()
+                    + " operations, the maximum is " + MAX_BATCH_SIZE);
+        }
+
+        List<BatchResult.OperationResult> results = new ArrayList<>(operations.size());
+        long version;
+        writeLock.lock();
+        try {
+            CatalogSnapshot.Builder next = snapshot.toBuilder();
+            boolean failed = false;
+            for (int i = 0; i < operations.size(); i++) {
+                BatchResult.OperationResult result = applyOperation(next, i, operations.get(i));
+                failed |= result.failed();
+                results.add(result);
+            }
+            if (failed) {
+                for (BatchResult.OperationResult result : results) {
+                    if (!result.failed()) {
+                        result.notApplied();
+                    }
+                }
+                return new BatchResult(false, snapshot.getVersion(), results);
+            }
+            version = publish(next);
+        } finally {
+            writeLock.unlock();
+        }
+        persistence.awaitDurable(version);
+        System.out.println("Applied batch of " + operations.size() + " operations");
+        return new BatchResult(true, version, results);
+    }
+
+    /**
+     * Upsert a stream of movies (e.g. an NDJSON upload) into the catalog.
+     *
+     * Records are applied in batches as they are read, so the catalog fills up
+     * while the upload is still arriving, and persisted with one write at the
+     * end. Movies with the ID of an existing movie replace it; movies without
+     * an ID get a new one. If the input turns out to be malformed the import
+     * stops there, keeping (and saving) everything before the bad record.
+     */
+    public ImportResult importMovies(Iterator<Movie> records) {
+        int created = 0;
+        int updated = 0;
+        String error = null;
+        long version;
+        try {
+            while (error == null) {
+                int batchSize = Math.max(IMPORT_BATCH_SIZE, snapshot.size() / 2);
+                List<Movie> batch = new ArrayList<>(Math.min(batchSize, 1 << 16));
+                try {
+                    while (batch.size() < batchSize && records.hasNext()) {
+                        batch.add(records.next());
+                    }
+                } catch (JsonParseException e) {
+                    error = e.getMessage(); // still apply what was read before it
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                writeLock.lock();
+                try {
+                    CatalogSnapshot.Builder next = snapshot.toBuilder();
+                    for (Movie movie : batch) {
+                        if (movie.getId() == null || movie.getId().isEmpty()) {
+                            movie.setId(next.nextNumericId());
+                        }
+                        Movie existing = next.get(movie.getId());
+                        if (existing != null) {
+                            next.replace(existing, movie);
+                            updated++;
+                        } else {
+                            next.add(movie);
+                            created++;
+                        }
+                    }
+                    publishDeferred(next, false);
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        } finally {
+            writeLock.lock();
+            try {
+                version = persistDeferred();
+                if (titleIndex == null || fullTextIndex == null) {
+                    indexer.execute(this::buildIndexes);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        persistence.awaitDurable(version);
+        System.out.println("Imported " + created + " new and " + updated + " updated movies"
+                + (error != null ? " before an error: " + error : ""));
+        return new ImportResult(created, updated, version, error);
+    }
+
+    private static BatchResult.OperationResult applyOperation(CatalogSnapshot.Builder next, int index,
+                                                              BatchOperation operation) {
+        String op = operation != null && operation.getOp() != null ? operation.getOp().toLowerCase() : "";
+        String id = operation != null ? operation.getId() : null;
+        Movie movie = operation != null ? operation.getMovie() : null;
+        switch (op) {
+            case "create":
+                if (movie == null) {
+                    return new BatchResult.OperationResult(index, op, id, 400, "create needs a movie");
+                }
+                if (movie.getId() == null || movie.getId().isEmpty()) {
+                    movie.setId(id != null && !id.isEmpty() ? id : next.nextNumericId());
+                }
+                if (next.get(movie.getId()) != null) {
+                    return new BatchResult.OperationResult(index, op, movie.getId(), 409,
+                            "Movie with ID " + movie.getId() + " already exists");
+                }
+                next.add(movie);
+                return new BatchResult.OperationResult(index, op, movie.getId(), 201, null);
+            case "update":
+                if (id == null || movie == null) {
+                    return new BatchResult.OperationResult(index, op, id, 400, "update needs an id and a movie");
+                }
+                Movie existing = next.get(id);
+                if (existing == null) {
+                    return new BatchResult.OperationResult(index, op, id, 404, "Movie with ID " + id + " not found");
+                }
+                movie.setId(id); // Ensure ID doesn't change
+                next.replace(existing, movie);
+                return new BatchResult.OperationResult(index, op, id, 200, null);
+            case "delete":
+                if (id == null) {
+                    return new BatchResult.OperationResult(index, op, null, 400, "delete needs an id");
+                }
+                if (next.remove(id) == null) {
+                    return new BatchResult.OperationResult(index, op, id, 404, "Movie with ID " + id + " not found");
+                }
+                return new BatchResult.OperationResult(index, op, id, 200, null);
+            default:
+                return new BatchResult.OperationResult(index, op, id, 400,
+                        "op must be create, update or delete");
+        }
+    }
+
+    /**
+     * Flush pending writes and stop background persistence.
+     * Call on shutdown so no accepted change is lost.
+     */
+    public void close() {
+        indexer.shutdownNow();
+        writeLock.lock();
+        try {
+            persistence.close();
+            // If the final flush left movies.json matching memory, save the next startup a parse
+            if (snapshot == catalogFile.getLastWritten()) {
+                writeBinarySnapshot(snapshot);
+            }
+        } finally {
+            writeLock.unlock();
         }
     }
 
     /**
-     * Generate next available ID
+     * Publish the writer's working copy as the new snapshot and hand it to
+     * the persistence strategy. Must be called while holding writeLock.
+     *
+     * @return the version that was published
      */
-    private String generateNextId() {
-        int maxId = movies.stream()
-                .map(Movie::getId)
-                .filter(id -> id.matches("\\d+"))
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-        return String.valueOf(maxId + 1);
+    private long publish(CatalogSnapshot.Builder next) {
+        publishDeferred(next, true);
+        return persistDeferred();
+    }
+
+    /**
+     * Publish the writer's working copy and update the search indexes, but
+     * leave its changes for the next persistDeferred() to hand to the
+     * persistence strategy. Must be called while holding writeLock.
+     *
+     * @param rebuildIndexes whether to start rebuilding the indexes right away
+     *        if this change set is big enough to drop them (imports rebuild once
+     *        at the end instead)
+     */
+    private void publishDeferred(CatalogSnapshot.Builder next, boolean rebuildIndexes) {
+        snapshot = next.build(snapshot.getVersion() + 1);
+        if (next.changes().size() > REINDEX_THRESHOLD && titleIndex != null) {
+            // Cheaper to start over than to patch the indexes change by change
+            titleIndex = null;
+            genreIndex = null;
+            attributeIndex = null;
+            fullTextIndex = null;
+            if (rebuildIndexes) {
+                indexer.execute(this::buildIndexes);
+            }
+        }
+        TrigramIndex titles = titleIndex;
+        GenreIndex genres = genreIndex;
+        AttributeIndex attributes = attributeIndex;
+        FullTextIndex fullText = fullTextIndex;
+        for (CatalogChange change : next.changes()) {
+            if (titles != null) {
+                titles.apply(change);
+            }
+            if (genres != null) {
+                genres.apply(change);
+            }
+            if (attributes != null) {
+                attributes.apply(change);
+            }
+            if (fullText != null) {
+                fullText.apply(change);
+            }
+        }
+        if (fullText != null && fullText.needsCompaction()) {
+            // Mostly dead documents by now: rebuild rather than keep skipping them
+            fullTextIndex = null;
+            indexer.execute(this::buildIndexes);
+        }
+        deferredChanges.addAll(next.changes());
+        lookupVersion = snapshot.getVersion();
+        changeFeed.publish(snapshot.getVersion(), next.changes());
+    }
+
+    /**
+     * Hand every published but not yet persisted change to the persistence
+     * strategy, in publish order. Must be called while holding writeLock.
+     *
+     * @return the current version
+     */
+    private long persistDeferred() {
+        if (!deferredChanges.isEmpty()) {
+            List<CatalogChange> changes = deferredChanges;
+            deferredChanges = new ArrayList<>();
+            persistence.onPublish(snapshot, changes);
+        }
+        return snapshot.getVersion();
     }
 }
@@ -0,0 +1,559 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Showtime;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of showtimes, ticket sales and refunds, replayed on
+ * startup to rebuild showtimes, orders and seat state.
+ *
+ * Records are binary and framed as
+ * <pre>
+ *   int   body length
+ *   int   CRC32 of the body
+ *   byte  record type (SHOWTIME, SALE, REFUND), then the type's fields
+ * </pre>
+ * with strings as an int byte count (-1 for null) and UTF-8 bytes. They go to
+ * segment files (orders-000001.journal, ...) in the journal directory, and a
+ * new segment is started once the current one reaches segmentBytes.
+ *
+ * Committing is split in two: append adds an encoded record to an in-memory
+ * batch and returns its sequence number, and commit waits until that record
+ * is on disk. The first committer to find no write in progress takes the whole
+ * batch, writes it with one channel write and one force, and wakes everyone it
+ * covered; records appended meanwhile form the next batch. So concurrent
+ * orders share fsyncs instead of paying for one each (group commit). Waiting
+ * is on a ReentrantLock condition, not a monitor, so committers on virtual
+ * threads unmount while the leader is at the disk.
+ *
+ * A batch whose write fails is not retried: its records stay failed even
+ * after a later batch succeeds, so each failed range is remembered and checked
+ * before the durable high-water mark. Its committers were told it failed (a
+ * sale releases its seats again), so whatever part of it reached the segment
+ * is truncated away; otherwise replay would bring those sales back. If the
+ * truncation fails too, the journal refuses all further writes.
+ *
+ * A record with a bad length or checksum can only be the torn tail of a crash
+ * or failed write; replay cuts the segment off there.
+ */
+public class OrderJournal {
+    static final byte SHOWTIME = 1;
+    static final byte SALE = 2;
+    static final byte REFUND = 3;
+
+    private static final int FRAME_HEADER = 8;
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".journal";
+
+    /**
+     * Receives records during replay, in the order they were committed
+     */
+    public interface Listener {
+        void showtimeScheduled(Showtime showtime);
+
+        void seatsSold(String orderId, String showtimeId, int[] seats, double amount, long createdAt);
+
+        void orderRefunded(String orderId);
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchDone = lock.newCondition();
+
+    // Guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long appendedSeq;
+    private long takenSeq; // last record handed to a batch
+    private long durableSeq;
+    private long committedRecords;
+    // Failed batches as last seq -> first seq; never made durable by later batches
+    private final TreeMap<Long, Long> failedRanges = new TreeMap<>();
+    private IOException lastFailure;
+    private boolean writing;
+    private boolean replayed;
+    private long batches;
+
+    // Only touched by the committer holding "writing"
+    private FileChannel segment;
+    private int segmentNumber;
+    private long segmentSize;
+    private boolean damaged;      // opening the next segment failed; try again before writing
+    private IOException broken;   // a failed batch could not be cut off; no more writes
+
+    /**
+     * @param segmentBytes size after which a new segment file is started
+     * @param fsync force every batch to the storage device, not just the OS
+     */
+    public OrderJournal(Path directory, long segmentBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Read every segment in order, feeding intact records to the listener.
+     * Must be called once, before anything is appended.
+     *
+     * @return the number of records replayed
+     */
+    public long replay(Listener listener) throws IOException {
+        lock.lock();
+        try {
+            if (replayed) {
+                throw new IllegalStateException("Journal already replayed");
+            }
+            List<Path> segments = segments();
+            long records = 0;
+            for (Path path : segments) {
+                records += replaySegment(path, listener);
+            }
+            segmentNumber = segments.isEmpty() ? 0 : numberOf(segments.get(segments.size() - 1));
+            openSegment(segments.isEmpty());
+            replayed = true;
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a new showtime
+     *
+     * @return the sequence number to pass to commit
+     */
+    public long appendShowtime(Showtime showtime) {
+        byte[] movieId = utf8(showtime.getMovieId());
+        byte[] id = utf8(showtime.getId());
+        byte[] startsAt = utf8(showtime.getStartsAt());
+        byte[] auditorium = utf8(showtime.getAuditorium());
+        ByteBuffer body = ByteBuffer.allocate(1 + size(id) + size(movieId) + size(startsAt) + size(auditorium) + 16);
+        body.put(SHOWTIME);
+        putString(body, id);
+        putString(body, movieId);
+        putString(body, startsAt);
+        putString(body, auditorium);
+        body.putInt(showtime.getRows()).putInt(showtime.getSeatsPerRow()).putDouble(showtime.getPrice());
+        return append(body);
+    }
+
+    /**
+     * Queue a sale of seats (seat numbers, see SeatInventory)
+     *
+     * @return the sequence number to pass to commit
+     */
+    public long appendSale(String orderId, String showtimeId, int[] seats, double amount, long createdAt) {
+        byte[] order = utf8(orderId);
+        byte[] showtime = utf8(showtimeId);
+        ByteBuffer body = ByteBuffer.allocate(1 + size(order) + size(showtime) + 20 + 4 * seats.length);
+        body.put(SALE);
+        putString(body, order);
+        putString(body, showtime);
+        body.putDouble(amount).putLong(createdAt).putInt(seats.length);
+        for (int seat : seats) {
+            body.putInt(seat);
+        }
+        return append(body);
+    }
+
+    /**
+     * Queue a refund of an order
+     *
+     * @return the sequence number to pass to commit
+     */
+    public long appendRefund(String orderId) {
+        byte[] order = utf8(orderId);
+        ByteBuffer body = ByteBuffer.allocate(1 + size(order));
+        body.put(REFUND);
+        putString(body, order);
+        return append(body);
+    }
+
+    /**
+     * Wait until the record with this sequence number (and all before it) is on disk
+     *
+     * @throws RuntimeException if writing it failed
+     */
+    public void commit(long seq) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long from;
+                long upTo;
+                lock.lock();
+                try {
+                    while (writing && durableSeq < seq && !failed(seq)) {
+                        try {
+                            batchDone.await();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (failed(seq)) {
+                        throw new RuntimeException("Failed to write order journal", lastFailure);
+                    }
+                    if (durableSeq >= seq) {
+                        return;
+                    }
+                    // Lead the next group: take everything appended so far
+                    writing = true;
+                    batch = pending;
+                    pending = spare;
+                    spare = null;
+                    from = takenSeq + 1;
+                    upTo = appendedSeq;
+                    takenSeq = upTo;
+                } finally {
+                    lock.unlock();
+                }
+
+                IOException failure = null;
+                try {
+                    batch.flip();
+                    write(batch);
+                } catch (IOException e) {
+                    failure = e;
+                    System.err.println("Error writing order journal: " + e.getMessage());
+                }
+
+                lock.lock();
+                try {
+                    batch.clear();
+                    spare = batch;
+                    writing = false;
+                    if (failure == null) {
+                        durableSeq = upTo;
+                        committedRecords += upTo - from + 1;
+                        batches++;
+                    } else {
+                        failedRanges.put(upTo, from);
+                        lastFailure = failure;
+                    }
+                    batchDone.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Number of records made durable so far
+     */
+    public long getCommittedRecords() {
+        lock.lock();
+        try {
+            return committedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of group writes (and forces) so far
+     */
+    public long getBatches() {
+        lock.lock();
+        try {
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write out anything appended but not yet committed, then close the segment
+     */
+    public void close() {
+        long last;
+        lock.lock();
+        try {
+            last = appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            commit(last);
+        } catch (RuntimeException e) {
+            System.err.println("Error flushing order journal: " + e.getMessage());
+        }
+        lock.lock();
+        try {
+            while (writing) {
+                try {
+                    batchDone.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing order journal: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the record with this sequence number was in a batch that failed.
+     * Caller holds lock.
+     */
+    private boolean failed(long seq) {
+        Map.Entry<Long, Long> range = failedRanges.ceilingEntry(seq);
+        return range != null && range.getValue() <= seq;
+    }
+
+    /**
+     * Frame a record body and add it to the pending batch
+     */
+    private long append(ByteBuffer body) {
+        body.flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        lock.lock();
+        try {
+            if (!replayed) {
+                throw new IllegalStateException("Replay the journal before appending");
+            }
+            int needed = FRAME_HEADER + body.remaining();
+            if (pending.remaining() < needed) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            pending.putInt(body.remaining()).putInt((int) crc.getValue()).put(body);
+            return ++appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write one batch to the current segment, starting a new segment first if
+     * this one is full (or opening the last one failed). If the batch cannot
+     * be written and forced, the segment is cut back to where it started.
+     */
+    private void write(ByteBuffer batch) throws IOException {
+        if (broken != null) {
+            throw new IOException("Order journal is read-only after a failed write could not be undone", broken);
+        }
+        if (!batch.hasRemaining()) {
+            return;
+        }
+        if (damaged || (segmentSize > 0 && segmentSize + batch.remaining() > segmentBytes)) {
+            if (fsync && !damaged) {
+                force(segment);
+            }
+            damaged = true;
+            openSegment(true);
+            damaged = false;
+        }
+        long start = segmentSize;
+        try {
+            while (batch.hasRemaining()) {
+                segmentSize += segment.write(batch);
+            }
+            if (fsync) {
+                force(segment);
+            }
+        } catch (IOException e) {
+            discardFrom(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Cut the current segment back to the given size after a failed batch
+     */
+    private void discardFrom(long start) {
+        try {
+            segment.truncate(start);
+            if (fsync) {
+                force(segment);
+            }
+            segmentSize = start;
+        } catch (IOException e) {
+            broken = e;
+            System.err.println("Error undoing failed order journal write, no further orders can be journaled: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Force the segment to the storage device (a seam for tests that inject failures)
+     */
+    void force(FileChannel channel) throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Open the current segment for appending, or start the next one
+     */
+    private void openSegment(boolean next) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        if (next) {
+            segmentNumber++;
+        }
+        Path path = directory.resolve(String.format("%s%06d%s", PREFIX, segmentNumber, SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = segment.size();
+        if (next && fsync) {
+            // Make the new file itself survive a crash
+            try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            } catch (IOException e) {
+                // Not every platform can open a directory; the file's own force still applies
+            }
+        }
+    }
+
+    /**
+     * Replay one segment, truncating it at the first damaged record
+     */
+    private long replaySegment(Path path, Listener listener) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        long records = 0;
+        while (bytes.remaining() > 0) {
+            int start = bytes.position();
+            if (!replayRecord(bytes, listener)) {
+                System.err.println("Skipping torn order journal record at " + path + ":" + start);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                }
+                break;
+            }
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Decode and deliver the record at the buffer's position
+     *
+     * @return false if it is damaged
+     */
+    private boolean replayRecord(ByteBuffer bytes, Listener listener) {
+        if (bytes.remaining() < FRAME_HEADER) {
+            return false;
+        }
+        int length = bytes.getInt();
+        int expectedCrc = bytes.getInt();
+        if (length < 1 || length > bytes.remaining()) {
+            return false;
+        }
+        ByteBuffer body = bytes.slice();
+        body.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            return false;
+        }
+        bytes.position(bytes.position() + length);
+
+        try {
+            switch (body.get()) {
+                case SHOWTIME:
+                    listener.showtimeScheduled(new Showtime(getString(body), getString(body), getString(body),
+                            getString(body), body.getInt(), body.getInt(), body.getDouble()));
+                    return true;
+                case SALE:
+                    String orderId = getString(body);
+                    String showtimeId = getString(body);
+                    double amount = body.getDouble();
+                    long createdAt = body.getLong();
+                    int[] seats = new int[body.getInt()];
+                    for (int i = 0; i < seats.length; i++) {
+                        seats[i] = body.getInt();
+                    }
+                    listener.seatsSold(orderId, showtimeId, seats, amount, createdAt);
+                    return true;
+                case REFUND:
+                    listener.orderRefunded(getString(body));
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (RuntimeException e) {
+            // Checksum matched but the fields don't parse: treat as damaged
+            return false;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static int numberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int size(byte[] string) {
+        return 4 + (string != null ? string.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        if (string == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(string.length).put(string);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.List;
+
+/**
+ * Movies matching a MovieQuery, with a description of how they were found
+ */
+public class QueryResult {
+    private final List<Movie> movies;
+    private final String plan;
+    private final int examined;
+
+    QueryResult(List<Movie> movies, String plan, int examined) {
+        this.movies = movies;
+        this.plan = plan;
+        this.examined = examined;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * The access path the planner chose, e.g. "ordered rating walk over 52 rows"
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * How many movies were checked against the query
+     */
+    public int getExamined() {
+        return examined;
+    }
+}
@@ -0,0 +1,24 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+/**
+ * A full-text search result: a movie and its relevance score (BM25, higher is better)
+ */
+public class SearchHit {
+    private final double score;
+    private final Movie movie;
+
+    SearchHit(double score, Movie movie) {
+        this.score = score;
+        this.movie = movie;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public Movie getMovie() {
+        return movie;
+    }
+}
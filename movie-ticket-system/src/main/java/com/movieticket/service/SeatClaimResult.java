@@ -0,0 +1,79 @@
+package com.movieticket.service;
+
+import java.util.List;
+
+/**
+ * Outcome of buying or holding seats for a showtime: either every requested
+ * seat was claimed, or none was and unavailable lists the ones already taken.
+ * Successful purchases carry the order id, successful holds the hold's id and
+ * expiry.
+ */
+public class SeatClaimResult {
+    private final String showtimeId;
+    private final List<String> seats;
+    private final boolean claimed;
+    private final List<String> unavailable;
+    private final String orderId;
+    private final String holdId;
+    private final String expiresAt;
+
+    SeatClaimResult(String showtimeId, List<String> seats, boolean claimed, List<String> unavailable) {
+        this(showtimeId, seats, claimed, unavailable, null, null, null);
+    }
+
+    SeatClaimResult(String showtimeId, List<String> seats, boolean claimed, List<String> unavailable,
+                    String orderId) {
+        this(showtimeId, seats, claimed, unavailable, orderId, null, null);
+    }
+
+    SeatClaimResult(String showtimeId, List<String> seats, boolean claimed, List<String> unavailable,
+                    String orderId, String holdId, String expiresAt) {
+        this.showtimeId = showtimeId;
+        this.seats = seats;
+        this.claimed = claimed;
+        this.unavailable = unavailable;
+        this.orderId = orderId;
+        this.holdId = holdId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public List<String> getSeats() {
+        return seats;
+    }
+
+    public boolean isClaimed() {
+        return claimed;
+    }
+
+    /**
+     * Requested seats that were taken when the claim failed (empty on success)
+     */
+    public List<String> getUnavailable() {
+        return unavailable;
+    }
+
+    /**
+     * Id of the order that bought the seats (null unless this was a successful purchase)
+     */
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Id of the hold that now owns the seats (null unless this was a successful hold)
+     */
+    public String getHoldId() {
+        return holdId;
+    }
+
+    /**
+     * When the hold lapses, as an ISO-8601 instant (null unless this was a successful hold)
+     */
+    public String getExpiresAt() {
+        return expiresAt;
+    }
+}
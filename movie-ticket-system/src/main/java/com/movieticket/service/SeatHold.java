@@ -0,0 +1,55 @@
+package com.movieticket.service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Seats of one showtime held for a customer while they check out. The seats
+ * are claimed in the showtime's SeatInventory for as long as the hold lasts.
+ */
+public final class SeatHold {
+    private final String id;
+    private final String showtimeId;
+    private final SeatInventory inventory;
+    private final int[] seats;
+    private final long expiresAt; // epoch millis
+    long timer;                   // TimingWheel handle, set by HoldService
+
+    SeatHold(String id, String showtimeId, SeatInventory inventory, int[] seats, long expiresAt) {
+        this.id = id;
+        this.showtimeId = showtimeId;
+        this.inventory = inventory;
+        this.seats = seats;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    /**
+     * Seat labels, e.g. ["C5", "C6"]
+     */
+    public List<String> getSeats() {
+        return ShowtimeService.labelsOf(inventory, seats);
+    }
+
+    /**
+     * When the hold lapses, as an ISO-8601 instant
+     */
+    public String getExpiresAt() {
+        return Instant.ofEpochMilli(expiresAt).toString();
+    }
+
+    SeatInventory inventory() {
+        return inventory;
+    }
+
+    int[] seatNumbers() {
+        return seats;
+    }
+}
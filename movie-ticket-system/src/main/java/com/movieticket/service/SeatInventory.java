@@ -0,0 +1,244 @@
+package com.movieticket.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Taken/free state of every seat of one showtime, one bit per seat.
+ *
+ * Seat n (row * seatsPerRow + seat, both from 0) is bit n % 64 of word n / 64.
+ * Claims set bits with compare-and-set on the words they touch, so buyers of
+ * different seats never wait for each other and two buyers of the same seat
+ * cannot both win. A multi-seat claim sets its words one at a time in word
+ * order; if any requested seat is already taken it clears the words it had
+ * already set and fails, so it takes all of its seats or none of them. (A
+ * concurrent reader may briefly see the seats of a failing claim as taken.)
+ */
+public final class SeatInventory {
+    public static final int MAX_ROWS = 26; // rows are lettered A-Z
+    public static final int MAX_SEATS_PER_ROW = 200;
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final AtomicLongArray taken;
+
+    public SeatInventory(int rows, int seatsPerRow) {
+        if (rows < 1 || rows > MAX_ROWS || seatsPerRow < 1 || seatsPerRow > MAX_SEATS_PER_ROW) {
+            throw new IllegalArgumentException("An auditorium has 1 to " + MAX_ROWS + " rows of 1 to "
+                    + MAX_SEATS_PER_ROW + " seats");
+        }
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.taken = new AtomicLongArray((rows * seatsPerRow + 63) >>> 6);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int capacity() {
+        return rows * seatsPerRow;
+    }
+
+    /**
+     * Number of free seats (a moment's view; claims may be racing with it)
+     */
+    public int available() {
+        int count = 0;
+        for (int i = 0; i < taken.length(); i++) {
+            count += Long.bitCount(taken.get(i));
+        }
+        return capacity() - count;
+    }
+
+    public boolean isTaken(int seat) {
+        checkSeat(seat);
+        return (taken.get(seat >>> 6) & (1L << seat)) != 0;
+    }
+
+    /**
+     * Take every one of the seats, or none of them.
+     *
+     * @return true if all seats were free and now belong to the caller
+     */
+    public boolean claim(int... seats) {
+        long single = singleWordMask(seats);
+        if (single != 0) {
+            return setBits(seats[0] >>> 6, single);
+        }
+        long[] words = groupByWord(seats);
+        for (int i = 0; i < words.length; i += 2) {
+            if (!setBits((int) words[i], words[i + 1])) {
+                for (int j = 0; j < i; j += 2) {
+                    clearBits((int) words[j], words[j + 1]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Free the seats
+     *
+     * @return how many of them were taken
+     */
+    public int release(int... seats) {
+        long single = singleWordMask(seats);
+        if (single != 0) {
+            return Long.bitCount(clearBits(seats[0] >>> 6, single));
+        }
+        long[] words = groupByWord(seats);
+        int released = 0;
+        for (int i = 0; i < words.length; i += 2) {
+            released += Long.bitCount(clearBits((int) words[i], words[i + 1]));
+        }
+        return released;
+    }
+
+    /**
+     * The seats among these that are currently taken
+     */
+    public List<Integer> takenAmong(int... seats) {
+        List<Integer> result = new ArrayList<>();
+        for (int seat : seats) {
+            if (isTaken(seat)) {
+                result.add(seat);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One string per row, '.' for a free seat and 'X' for a taken one
+     */
+    public List<String> seatMap() {
+        List<String> map = new ArrayList<>(rows);
+        char[] line = new char[seatsPerRow];
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < seatsPerRow; i++) {
+                int seat = row * seatsPerRow + i;
+                line[i] = (taken.get(seat >>> 6) & (1L << seat)) != 0 ? 'X' : '.';
+            }
+            map.add(new String(line));
+        }
+        return map;
+    }
+
+    /**
+     * Seat number for a label like "C12"
+     */
+    public int seatOf(String label) {
+        if (label == null || label.length() < 2) {
+            throw new IllegalArgumentException("Invalid seat: " + label);
+        }
+        int row = Character.toUpperCase(label.charAt(0)) - 'A';
+        int number;
+        try {
+            number = Integer.parseInt(label.substring(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid seat: " + label);
+        }
+        if (row < 0 || row >= rows || number < 1 || number > seatsPerRow) {
+            throw new IllegalArgumentException("No such seat: " + label);
+        }
+        return row * seatsPerRow + number - 1;
+    }
+
+    /**
+     * Label for a seat number, e.g. "C12"
+     */
+    public String labelOf(int seat) {
+        checkSeat(seat);
+        return (char) ('A' + seat / seatsPerRow) + Integer.toString(seat % seatsPerRow + 1);
+    }
+
+    /**
+     * Set the mask's bits in one word if none of them is set yet
+     */
+    private boolean setBits(int word, long mask) {
+        long current;
+        do {
+            current = taken.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!taken.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    /**
+     * Clear the mask's bits in one word, returning the ones that were set
+     */
+    private long clearBits(int word, long mask) {
+        long current;
+        do {
+            current = taken.get(word);
+        } while (!taken.compareAndSet(word, current, current & ~mask));
+        return current & mask;
+    }
+
+    /**
+     * Mask of the seats if they are distinct and all in one word, else 0
+     */
+    private long singleWordMask(int[] seats) {
+        if (seats.length == 0) {
+            return 0;
+        }
+        int word = seats[0] >>> 6;
+        long mask = 0;
+        for (int seat : seats) {
+            long bit = 1L << seat;
+            if (seat < 0 || seat >= capacity() || seat >>> 6 != word || (mask & bit) != 0) {
+                return 0;
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Sorted (word, mask) pairs, flattened, covering the seats. Rejects
+     * out-of-range and repeated seats.
+     */
+    private long[] groupByWord(int[] seats) {
+        if (seats.length == 0) {
+            throw new IllegalArgumentException("No seats given");
+        }
+        int[] sorted = seats;
+        for (int i = 1; i < seats.length; i++) {
+            if (seats[i] < seats[i - 1]) {
+                sorted = seats.clone();
+                Arrays.sort(sorted);
+                break;
+            }
+        }
+        long[] words = new long[2 * sorted.length];
+        int n = -2;
+        for (int i = 0; i < sorted.length; i++) {
+            int seat = sorted[i];
+            checkSeat(seat);
+            if (i > 0 && seat == sorted[i - 1]) {
+                throw new IllegalArgumentException("Seat listed twice: " + labelOf(seat));
+            }
+            if (n < 0 || words[n] != seat >>> 6) {
+                n += 2;
+                words[n] = seat >>> 6;
+            }
+            words[n + 1] |= 1L << seat;
+        }
+        return Arrays.copyOf(words, n + 2);
+    }
+
+    private void checkSeat(int seat) {
+        if (seat < 0 || seat >= capacity()) {
+            throw new IllegalArgumentException("No such seat: " + seat);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+import com.movieticket.model.Order;
+import com.movieticket.model.Showtime;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Showtimes, their seat inventories and ticket orders.
+ *
+ * Every showtime has its own SeatInventory, and seat claims go straight to it
+ * with compare-and-set, so there is no lock shared between showtimes or
+ * between buyers of one showtime.
+ *
+ * With an OrderJournal, new showtimes, sales and refunds are committed to it
+ * before they are reported, and it is replayed on startup. A sale claims its
+ * seats first and journals afterwards; a refund journals first and frees its
+ * seats afterwards. So whenever a seat is sold again, the refund that freed it
+ * is already ahead of the new sale in the journal, and replay reaches the same
+ * seat state. Without a journal everything lives in memory only.
+ */
+public class ShowtimeService {
+    private static final Comparator<Showtime> BY_START = Comparator
+            .comparing((Showtime showtime) -> LocalDateTime.parse(showtime.getStartsAt()))
+            .thenComparing(Showtime::getId);
+
+    private final MovieService movieService;
+    private final OrderJournal journal; // null when orders are not persisted
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Showtime> showtimes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SeatInventory> inventories = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<Showtime>> byMovie = new ConcurrentHashMap<>(); // sorted, read-only
+    private final ConcurrentHashMap<String, Order> orders = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Create a service that keeps showtimes and orders in memory only
+     */
+    public ShowtimeService(MovieService movieService) {
+        this(movieService, null);
+    }
+
+    /**
+     * Create a service that records showtimes and orders in a journal,
+     * replaying what is already in it
+     */
+    public ShowtimeService(MovieService movieService, OrderJournal journal) {
+        this.movieService = movieService;
+        this.journal = journal;
+        if (journal != null) {
+            replay();
+        }
+    }
+
+    /**
+     * Schedule a showtime. The price defaults to the movie's price.
+     */
+    public Showtime createShowtime(Showtime showtime) {
+        if (showtime.getMovieId() == null) {
+            throw new IllegalArgumentException("movieId is required");
+        }
+        Movie movie = movieService.getMovieById(showtime.getMovieId());
+        if (movie == null) {
+            throw new IllegalArgumentException("Movie with ID " + showtime.getMovieId() + " not found");
+        }
+        try {
+            showtime.setStartsAt(LocalDateTime.parse(String.valueOf(showtime.getStartsAt())).toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("startsAt must be a date-time like 2026-10-18T19:30");
+        }
+        SeatInventory inventory = new SeatInventory(showtime.getRows(), showtime.getSeatsPerRow());
+        if (showtime.getPrice() <= 0) {
+            showtime.setPrice(movie.getPrice());
+        }
+
+        showtime.setId(String.valueOf(nextId.getAndIncrement()));
+        if (journal != null) {
+            journal.commit(journal.appendShowtime(showtime));
+        }
+        register(showtime, inventory);
+        return showtime;
+    }
+
+    public Showtime getShowtime(String id) {
+        return showtimes.get(id);
+    }
+
+    /**
+     * Showtimes of a movie, earliest first
+     */
+    public List<Showtime> getShowtimesForMovie(String movieId) {
+        return byMovie.getOrDefault(movieId, Collections.emptyList());
+    }
+
+    /**
+     * Seat inventory of a showtime, or null if there is no such showtime
+     */
+    public SeatInventory getSeats(String showtimeId) {
+        return inventories.get(showtimeId);
+    }
+
+    /**
+     * Buy seats (labels like "C12") all-or-nothing
+     *
+     * @return the outcome, with the order id on success, or null if there is no such showtime
+     */
+    public SeatClaimResult claimSeats(String showtimeId, List<String> labels) {
+        SeatInventory inventory = inventories.get(showtimeId);
+        if (inventory == null) {
+            return null;
+        }
+        int[] seats = seatsOf(inventory, labels);
+        if (!inventory.claim(seats)) {
+            return rejected(showtimeId, inventory, seats);
+        }
+        Order order = sell(showtimeId, inventory, seats);
+        return new SeatClaimResult(showtimeId, order.getSeats(), true, Collections.emptyList(), order.getId());
+    }
+
+    public Order getOrder(String orderId) {
+        return orders.get(orderId);
+    }
+
+    /**
+     * Refund an order and free its seats
+     *
+     * @return the refunded order, or null if there is no such order
+     * @throws IllegalStateException if it was already refunded
+     */
+    public Order refundOrder(String orderId) {
+        Order order = orders.get(orderId);
+        if (order == null) {
+            return null;
+        }
+        Order refunded = order.withStatus(Order.REFUNDED);
+        if (!Order.PAID.equals(order.getStatus()) || !orders.replace(orderId, order, refunded)) {
+            throw new IllegalStateException("Order " + orderId + " was already refunded");
+        }
+        if (journal != null) {
+            try {
+                journal.commit(journal.appendRefund(orderId));
+            } catch (RuntimeException e) {
+                orders.replace(orderId, refunded, order);
+                throw e;
+            }
+        }
+        SeatInventory inventory = inventories.get(order.getShowtimeId());
+        inventory.release(seatsOf(inventory, order.getSeats()));
+        return refunded;
+    }
+
+    /**
+     * Turn seats the caller has already claimed into a paid order, committing
+     * it to the journal. If that fails the seats are released again.
+     */
+    Order sell(String showtimeId, SeatInventory inventory, int[] seats) {
+        long now = System.currentTimeMillis();
+        double amount = Math.round(showtimes.get(showtimeId).getPrice() * seats.length * 100) / 100.0;
+        Order order = new Order(Long.toUnsignedString(random.nextLong(), 36), showtimeId,
+                labelsOf(inventory, seats), amount, Instant.ofEpochMilli(now).toString(), Order.PAID);
+        if (journal != null) {
+            try {
+                journal.commit(journal.appendSale(order.getId(), showtimeId, seats, amount, now));
+            } catch (RuntimeException e) {
+                inventory.release(seats);
+                throw e;
+            }
+        }
+        orders.put(order.getId(), order);
+        return order;
+    }
+
+    private void register(Showtime showtime, SeatInventory inventory) {
+        inventories.put(showtime.getId(), inventory);
+        showtimes.put(showtime.getId(), showtime);
+        byMovie.compute(showtime.getMovieId(), (movieId, list) -> {
+            List<Showtime> next = list != null ? new ArrayList<>(list) : new ArrayList<>();
+            next.add(showtime);
+            next.sort(BY_START);
+            return Collections.unmodifiableList(next);
+        });
+    }
+
+    /**
+     * Rebuild showtimes, orders and seat state from the journal
+     */
+    private void replay() {
+        long start = System.currentTimeMillis();
+        long records;
+        try {
+            records = journal.replay(new OrderJournal.Listener() {
+                @Override
+                public void showtimeScheduled(Showtime showtime) {
+                    register(showtime, new SeatInventory(showtime.getRows(), showtime.getSeatsPerRow()));
+                    try {
+                        nextId.accumulateAndGet(Long.parseLong(showtime.getId()) + 1, Math::max);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours; it cannot clash with generated ids
+                    }
+                }
+
+                @Override
+                public void seatsSold(String orderId, String showtimeId, int[] seats, double amount, long createdAt) {
+                    SeatInventory inventory = inventories.get(showtimeId);
+                    if (inventory == null || !inventory.claim(seats)) {
+                        System.err.println("Order journal: cannot replay order " + orderId + " for showtime " + showtimeId);
+                        return;
+                    }
+                    orders.put(orderId, new Order(orderId, showtimeId, labelsOf(inventory, seats), amount,
+                            Instant.ofEpochMilli(createdAt).toString(), Order.PAID));
+                }
+
+                @Override
+                public void orderRefunded(String orderId) {
+                    Order order = orders.get(orderId);
+                    if (order == null || !Order.PAID.equals(order.getStatus())) {
+                        System.err.println("Order journal: cannot replay refund of order " + orderId);
+                        return;
+                    }
+                    SeatInventory inventory = inventories.get(order.getShowtimeId());
+                    inventory.release(seatsOf(inventory, order.getSeats()));
+                    orders.put(orderId, order.withStatus(Order.REFUNDED));
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replay order journal", e);
+        }
+        System.out.println("Replayed " + records + " order journal records (" + showtimes.size() + " showtimes, "
+                + orders.size() + " orders) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Result for a claim that failed because some of the seats were taken
+     */
+    static SeatClaimResult rejected(String showtimeId, SeatInventory inventory, int[] seats) {
+        List<String> unavailable = new ArrayList<>();
+        for (int seat : inventory.takenAmong(seats)) {
+            unavailable.add(inventory.labelOf(seat));
+        }
+        return new SeatClaimResult(showtimeId, labelsOf(inventory, seats), false, unavailable);
+    }
+
+    static int[] seatsOf(SeatInventory inventory, List<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            throw new IllegalArgumentException("No seats given");
+        }
+        int[] seats = new int[labels.size()];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = inventory.seatOf(labels.get(i));
+        }
+        return seats;
+    }
+
+    /**
+     * Canonical (upper-case) labels, in request order
+     */
+    static List<String> labelsOf(SeatInventory inventory, int[] seats) {
+        List<String> labels = new ArrayList<>(seats.length);
+        for (int seat : seats) {
+            labels.add(inventory.labelOf(seat));
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,50 @@
+package com.movieticket.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rewrites movies.json inside every mutation (the original behavior).
+ * Simple and always durable, but each write costs a full catalog serialization.
+ */
+public class SynchronousPersistence implements CatalogPersistence {
+    private final JsonCatalogFile catalogFile;
+
+    public SynchronousPersistence(JsonCatalogFile catalogFile) {
+        this.catalogFile = catalogFile;
+    }
+
+    @Override
+    public List<CatalogChange> recover() {
+        return Collections.emptyList(); // movies.json is always complete
+    }
+
+    @Override
+    public void onLoad(CatalogSnapshot loaded) {
+        // Nothing to do: the file is what we just read
+    }
+
+    @Override
+    public void onPublish(CatalogSnapshot published, List<CatalogChange> changes) {
+        try {
+            catalogFile.write(published);
+        } catch (IOException e) {
+            System.err.println("Error saving movies to file: " + e.getMessage());
+            throw new RuntimeException("Failed to save movies", e);
+        }
+    }
+
+    @Override
+    public void awaitDurable(long version) {
+        // Already on disk when onPublish returned
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
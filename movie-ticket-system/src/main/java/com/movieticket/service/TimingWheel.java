@@ -0,0 +1,204 @@
+package com.movieticket.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: four levels of 64 slots, each level's slot
+ * spanning a whole turn of the level below. With 100 ms ticks the levels cover
+ * 6.4 seconds, 6.8 minutes, 7.3 hours and 19 days; later deadlines wait in the
+ * top level until they come into range.
+ *
+ * A timer goes into the lowest level whose range covers its deadline. When a
+ * level's hand completes a turn, the timers in the next level's current slot
+ * are cascaded down, so each timer moves at most three times before firing.
+ * Scheduling and cancelling are O(1), and advancing one tick touches a single
+ * slot instead of every timer.
+ *
+ * Timers live in parallel primitive arrays, linked into their slots by index,
+ * so a million pending timers are a handful of arrays rather than a million
+ * objects for the garbage collector to trace. Handles carry a generation
+ * number, so cancelling a timer that already fired (and whose entry has been
+ * reused) is a harmless no-op.
+ *
+ * Not thread-safe: callers serialize access.
+ */
+public final class TimingWheel<T> {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final long SPAN = 1L << (LEVELS * SLOT_BITS); // ticks the wheel can look ahead
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private long currentTick;
+    private final int[] heads = new int[LEVELS * SLOTS];
+
+    // Timer entries, by index
+    private long[] deadlines; // in ticks
+    private int[] next;       // next entry in the slot, or in the free list
+    private int[] prev;
+    private int[] slotOf;     // NONE when the entry is free
+    private int[] generations;
+    private Object[] attachments;
+    private int freeHead = NONE;
+    private int size;
+
+    /**
+     * @param tickMillis resolution; timers fire up to one tick late, never early
+     * @param nowMillis the current time on the clock later passed to advance
+     */
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        Arrays.fill(heads, NONE);
+        deadlines = new long[0];
+        next = new int[0];
+        prev = new int[0];
+        slotOf = new int[0];
+        generations = new int[0];
+        attachments = new Object[0];
+        grow(1024);
+    }
+
+    /**
+     * Number of pending timers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedule a timer
+     *
+     * @return a handle for cancel
+     */
+    public long schedule(long deadlineMillis, T attachment) {
+        if (freeHead == NONE) {
+            grow(deadlines.length * 2);
+        }
+        int entry = freeHead;
+        freeHead = next[entry];
+        deadlines[entry] = deadlineMillis / tickMillis + (deadlineMillis % tickMillis > 0 ? 1 : 0);
+        attachments[entry] = attachment;
+        place(entry, 1);
+        size++;
+        return ((long) generations[entry] << 32) | entry;
+    }
+
+    /**
+     * Cancel a pending timer
+     *
+     * @return false if it already fired or was cancelled
+     */
+    public boolean cancel(long handle) {
+        int entry = (int) handle;
+        if (entry < 0 || entry >= deadlines.length || generations[entry] != (int) (handle >>> 32)
+                || slotOf[entry] == NONE) {
+            return false;
+        }
+        unlink(entry);
+        free(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Move the wheel forward to the given time, adding the attachments of every
+     * timer that became due to expired
+     *
+     * @return how many timers fired
+     */
+    @SuppressWarnings("unchecked")
+    public int advance(long nowMillis, List<? super T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        int fired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade from the highest level whose lower levels all just wrapped
+            int top = 0;
+            while (top + 1 < LEVELS && (currentTick & ((1L << ((top + 1) * SLOT_BITS)) - 1)) == 0) {
+                top++;
+            }
+            for (int level = top; level >= 1; level--) {
+                int slot = level * SLOTS + (int) ((currentTick >>> (level * SLOT_BITS)) & (SLOTS - 1));
+                int entry = heads[slot];
+                heads[slot] = NONE;
+                while (entry != NONE) {
+                    int following = next[entry];
+                    place(entry, 0); // due now lands in the slot about to fire
+                    entry = following;
+                }
+            }
+
+            int slot = (int) (currentTick & (SLOTS - 1));
+            int entry = heads[slot];
+            heads[slot] = NONE;
+            while (entry != NONE) {
+                int following = next[entry];
+                expired.add((T) attachments[entry]);
+                free(entry);
+                size--;
+                fired++;
+                entry = following;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Link an entry into the slot for its deadline, at least minTicks from the current tick
+     */
+    private void place(int entry, long minTicks) {
+        long delta = Math.min(Math.max(deadlines[entry] - currentTick, minTicks), SPAN - 1);
+        long target = currentTick + delta;
+        int level = delta < SLOTS ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+        int slot = level * SLOTS + (int) ((target >>> (level * SLOT_BITS)) & (SLOTS - 1));
+        int head = heads[slot];
+        next[entry] = head;
+        prev[entry] = NONE;
+        if (head != NONE) {
+            prev[head] = entry;
+        }
+        heads[slot] = entry;
+        slotOf[entry] = slot;
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] != NONE) {
+            next[prev[entry]] = next[entry];
+        } else {
+            heads[slotOf[entry]] = next[entry];
+        }
+        if (next[entry] != NONE) {
+            prev[next[entry]] = prev[entry];
+        }
+    }
+
+    private void free(int entry) {
+        generations[entry]++;
+        attachments[entry] = null;
+        slotOf[entry] = NONE;
+        next[entry] = freeHead;
+        freeHead = entry;
+    }
+
+    private void grow(int capacity) {
+        int old = deadlines.length;
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        attachments = Arrays.copyOf(attachments, capacity);
+        for (int entry = capacity - 1; entry >= old; entry--) {
+            slotOf[entry] = NONE;
+            next[entry] = freeHead;
+            freeHead = entry;
+        }
+    }
+}
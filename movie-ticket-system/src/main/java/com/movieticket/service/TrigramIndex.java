@@ -0,0 +1,266 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Trigram inverted index over lower-cased movie titles, for substring search.
+ *
+ * Every movie gets a document number in catalog order, and each trigram of its
+ * title maps to a sorted array of document numbers (a posting list). A query
+ * is answered by intersecting the posting lists of its trigrams, smallest
+ * first, and then checking each surviving candidate really contains the query.
+ * Because document numbers follow catalog order, results come out in the same
+ * order as a full scan would produce them.
+ *
+ * Only MovieService's writer (holding its write lock) modifies the index.
+ * Posting lists are replaced, never modified, and document ids are read
+ * through an AtomicReferenceArray, so searches run without locking. Candidates
+ * are verified against the title of the movie in the searcher's snapshot,
+ * never against index state a concurrent write may be changing.
+ */
+final class TrigramIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final ConcurrentHashMap<Long, int[]> postings = new ConcurrentHashMap<>();
+    private volatile AtomicReferenceArray<String> idsByDoc = new AtomicReferenceArray<>(16); // null once deleted
+
+    // Writer only
+    private final Map<String, Integer> docById = new HashMap<>();
+    private String[] titlesByDoc = new String[16]; // lower-cased titles as indexed
+    private int nextDoc;
+
+    /**
+     * Build an index over a catalog in one pass
+     */
+    static TrigramIndex build(CatalogSnapshot snapshot) {
+        TrigramIndex index = new TrigramIndex();
+        Map<Long, IntList> lists = new HashMap<>();
+        for (Movie movie : snapshot.getMovies()) {
+            if (snapshot.getMovie(movie.getId()) != movie) {
+                continue; // duplicate id, not reachable by lookups either
+            }
+            int doc = index.assignDoc(movie);
+            for (long gram : trigrams(index.titlesByDoc[doc])) {
+                lists.computeIfAbsent(gram, g -> new IntList()).add(doc);
+            }
+        }
+        for (Map.Entry<Long, IntList> entry : lists.entrySet()) {
+            index.postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return index;
+    }
+
+    /**
+     * Keep the index in step with a published change
+     */
+    void apply(CatalogChange change) {
+        switch (change.getType()) {
+            case CREATE:
+                add(change.getMovie());
+                break;
+            case UPDATE:
+                update(change.getMovie());
+                break;
+            case DELETE:
+                remove(change.getId());
+                break;
+        }
+    }
+
+    /**
+     * Find movies whose title contains the query, in catalog order.
+     *
+     * @param lowerCaseQuery the query, already lower-cased
+     * @param snapshot candidates are resolved and verified against this snapshot
+     * @return the matches, or null if the query is shorter than a trigram
+     */
+    List<Movie> search(String lowerCaseQuery, CatalogSnapshot snapshot) {
+        Set<Long> grams = trigrams(lowerCaseQuery);
+        if (grams.isEmpty()) {
+            return null;
+        }
+
+        List<int[]> lists = new ArrayList<>(grams.size());
+        for (long gram : grams) {
+            int[] list = postings.get(gram);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int[] candidates = lists.get(0);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            candidates = intersect(candidates, count, lists.get(i));
+            count = candidates.length;
+        }
+
+        // Resolve candidates in the snapshot and verify their titles there
+        AtomicReferenceArray<String> ids = idsByDoc;
+        List<Movie> matches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int doc = candidates[i];
+            String id = doc < ids.length() ? ids.get(doc) : null;
+            Movie movie = id != null ? snapshot.getMovie(id) : null;
+            if (movie != null && titleOf(movie).contains(lowerCaseQuery)) {
+                matches.add(movie);
+            }
+        }
+        return matches;
+    }
+
+    private void add(Movie movie) {
+        int doc = assignDoc(movie);
+        for (long gram : trigrams(titlesByDoc[doc])) {
+            postings.put(gram, insert(postings.getOrDefault(gram, EMPTY), doc));
+        }
+    }
+
+    private void update(Movie movie) {
+        Integer doc = docById.get(movie.getId());
+        if (doc == null) {
+            add(movie);
+            return;
+        }
+        String newTitle = titleOf(movie);
+        Set<Long> oldGrams = trigrams(titlesByDoc[doc]);
+        Set<Long> newGrams = trigrams(newTitle);
+        titlesByDoc[doc] = newTitle;
+        for (long gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                removeFrom(gram, doc);
+            }
+        }
+        for (long gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.put(gram, insert(postings.getOrDefault(gram, EMPTY), doc));
+            }
+        }
+    }
+
+    private void remove(String id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (long gram : trigrams(titlesByDoc[doc])) {
+            removeFrom(gram, doc);
+        }
+        titlesByDoc[doc] = null;
+        idsByDoc.set(doc, null);
+    }
+
+    private int assignDoc(Movie movie) {
+        int doc = nextDoc++;
+        if (doc == titlesByDoc.length) {
+            AtomicReferenceArray<String> larger = new AtomicReferenceArray<>(doc * 2);
+            for (int i = 0; i < doc; i++) {
+                larger.set(i, idsByDoc.get(i));
+            }
+            idsByDoc = larger;
+            titlesByDoc = Arrays.copyOf(titlesByDoc, doc * 2);
+        }
+        idsByDoc.set(doc, movie.getId());
+        titlesByDoc[doc] = titleOf(movie);
+        docById.put(movie.getId(), doc);
+        return doc;
+    }
+
+    private void removeFrom(long gram, int doc) {
+        int[] list = postings.get(gram);
+        if (list == null) {
+            return;
+        }
+        int at = Arrays.binarySearch(list, doc);
+        if (at < 0) {
+            return;
+        }
+        if (list.length == 1) {
+            postings.remove(gram);
+            return;
+        }
+        int[] shorter = new int[list.length - 1];
+        System.arraycopy(list, 0, shorter, 0, at);
+        System.arraycopy(list, at + 1, shorter, at, list.length - at - 1);
+        postings.put(gram, shorter);
+    }
+
+    private static int[] insert(int[] list, int doc) {
+        int at = Arrays.binarySearch(list, doc);
+        if (at >= 0) {
+            return list;
+        }
+        at = -at - 1;
+        int[] longer = new int[list.length + 1];
+        System.arraycopy(list, 0, longer, 0, at);
+        longer[at] = doc;
+        System.arraycopy(list, at, longer, at + 1, list.length - at);
+        return longer;
+    }
+
+    /**
+     * Intersect the first count entries of a with b (both sorted)
+     */
+    private static int[] intersect(int[] a, int count, int[] b) {
+        int[] out = new int[Math.min(count, b.length)];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < b.length; i++) {
+            int doc = a[i];
+            while (j < b.length && b[j] < doc) {
+                j++;
+            }
+            if (j < b.length && b[j] == doc) {
+                out[n++] = doc;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    static String titleOf(Movie movie) {
+        return movie.getTitle() != null ? movie.getTitle().toLowerCase() : "";
+    }
+
+    /**
+     * Distinct trigrams of a lower-cased string, each packed into a long
+     */
+    static Set<Long> trigrams(String text) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Growable int array used while bulk-building posting lists
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
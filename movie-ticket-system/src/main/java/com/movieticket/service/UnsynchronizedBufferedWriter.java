@@ -0,0 +1,80 @@
+package com.movieticket.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A BufferedWriter without the locking.
+ *
+ * JsonWriter hands its Writer many tiny pieces (a quote, a name, a colon...),
+ * and java.io.BufferedWriter takes a lock for every one of them. For the
+ * single-threaded bulk writes of a whole catalog that locking was about half
+ * the cost of serializing, so this buffer is used instead. Not thread-safe.
+ */
+public final class UnsynchronizedBufferedWriter extends Writer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count;
+
+    public UnsynchronizedBufferedWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (char) c;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (length > buffer.length - count) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(chars, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(chars, offset, buffer, count, length);
+        count += length;
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        if (length > buffer.length - count) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(text, offset, length);
+                return;
+            }
+        }
+        text.getChars(offset, offset + length, buffer, count);
+        count += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
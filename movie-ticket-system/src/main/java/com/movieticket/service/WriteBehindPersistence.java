@@ -0,0 +1,194 @@
+package com.movieticket.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence: mutations only mark the catalog dirty, and a
+ * background thread writes one coalesced snapshot per flush interval, or
+ * sooner once maxPendingChanges mutations have piled up.
+ *
+ * With durableOnReturn enabled, each writer waits (outside MovieService's
+ * write lock) for the group flush that covers its change. Waiting writers
+ * trigger a flush right away, and every writer that arrives while that flush
+ * is running shares the next one, so concurrent writers share file writes
+ * instead of doing one each.
+ *
+ * Uses ReentrantLock rather than monitors so a waiting writer on a virtual
+ * thread unmounts instead of pinning its carrier thread.
+ */
+public class WriteBehindPersistence implements CatalogPersistence {
+    private final JsonCatalogFile catalogFile;
+    private final int maxPendingChanges;
+    private final boolean durableOnReturn;
+    private final ScheduledExecutorService flusher;
+    private final ReentrantLock fileLock = new ReentrantLock(); // serializes file writes
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    // Guarded by lock
+    private CatalogSnapshot pending;     // newest snapshot not yet written, null when clean
+    private int pendingChanges;
+    private boolean flushQueued;
+    private long durableVersion;         // newest version known to be on disk
+    private long failedVersion = -1;     // newest version whose flush failed
+    private IOException lastFailure;
+
+    public WriteBehindPersistence(JsonCatalogFile catalogFile, long flushIntervalMillis,
+                                  int maxPendingChanges, boolean durableOnReturn) {
+        this.catalogFile = catalogFile;
+        this.maxPendingChanges = maxPendingChanges;
+        this.durableOnReturn = durableOnReturn;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushPending,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<CatalogChange> recover() {
+        return Collections.emptyList(); // movies.json is always complete
+    }
+
+    @Override
+    public void onLoad(CatalogSnapshot loaded) {
+        lock.lock();
+        try {
+            // MovieService flushes before it reloads, so nothing is pending here
+            durableVersion = Math.max(durableVersion, loaded.getVersion());
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onPublish(CatalogSnapshot published, List<CatalogChange> changes) {
+        lock.lock();
+        try {
+            pending = published;
+            pendingChanges++;
+            if (pendingChanges >= maxPendingChanges) {
+                queueFlush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long version) {
+        if (!durableOnReturn) {
+            return;
+        }
+        lock.lock();
+        try {
+            // Someone is waiting: don't sit out the interval. Writers that arrive
+            // while this flush is running are picked up together by the next one.
+            if (durableVersion < version) {
+                queueFlush();
+            }
+            while (durableVersion < version && failedVersion < version) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durableVersion < version) {
+                throw new RuntimeException("Failed to save movies", lastFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        flushPending();
+        lock.lock();
+        try {
+            if (pending != null) {
+                throw new RuntimeException("Failed to save movies", lastFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushPending();
+    }
+
+    /**
+     * Ask the background thread to flush as soon as it is free. Must hold lock.
+     */
+    private void queueFlush() {
+        if (!flushQueued && !flusher.isShutdown()) {
+            flushQueued = true;
+            flusher.execute(this::flushPending);
+        }
+    }
+
+    /**
+     * Write the newest pending snapshot, if any. File writes are serialized on
+     * fileLock so the scheduled flush and an explicit flush cannot interleave.
+     */
+    private void flushPending() {
+        fileLock.lock();
+        try {
+            CatalogSnapshot toWrite;
+            lock.lock();
+            try {
+                flushQueued = false;
+                toWrite = pending;
+                pending = null;
+                pendingChanges = 0;
+            } finally {
+                lock.unlock();
+            }
+            if (toWrite == null) {
+                return;
+            }
+
+            try {
+                catalogFile.write(toWrite);
+                lock.lock();
+                try {
+                    durableVersion = Math.max(durableVersion, toWrite.getVersion());
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                System.err.println("Error saving movies to file: " + e.getMessage());
+                lock.lock();
+                try {
+                    // Keep the data dirty so the next interval retries it
+                    if (pending == null) {
+                        pending = toWrite;
+                    }
+                    failedVersion = Math.max(failedVersion, toWrite.getVersion());
+                    lastFailure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+}
@@ -104,10 +104,12 @@ async function handleSearch() {
     hideError();
 
     try {
-        const response = await fetch(`${API_BASE_URL}/movies/search/${encodeURIComponent(query)}`);
+        // Ranked search over titles, descriptions and cast that tolerates typos
+        const response = await fetch(`${API_BASE_URL}/movies/search?q=${encodeURIComponent(query)}&limit=50`);
         if (!response.ok) throw new Error('Search failed');
 
-        currentMovies = await response.json();
+        const hits = await response.json();
+        currentMovies = hits.map(hit => hit.movie);
         displayMovies(currentMovies);
         updateMovieCount(currentMovies.length);
 
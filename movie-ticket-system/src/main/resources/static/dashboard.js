@@ -25,13 +25,16 @@ const posterUrlInput = document.getElementById('posterUrl');
 // State
 let editingMovieId = null;
 let allMovies = [];
+let moviesLoaded = false;
+let loadingMovies = false;
+let queuedChanges = []; // changes that arrive while the list is loading
 
 // Initialize
 init();
 
 function init() {
     setupEventListeners();
-    loadMovies();
+    followChanges();
 }
 
 function setupEventListeners() {
@@ -39,17 +42,79 @@ function setupEventListeners() {
     cancelBtn.addEventListener('click', resetForm);
 }
 
+// Follow catalog changes from the server instead of refetching the list.
+// The list is loaded once the stream is open (on "ready") so no change can
+// fall between the two, and again whenever the server sends "reset".
+function followChanges() {
+    if (!window.EventSource) {
+        loadMovies();
+        return;
+    }
+
+    const changes = new EventSource(`${API_BASE_URL}/movies/changes`);
+    changes.addEventListener('ready', () => {
+        if (!moviesLoaded) {
+            loadMovies();
+        }
+    });
+    changes.addEventListener('reset', () => loadMovies());
+    ['create', 'update', 'delete'].forEach(type => {
+        changes.addEventListener(type, event => applyChange(type, JSON.parse(event.data)));
+    });
+    changes.onerror = () => {
+        // The browser reconnects by itself and resumes from the last event it saw
+        if (!moviesLoaded) {
+            showMessage('Failed to load movies: cannot reach the server', 'error');
+        }
+    };
+}
+
+// Apply one create, update or delete event to the list
+function applyChange(type, change) {
+    if (loadingMovies) {
+        queuedChanges.push({ type, change });
+        return;
+    }
+
+    if (type === 'delete') {
+        removeMovie(change.id);
+    } else {
+        upsertMovie(change.movie);
+    }
+    displayMovies(allMovies);
+}
+
+function upsertMovie(movie) {
+    const index = allMovies.findIndex(m => m.id === movie.id);
+    if (index >= 0) {
+        allMovies[index] = movie;
+    } else {
+        allMovies.push(movie);
+    }
+}
+
+function removeMovie(id) {
+    allMovies = allMovies.filter(m => m.id !== id);
+}
+
 // Load all movies
 async function loadMovies() {
+    loadingMovies = true;
     try {
         const response = await fetch(`${API_BASE_URL}/movies`);
         if (!response.ok) throw new Error('Failed to load movies');
 
         allMovies = await response.json();
-        displayMovies(allMovies);
+        moviesLoaded = true;
     } catch (err) {
         showMessage('Failed to load movies: ' + err.message, 'error');
         console.error('Error loading movies:', err);
+    } finally {
+        loadingMovies = false;
+        const queued = queuedChanges;
+        queuedChanges = [];
+        queued.forEach(({ type, change }) => applyChange(type, change));
+        displayMovies(allMovies);
     }
 }
 
@@ -128,7 +193,8 @@ async function createMovie(movieData) {
         const createdMovie = await response.json();
         showMessage(`Movie "${createdMovie.title}" created successfully!`, 'success');
         resetForm();
-        loadMovies();
+        upsertMovie(createdMovie); // the change stream delivers it too; applying it twice is harmless
+        displayMovies(allMovies);
     } catch (err) {
         throw err;
     }
@@ -153,7 +219,8 @@ async function updateMovie(id, movieData) {
         const updatedMovie = await response.json();
         showMessage(`Movie "${updatedMovie.title}" updated successfully!`, 'success');
         resetForm();
-        loadMovies();
+        upsertMovie(updatedMovie);
+        displayMovies(allMovies);
     } catch (err) {
         throw err;
     }
@@ -210,7 +277,8 @@ async function deleteMovie(id) {
         }
 
         showMessage(`Movie "${movie.title}" deleted successfully!`, 'success');
-        loadMovies();
+        removeMovie(id);
+        displayMovies(allMovies);
     } catch (err) {
         showMessage('Failed to delete movie: ' + err.message, 'error');
         console.error('Error deleting movie:', err);
@@ -0,0 +1,89 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Recovery cuts off a torn last record but refuses to drop intact records
+ * behind a damaged one.
+ */
+public class ChangeLogPersistenceTest {
+    private static final long NEVER = 3_600_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void tornTailIsTruncated() throws Exception {
+        Path log = writeLog(3);
+        long intact = Files.size(log);
+        Files.write(log, "0000abcd {\"type\":\"CRE".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        List<CatalogChange> changes = open().recover();
+
+        assertEquals(3, changes.size());
+        assertEquals(intact, Files.size(log));
+    }
+
+    @Test
+    public void damagedRecordBeforeIntactOnesFailsRecovery() throws Exception {
+        Path log = writeLog(3);
+        byte[] bytes = Files.readAllBytes(log);
+        int secondRecord = indexOf(bytes, (byte) '\n') + 1;
+        bytes[secondRecord + 20] ^= 1; // flip a bit inside the second record's JSON
+        Files.write(log, bytes);
+
+        try {
+            open().recover();
+            fail("recover should refuse a damaged record followed by intact ones");
+        } catch (RuntimeException expected) {
+            // startup fails instead of silently dropping records 2 and 3
+        }
+        assertArrayEquals(bytes, Files.readAllBytes(log));
+    }
+
+    /**
+     * Log one created movie per publish
+     */
+    private Path writeLog(int records) throws Exception {
+        ChangeLogPersistence persistence = open();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= records; i++) {
+            Movie movie = new Movie(String.valueOf(i), "Movie " + i, "Drama", "Director", 2000, 120, 7.5,
+                    "Description", Arrays.asList("Actor"), null, 10.0);
+            movies.add(movie);
+            persistence.onPublish(CatalogSnapshot.of(new ArrayList<>(movies), i),
+                    Collections.singletonList(CatalogChange.created(movie)));
+        }
+        return folder.getRoot().toPath().resolve("movies.json.log");
+    }
+
+    private ChangeLogPersistence open() {
+        JsonCatalogFile catalogFile = new JsonCatalogFile(folder.getRoot().toPath().resolve("movies.json").toString());
+        return new ChangeLogPersistence(catalogFile, NEVER, Long.MAX_VALUE, false);
+    }
+
+    private static int indexOf(byte[] bytes, byte value) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,69 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Full-text search from the index, and from a scan while the index is being
+ * built, must agree.
+ */
+public class FullTextIndexTest {
+
+    private static final List<Movie> MOVIES = Arrays.asList(
+            movie("1", "The Dark Knight", "A knight of the night protects the city", "Christian Bale"),
+            movie("2", "A Knight's Tale", "A squire poses as a knight", "Heath Ledger"),
+            movie("3", "Midnight Mirror", "A mirror shows the dark side", "Ava Nolan"),
+            movie("4", "Shadow Kingdom", "A kingdom falls into shadow", "Ava Stone"),
+            movie("5", "Electric Protocol", "Hackers break the protocol", "Sam Reed"),
+            movie("6", "Quiet Harbor", "Nothing happens at the harbor", "Lee Park"));
+
+    @Test
+    public void scanRanksLikeTheIndex() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(new ArrayList<>(MOVIES), 1);
+        FullTextIndex index = FullTextIndex.build(snapshot);
+        for (String query : new String[] {"knight", "dark knight", "ava nolan", "shadw kingdm", "electirc", "xyzzy"}) {
+            List<SearchHit> indexed = index.search(query, 10, snapshot);
+            List<SearchHit> scanned = FullTextIndex.scan(query, 10, snapshot);
+            assertEquals(query, ids(indexed), ids(scanned));
+            for (int i = 0; i < indexed.size(); i++) {
+                assertEquals(query, indexed.get(i).getScore(), scanned.get(i).getScore(), 1e-9);
+            }
+        }
+        assertTrue(ids(FullTextIndex.scan("shadw kingdm", 10, snapshot)).contains("4"));
+    }
+
+    @Test
+    public void updateWithCollidingOldHashIsReindexed() {
+        // "Aa" and "BB" have the same String-style hash
+        Movie before = movie("1", "Aa Team", "", "");
+        CatalogSnapshot snapshot = CatalogSnapshot.of(new ArrayList<>(Arrays.asList(before)), 1);
+        FullTextIndex index = FullTextIndex.build(snapshot);
+
+        Movie after = movie("1", "BB Team", "", "");
+        snapshot = CatalogSnapshot.of(new ArrayList<>(Arrays.asList(after)), 2);
+        index.apply(CatalogChange.updated(after));
+
+        assertEquals(Arrays.asList("1"), ids(index.search("bb", 10, snapshot)));
+        assertEquals(Arrays.asList(), ids(index.search("aa", 10, snapshot)));
+    }
+
+    private static List<String> ids(List<SearchHit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            ids.add(hit.getMovie().getId());
+        }
+        return ids;
+    }
+
+    private static Movie movie(String id, String title, String description, String cast) {
+        return new Movie(id, title, "Drama", "Director", 2000, 120, 7.5, description,
+                Arrays.asList(cast), null, 10.0);
+    }
+}
@@ -0,0 +1,116 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Readers iterate and search the catalog while writers create movies. Readers
+ * never lock, so they must never fail or see the catalog shrink, and no
+ * create may be lost.
+ */
+public class MovieServiceConcurrencyTest {
+    private static final int READERS = 4;
+    private static final int WRITERS = 4;
+    private static final int MOVIES_PER_WRITER = 150;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MovieService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new MovieService(folder.newFile("movies.json").getPath());
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void concurrentReadersAndWritersLoseNothing() throws Exception {
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Queue<String> createdIds = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    int lastSize = 0;
+                    while (writing.get()) {
+                        List<Movie> all = service.getAllMovies();
+                        assertTrue("catalog shrank", all.size() >= lastSize);
+                        lastSize = all.size();
+                        for (Movie movie : all) {
+                            assertNotNull(movie.getTitle());
+                            assertNotNull(service.getMovieById(movie.getId()));
+                        }
+                        for (Movie movie : service.searchMoviesByTitle("writer")) {
+                            assertTrue(movie.getTitle().toLowerCase().contains("writer"));
+                        }
+                        service.getMoviesByGenre("drama");
+                        service.getAllGenres();
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < MOVIES_PER_WRITER; i++) {
+                        Movie created = service.createMovie(new Movie(null, "Writer " + writer + " movie " + i,
+                                "Drama", "Director", 2000, 120, 7.5, "Description",
+                                Arrays.asList("Actor"), null, 10.0));
+                        createdIds.add(created.getId());
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+        writers.forEach(Thread::start);
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue("failures: " + failures, failures.isEmpty());
+        assertEquals(WRITERS * MOVIES_PER_WRITER, new HashSet<>(createdIds).size());
+        assertEquals(WRITERS * MOVIES_PER_WRITER, service.getAllMovies().size());
+        for (String id : createdIds) {
+            assertNotNull(id, service.getMovieById(id));
+        }
+    }
+}
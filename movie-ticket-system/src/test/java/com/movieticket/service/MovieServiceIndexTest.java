@@ -0,0 +1,91 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Movie;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that id lookups agree with the full movie list through a random
+ * sequence of creates, updates and deletes.
+ */
+public class MovieServiceIndexTest {
+    private static final int STEPS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MovieService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new MovieService(folder.newFile("movies.json").getPath());
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void idLookupsMatchAllMoviesAfterRandomChanges() {
+        Random random = new Random(42);
+        Map<String, Movie> expected = new HashMap<>();
+        List<String> deleted = new ArrayList<>();
+
+        for (int step = 0; step < STEPS; step++) {
+            List<String> ids = new ArrayList<>(expected.keySet());
+            int action = ids.isEmpty() ? 0 : random.nextInt(4); // creates twice as likely, so the catalog grows
+            if (action <= 1) {
+                // Let the service pick the id about half the time
+                String id = random.nextBoolean() ? null : "m" + step;
+                Movie created = service.createMovie(movie(id, "Created " + step));
+                expected.put(created.getId(), created);
+            } else if (action == 2) {
+                String id = ids.get(random.nextInt(ids.size()));
+                Movie updated = service.updateMovie(id, movie(null, "Updated " + step));
+                expected.put(id, updated);
+            } else {
+                String id = ids.get(random.nextInt(ids.size()));
+                assertTrue(service.deleteMovie(id));
+                expected.remove(id);
+                deleted.add(id);
+            }
+            assertConsistent(expected, deleted);
+        }
+    }
+
+    private void assertConsistent(Map<String, Movie> expected, List<String> deleted) {
+        List<Movie> all = service.getAllMovies();
+        assertEquals(expected.size(), all.size());
+        for (Movie movie : all) {
+            assertSame(movie, service.getMovieById(movie.getId()));
+            assertSame(expected.get(movie.getId()), movie);
+        }
+        for (String id : deleted) {
+            if (!expected.containsKey(id)) {
+                assertNull(id, service.getMovieById(id));
+            }
+        }
+        assertNull(service.getMovieById("no-such-id"));
+    }
+
+    private static Movie movie(String id, String title) {
+        return new Movie(id, title, "Drama", "Director", 2000, 120, 7.5, "Description",
+                Arrays.asList("Actor"), null, 10.0);
+    }
+}
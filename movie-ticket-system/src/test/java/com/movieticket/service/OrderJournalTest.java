@@ -0,0 +1,93 @@
+package com.movieticket.service;
+
+import com.movieticket.model.Showtime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A sale whose batch fails to reach disk is reported as failed, so it must
+ * not come back when the journal is replayed.
+ */
+public class OrderJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Journal whose next force can be made to fail, after the bytes were written
+     */
+    private static class FailingJournal extends OrderJournal {
+        boolean failNextForce;
+
+        FailingJournal(Path directory) throws IOException {
+            super(directory, 1 << 20, true);
+        }
+
+        @Override
+        void force(FileChannel channel) throws IOException {
+            if (failNextForce) {
+                failNextForce = false;
+                throw new IOException("injected force failure");
+            }
+            super.force(channel);
+        }
+    }
+
+    /**
+     * Collects the orders replayed from a journal
+     */
+    private static class Sales implements OrderJournal.Listener {
+        final List<String> orders = new ArrayList<>();
+
+        @Override
+        public void showtimeScheduled(Showtime showtime) {
+        }
+
+        @Override
+        public void seatsSold(String orderId, String showtimeId, int[] seats, double amount, long createdAt) {
+            orders.add(orderId + " " + Arrays.toString(seats));
+        }
+
+        @Override
+        public void orderRefunded(String orderId) {
+        }
+    }
+
+    @Test
+    public void failedForceDoesNotReplayTheSale() throws Exception {
+        Path directory = folder.newFolder("journal").toPath();
+        FailingJournal journal = new FailingJournal(directory);
+        journal.replay(new Sales());
+
+        journal.commit(journal.appendSale("before", "s1", new int[]{1}, 10, 0));
+
+        journal.failNextForce = true;
+        long failed = journal.appendSale("failed", "s1", new int[]{2, 3}, 20, 0);
+        try {
+            journal.commit(failed);
+            fail("commit should report the failed force");
+        } catch (RuntimeException expected) {
+            // the caller releases the seats
+        }
+
+        // The seats were released, so they can be sold again
+        journal.commit(journal.appendSale("resold", "s1", new int[]{2, 3}, 20, 0));
+        assertEquals(2, journal.getCommittedRecords());
+        journal.close();
+
+        Sales replayed = new Sales();
+        new OrderJournal(directory, 1 << 20, true).replay(replayed);
+        assertEquals(Arrays.asList("before [1]", "resold [2, 3]"), replayed.orders);
+    }
+}
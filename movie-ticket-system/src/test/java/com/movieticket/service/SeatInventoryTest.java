@@ -0,0 +1,100 @@
+package com.movieticket.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Many buyers claim overlapping multi-seat sets of one showtime at once, and
+ * give some back so the seats stay contended. Every seat must be sold at most
+ * once, failed claims must leave nothing behind, and available() must match
+ * what was sold.
+ */
+public class SeatInventoryTest {
+    private static final int ROWS = 10;
+    private static final int SEATS_PER_ROW = 20; // 200 seats, so claims span several words
+    private static final int THREADS = 16;
+    private static final int CLAIMS_PER_THREAD = 2000;
+
+    @Test
+    public void overlappingClaimsNeverSellASeatTwice() throws Exception {
+        SeatInventory inventory = new SeatInventory(ROWS, SEATS_PER_ROW);
+        int capacity = inventory.capacity();
+        AtomicIntegerArray sales = new AtomicIntegerArray(capacity);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> buyers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            buyers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                List<int[]> held = new ArrayList<>();
+                try {
+                    start.await();
+                    for (int i = 0; i < CLAIMS_PER_THREAD; i++) {
+                        // 1 to 6 adjacent seats from a random start, wrapping past the last seat
+                        int first = random.nextInt(capacity);
+                        int[] seats = new int[1 + random.nextInt(6)];
+                        for (int s = 0; s < seats.length; s++) {
+                            seats[s] = (first + s * (1 + random.nextInt(2))) % capacity;
+                        }
+                        if (distinct(seats) && inventory.claim(seats)) {
+                            for (int seat : seats) {
+                                if (sales.incrementAndGet(seat) > 1) {
+                                    throw new AssertionError("seat " + seat + " sold twice");
+                                }
+                            }
+                            held.add(seats);
+                        }
+                        if (!held.isEmpty() && random.nextBoolean()) {
+                            int[] refunded = held.remove(random.nextInt(held.size()));
+                            for (int seat : refunded) {
+                                sales.decrementAndGet(seat); // before the seat can be resold
+                            }
+                            assertEquals(refunded.length, inventory.release(refunded));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+        buyers.forEach(Thread::start);
+        start.countDown();
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+
+        assertTrue("failures: " + failures, failures.isEmpty());
+        int sold = 0;
+        for (int seat = 0; seat < capacity; seat++) {
+            int count = sales.get(seat);
+            assertTrue("seat " + seat + " sold " + count + " times", count <= 1);
+            assertEquals("seat " + seat, count == 1, inventory.isTaken(seat));
+            sold += count;
+        }
+        assertTrue("no claim succeeded", sold > 0);
+        assertEquals(capacity - sold, inventory.available());
+    }
+
+    private static boolean distinct(int[] seats) {
+        for (int i = 0; i < seats.length; i++) {
+            for (int j = i + 1; j < seats.length; j++) {
+                if (seats[i] == seats[j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}